@@ -0,0 +1,141 @@
+package pcd.ass03.chat.benchmarks;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import pcd.ass03.chat.messages.ClientMsg;
+import pcd.ass03.chat.messages.SequenceNumberClientMsg;
+import pcd.ass03.chat.messages.TimestampClientMsg;
+import pcd.ass03.chat.messages.client.ChatMsg;
+import pcd.ass03.chat.messages.client.LoggedInClientsMsg;
+import pcd.ass03.chat.messages.client.MutualExclusionRequestMsg;
+import pcd.ass03.chat.messages.register.ClientLoginMsg;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * This benchmark compares the Java serialization with the chat serializer bound in client.conf,
+ * measuring the time to serialize and deserialize the most frequent messages of the chat.
+ * The size of each serialized message is printed during the setup.
+ * <p>
+ * Run it with {@code ./gradlew jmh -Pjmh.include=ChatSerializationBenchmark}.
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChatSerializationBenchmark {
+
+	private static final String CLIENT_CONFIG = "src/main/java/pcd/ass03/chat/client.conf";
+
+	@Param({ "java", "chat" })
+	private String serializer;
+
+	@Param({ "SequenceNumberClientMsg", "TimestampClientMsg", "MutualExclusionRequestMsg", "ClientLoginMsg",
+			"LoggedInClientsMsg" })
+	private String message;
+
+	private ActorSystem system;
+	private Serialization serialization;
+	private Object messageObject;
+	private int serializerId;
+	private byte[] serializedMessage;
+
+
+	/**
+	 * An actor whose references are put in the messages.
+	 */
+	public static class Client extends AbstractActor {
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder().build();
+		}
+	}
+
+
+	@Setup(Level.Trial)
+	public void createMessage() {
+		// Remote references, as they are sent between the chat systems (any free port)
+		Config config = ConfigFactory.parseString("akka.remote.netty.tcp.port = 0")
+				.withFallback(ConfigFactory.parseFile(new File(CLIENT_CONFIG)));
+		if (this.serializer.equals("java")) {
+			config = config.withoutPath("akka.actor.serialization-bindings").withoutPath("akka.actor.serializers");
+		}
+		this.system = ActorSystem.create("ClientSystem", config);
+		this.serialization = (Serialization) SerializationExtension.apply(this.system);
+
+		final ActorRef client = this.system.actorOf(Props.create(Client.class), "client");
+		final ClientMsg chatMsg = new ClientMsg(client, 42, new ChatMsg("Hello everybody, how are you?"));
+		switch (this.message) {
+		case "SequenceNumberClientMsg":
+			this.messageObject = new SequenceNumberClientMsg(chatMsg, 1234);
+			break;
+		case "TimestampClientMsg":
+			this.messageObject = new TimestampClientMsg(chatMsg, 1234);
+			break;
+		case "MutualExclusionRequestMsg":
+			this.messageObject = new MutualExclusionRequestMsg(client, 1234);
+			break;
+		case "ClientLoginMsg":
+			this.messageObject = new ClientLoginMsg(client, "user");
+			break;
+		default:
+			final Map<ActorRef, String> clients = new HashMap<>();
+			for (int i = 0; i < 10; i++) {
+				clients.put(this.system.actorOf(Props.create(Client.class), "client" + i), "user" + i);
+			}
+			this.messageObject = new LoggedInClientsMsg(clients);
+			break;
+		}
+
+		final Serializer messageSerializer = this.serialization.findSerializerFor(this.messageObject);
+		this.serializerId = messageSerializer.identifier();
+		this.serializedMessage = messageSerializer.toBinary(this.messageObject);
+		System.out.println(this.message + " (" + this.serializer + "): " + this.serializedMessage.length + " bytes");
+	}
+
+	@TearDown(Level.Trial)
+	public void terminate() throws Exception {
+		Await.result(this.system.terminate(), Duration.Inf());
+	}
+
+	@Benchmark
+	public byte[] serialize() {
+		return this.serialization.serialize(this.messageObject).get();
+	}
+
+	@Benchmark
+	public Object deserialize() {
+		return this.serialization.deserialize(this.serializedMessage, this.serializerId, "").get();
+	}
+
+}
@@ -0,0 +1,87 @@
+package pcd.ass03.gameoflife.benchmarks;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Semaphore;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import pcd.ass03.gameoflife.actors.GridActor;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.model.SeedPattern;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * This report measures the heap retained by the cell actors engine for each cell, i.e. the actor, its mailbox
+ * and its share of the state of the grid and of the aggregators, on random grids of different sizes.
+ * From the bytes per cell it estimates the side of the biggest square grid that fits in the maximum heap.
+ * <p>
+ * Run it with {@code ./gradlew cellFootprint}; the sides of the grids can be passed as arguments.
+ *
+ */
+public final class CellFootprintReport {
+
+	private static final int[] DEFAULT_SIZES = { 100, 200, 400 };
+	private static final int GC_ROUNDS = 5;
+
+	private CellFootprintReport() {
+	}
+
+	/**
+	 * Prints the bytes retained for each cell, for each size of the grid.
+	 *
+	 * @param args
+	 * 		the sides of the grids to measure (100, 200 and 400 if not specified)
+	 * @throws Exception
+	 * 		if the actor system cannot be terminated
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int[] sizes = args.length > 0 ? new int[args.length] : DEFAULT_SIZES;
+		for (int i = 0; i < args.length; i++) {
+			sizes[i] = Integer.parseInt(args[i]);
+		}
+		final long maxHeap = Runtime.getRuntime().maxMemory();
+		System.out.println(String.format("Maximum heap: %d MB", maxHeap >> 20));
+
+		for (final int size : sizes) {
+			final ActorSystem system = ActorSystem.create("CellFootprint",
+					ConfigFactory.parseFile(new File("src/main/java/pcd/ass03/gameoflife/application.conf")).resolve());
+			final Semaphore computedGenerations = new Semaphore(0);
+			final ActorRef counter = system.actorOf(
+					Props.create(GenerationBenchmark.GenerationsCounter.class, computedGenerations), "view");
+			final ActorRef grid = system.actorOf(GridActor.props(), "grid");
+			final long baseline = usedHeap();
+
+			grid.tell(new GridActor.InitGridMsg(SeedPattern.RANDOM.createGrid(size, size, 0.3, 42),
+					EngineType.CELL_ACTORS, counter), ActorRef.noSender());
+			// The first results are sent once all the cells are created (their initial messages can still be pending)
+			computedGenerations.acquire();
+			grid.tell(new GridActor.StartGameMsg(), ActorRef.noSender());
+			computedGenerations.acquire();
+			grid.tell(new GridActor.PauseGameMsg(), ActorRef.noSender());
+			Thread.sleep(500);
+
+			final long bytesPerCell = (usedHeap() - baseline) / ((long) size * size);
+			System.out.println(String.format("%dx%d: %d bytes/cell, biggest grid for this heap about %dx%<d",
+					size, size, bytesPerCell, (long) Math.sqrt((maxHeap - baseline) / (double) bytesPerCell)));
+			Await.result(system.terminate(), Duration.Inf());
+		}
+	}
+
+	/*
+	 * Returns the heap in use after collecting the garbage.
+	 */
+	private static long usedHeap() {
+		final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < GC_ROUNDS; i++) {
+			memory.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+}
@@ -0,0 +1,97 @@
+package pcd.ass03.gameoflife.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import pcd.ass03.gameoflife.actors.GridActor;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.model.SeedPattern;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * This benchmark measures the memory allocated by the cell actors engine for each generation,
+ * with both the protocols of the cells, on random grids of different sizes.
+ * Each operation waits for the results of one generation, so the {@code gc.alloc.rate.norm}
+ * reported by the GC profiler (enabled in the build) is the number of bytes allocated per generation
+ * by all the actors, and the average time is the per-generation latency.
+ * <p>
+ * Run it with {@code ./gradlew jmh}; the other benchmarks can be excluded with the JMH {@code include} setting.
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CellProtocolBenchmark {
+
+	@Param({ "full", "change-driven" })
+	private String protocol;
+
+	@Param({ "50", "100", "200" })
+	private int size;
+
+	private ActorSystem system;
+	private ActorRef grid;
+	private Semaphore computedGenerations;
+
+
+	@Setup(Level.Trial)
+	public void startGame() throws InterruptedException {
+		this.system = ActorSystem.create("GameOfLifeBenchmark",
+				ConfigFactory.parseString("gameoflife.cell-protocol = \"" + this.protocol + "\"")
+						.withFallback(ConfigFactory.parseFile(new File("src/main/java/pcd/ass03/gameoflife/application.conf")))
+						.resolve());
+		this.computedGenerations = new Semaphore(0);
+		final ActorRef counter = this.system.actorOf(
+				Props.create(GenerationBenchmark.GenerationsCounter.class, this.computedGenerations), "view");
+		this.grid = this.system.actorOf(GridActor.props(), "grid");
+
+		this.grid.tell(new GridActor.InitGridMsg(
+				SeedPattern.RANDOM.createGrid(this.size, this.size, 0.3, 42),
+				EngineType.CELL_ACTORS, counter), ActorRef.noSender());
+		// Waits for the first generation, so the initialization is not measured
+		this.computedGenerations.acquire();
+		this.grid.tell(new GridActor.StartGameMsg(), ActorRef.noSender());
+	}
+
+	@Setup(Level.Iteration)
+	public void skipPendingGenerations() {
+		// The game is not stopped between iterations
+		this.computedGenerations.drainPermits();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopGame() throws Exception {
+		this.grid.tell(new GridActor.PauseGameMsg(), ActorRef.noSender());
+		Await.result(this.system.terminate(), Duration.Inf());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void generation() throws InterruptedException {
+		this.computedGenerations.acquire();
+	}
+
+}
@@ -0,0 +1,139 @@
+package pcd.ass03.gameoflife.benchmarks;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import pcd.ass03.gameoflife.actors.GridActor;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.model.SeedPattern;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * This benchmark sweeps the settings of the dispatchers of the actors (see dispatchers.conf):
+ * the parallelism factor and the throughput of the cell dispatcher, and the dispatcher of the view.
+ * Each operation waits for the results of one generation, so the throughput is in generations per second.
+ * <p>
+ * Run it with {@code ./gradlew jmh}, or run this class (with the JMH jar in the classpath) to sweep
+ * all the settings and print the best configuration for the processors of the machine.
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class DispatcherSweepBenchmark {
+
+	@Param({ "CELL_ACTORS", "TILE_ACTORS" })
+	private EngineType engine;
+
+	@Param({ "200" })
+	private int size;
+
+	@Param({ "0.5", "1.0", "2.0" })
+	private double parallelismFactor;
+
+	@Param({ "1", "5", "20", "100" })
+	private int throughput;
+
+	@Param({ "view-dispatcher", "view-pinned-dispatcher" })
+	private String viewDispatcher;
+
+	private ActorSystem system;
+	private ActorRef grid;
+	private Semaphore computedGenerations;
+
+
+	@Setup(Level.Trial)
+	public void startGame() throws InterruptedException {
+		this.system = ActorSystem.create("GameOfLifeBenchmark", ConfigFactory.parseString(
+				"cell-dispatcher.fork-join-executor.parallelism-factor = " + this.parallelismFactor + "\n"
+				+ "cell-dispatcher.throughput = " + this.throughput + "\n"
+				+ "akka.actor.deployment./view.dispatcher = " + this.viewDispatcher)
+				.withFallback(ConfigFactory.parseFile(new File("src/main/java/pcd/ass03/gameoflife/application.conf")))
+				.resolve());
+		this.computedGenerations = new Semaphore(0);
+		final ActorRef counter = this.system.actorOf(
+				Props.create(GenerationBenchmark.GenerationsCounter.class, this.computedGenerations), "view");
+		this.grid = this.system.actorOf(GridActor.props(), "grid");
+
+		this.grid.tell(new GridActor.InitGridMsg(
+				SeedPattern.RANDOM.createGrid(this.size, this.size, 0.3, 42),
+				this.engine, counter), ActorRef.noSender());
+		// Waits for the first generation, so the initialization is not measured
+		this.computedGenerations.acquire();
+		this.grid.tell(new GridActor.StartGameMsg(), ActorRef.noSender());
+	}
+
+	@Setup(Level.Iteration)
+	public void skipPendingGenerations() {
+		// The game is not stopped between iterations
+		this.computedGenerations.drainPermits();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopGame() throws Exception {
+		this.grid.tell(new GridActor.PauseGameMsg(), ActorRef.noSender());
+		Await.result(this.system.terminate(), Duration.Inf());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void generationsPerSecond() throws InterruptedException {
+		this.computedGenerations.acquire();
+	}
+
+	/**
+	 * Runs the whole sweep and prints, for each engine, the settings with the most generations per second.
+	 *
+	 * @param args
+	 * 		not used
+	 * @throws RunnerException
+	 * 		if the benchmark cannot be run
+	 */
+	public static void main(final String[] args) throws RunnerException {
+		final Collection<RunResult> results = new Runner(new OptionsBuilder()
+				.include(DispatcherSweepBenchmark.class.getSimpleName())
+				.build()).run();
+		System.out.println("Best settings for " + Runtime.getRuntime().availableProcessors() + " processors:");
+		for (final EngineType engine : EngineType.values()) {
+			results.stream()
+					.filter(result -> result.getParams().getParam("engine").equals(engine.name()))
+					.max(Comparator.comparingDouble(result -> result.getPrimaryResult().getScore()))
+					.ifPresent(best -> System.out.println(String.format("%s: parallelism-factor = %s, throughput = %s, view %s"
+							+ " (%.1f generations/s)", engine,
+							best.getParams().getParam("parallelismFactor"),
+							best.getParams().getParam("throughput"),
+							best.getParams().getParam("viewDispatcher"),
+							best.getPrimaryResult().getScore())));
+		}
+	}
+
+}
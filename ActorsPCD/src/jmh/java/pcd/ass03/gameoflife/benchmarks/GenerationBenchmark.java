@@ -0,0 +1,136 @@
+package pcd.ass03.gameoflife.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import pcd.ass03.gameoflife.actors.GridActor;
+import pcd.ass03.gameoflife.actors.ViewActor;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.model.SeedPattern;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * This benchmark lets a grid actor compute generations without any view, for each combination
+ * of engine, grid size and first generation, and measures how long each generation takes.
+ * Each operation waits for the results of one generation, so the throughput is in generations
+ * per second and the sample time is the per-generation latency.
+ * <p>
+ * Run it with {@code ./gradlew jmh}; a subset of the matrix can be selected with
+ * the JMH {@code -p} option (the cell engine on the biggest grids needs a large heap).
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GenerationBenchmark {
+
+	@Param({ "CELL_ACTORS", "TILE_ACTORS", "PARALLEL", "HASHLIFE" })
+	private EngineType engine;
+
+	@Param({ "100", "500", "1000", "2000" })
+	private int size;
+
+	/**
+	 * A {@link SeedPattern}, followed by the density for the random one.
+	 */
+	@Param({ "R_PENTOMINO", "ACORN", "GOSPER_GUN", "RANDOM:0.2", "RANDOM:0.5" })
+	private String seed;
+
+	private ActorSystem system;
+	private ActorRef grid;
+	private Semaphore computedGenerations;
+
+
+	/**
+	 * This actor takes the place of the view actor and only counts the generation results.
+	 */
+	public static class GenerationsCounter extends AbstractActor {
+
+		private final Semaphore computedGenerations;
+
+		public GenerationsCounter(final Semaphore computedGenerations) {
+			this.computedGenerations = computedGenerations;
+		}
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.match(ViewActor.GenerationResultsMsg.class, msg -> {
+						this.computedGenerations.release();
+						// The results are consumed immediately (credit-based buffer)
+						getSender().tell(new GridActor.GenerationCreditMsg(1), getSelf());
+					})
+					.build();
+		}
+	}
+
+
+	@Setup(Level.Trial)
+	public void startGame() throws InterruptedException {
+		final String[] seedParts = this.seed.split(":");
+		final double density = seedParts.length > 1 ? Double.parseDouble(seedParts[1]) : 0;
+
+		this.system = ActorSystem.create("GameOfLifeBenchmark",
+				ConfigFactory.parseFile(new File("src/main/java/pcd/ass03/gameoflife/application.conf")));
+		this.computedGenerations = new Semaphore(0);
+		final ActorRef counter = this.system.actorOf(Props.create(GenerationsCounter.class, this.computedGenerations), "view");
+		this.grid = this.system.actorOf(GridActor.props(), "grid");
+
+		this.grid.tell(new GridActor.InitGridMsg(
+				SeedPattern.valueOf(seedParts[0]).createGrid(this.size, this.size, density, 42),
+				this.engine, counter), ActorRef.noSender());
+		// Waits for the first generation, so the initialization is not measured
+		this.computedGenerations.acquire();
+		this.grid.tell(new GridActor.StartGameMsg(), ActorRef.noSender());
+	}
+
+	@Setup(Level.Iteration)
+	public void skipPendingGenerations() {
+		// The game is not stopped between iterations
+		this.computedGenerations.drainPermits();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopGame() throws Exception {
+		this.grid.tell(new GridActor.PauseGameMsg(), ActorRef.noSender());
+		Await.result(this.system.terminate(), Duration.Inf());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void generationsPerSecond() throws InterruptedException {
+		this.computedGenerations.acquire();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void generationLatency() throws InterruptedException {
+		this.computedGenerations.acquire();
+	}
+
+}
@@ -30,6 +30,13 @@ public final class ClientMsg implements Serializable {
 		return this.sender;
 	}
 	
+	/**
+	 * @return the number of the message, unique for its sender
+	 */
+	public int getMessageId() {
+		return this.messageId;
+	}
+	
 	/**
 	 * @return the message to deliver
 	 */
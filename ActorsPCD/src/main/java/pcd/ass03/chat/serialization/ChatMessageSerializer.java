@@ -0,0 +1,380 @@
+package pcd.ass03.chat.serialization;
+
+import java.io.NotSerializableException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import akka.actor.ActorRef;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.JSerializer;
+import akka.serialization.Serialization;
+import pcd.ass03.chat.messages.BroadcastMsg;
+import pcd.ass03.chat.messages.ClientMsg;
+import pcd.ass03.chat.messages.SequenceNumberClientMsg;
+import pcd.ass03.chat.messages.TimestampClientMsg;
+import pcd.ass03.chat.messages.client.BroadcastSendingRequestMsg;
+import pcd.ass03.chat.messages.client.ChatMsg;
+import pcd.ass03.chat.messages.client.ExistingClientStateMsg;
+import pcd.ass03.chat.messages.client.GotMutualExclusionAckMsg;
+import pcd.ass03.chat.messages.client.GotMutualExclusionMsg;
+import pcd.ass03.chat.messages.client.LoggedInClientsMsg;
+import pcd.ass03.chat.messages.client.LoggedOutClientMsg;
+import pcd.ass03.chat.messages.client.LostMutualExclusionAfterLogoutMsg;
+import pcd.ass03.chat.messages.client.LostMutualExclusionMsg;
+import pcd.ass03.chat.messages.client.MutualExclusionConsentMsg;
+import pcd.ass03.chat.messages.client.MutualExclusionRequestMsg;
+import pcd.ass03.chat.messages.client.NewLoggedInClientMsg;
+import pcd.ass03.chat.messages.register.ClientLoginMsg;
+import pcd.ass03.chat.messages.register.ClientLogoutMsg;
+import pcd.ass03.chat.messages.register.LoggedOutWithMutualExclusionMsg;
+
+/**
+ * Binary serializer for the messages of the chat, used instead of the Java serialization.</br>
+ * Each message starts with the varint id of its type, followed by its fields: the numbers are
+ * varints, the strings and the actor paths are UTF-8 bytes preceded by their length
+ * (-1 for a null string, 0 for a null actor reference, whose path length is written increased by 1).
+ * The paths of the actor references are computed and resolved only once, then they are cached.
+ */
+public final class ChatMessageSerializer extends JSerializer {
+	
+	private static final int IDENTIFIER = 7301;
+	private static final int MAX_CACHED_REFS = 1024;
+	private static final int NULL_STRING_LENGTH = -1;
+	
+	// Type ids (never change them, they are written on the wire)
+	private static final int CLIENT_MSG = 1;
+	private static final int TIMESTAMP_CLIENT_MSG = 2;
+	private static final int SEQUENCE_NUMBER_CLIENT_MSG = 3;
+	private static final int BROADCAST_SENDING_REQUEST_MSG = 4;
+	private static final int CHAT_MSG = 5;
+	private static final int EXISTING_CLIENT_STATE_MSG = 6;
+	private static final int GOT_MUTUAL_EXCLUSION_ACK_MSG = 7;
+	private static final int GOT_MUTUAL_EXCLUSION_MSG = 8;
+	private static final int LOGGED_IN_CLIENTS_MSG = 9;
+	private static final int LOGGED_OUT_CLIENT_MSG = 10;
+	private static final int LOST_MUTUAL_EXCLUSION_AFTER_LOGOUT_MSG = 11;
+	private static final int LOST_MUTUAL_EXCLUSION_MSG = 12;
+	private static final int MUTUAL_EXCLUSION_CONSENT_MSG = 13;
+	private static final int MUTUAL_EXCLUSION_REQUEST_MSG = 14;
+	private static final int NEW_LOGGED_IN_CLIENT_MSG = 15;
+	private static final int CLIENT_LOGIN_MSG = 16;
+	private static final int CLIENT_LOGOUT_MSG = 17;
+	private static final int LOGGED_OUT_WITH_MUTUAL_EXCLUSION_MSG = 18;
+	
+	private final ExtendedActorSystem system;
+	private final Map<ActorRef, byte[]> serializedPaths;
+	private final Map<String, ActorRef> resolvedRefs;
+	
+	public ChatMessageSerializer(final ExtendedActorSystem system) {
+		this.system = system;
+		this.serializedPaths = new ConcurrentHashMap<>();
+		this.resolvedRefs = new ConcurrentHashMap<>();
+	}
+	
+	@Override
+	public int identifier() {
+		return IDENTIFIER;
+	}
+	
+	@Override
+	public boolean includeManifest() {
+		// The type is written inside the message
+		return false;
+	}
+	
+	@Override
+	public byte[] toBinary(final Object obj) {
+		final Output output = new Output();
+		write(output, obj);
+		return output.toByteArray();
+	}
+	
+	@Override
+	public Object fromBinaryJava(final byte[] bytes, final Class<?> manifest) {
+		try {
+			final Input input = new Input(bytes);
+			final Object message = read(input);
+			if (input.position != bytes.length) {
+				throw new NotSerializableException("Unexpected bytes after the message");
+			}
+			return message;
+		} catch (final NotSerializableException | ArrayIndexOutOfBoundsException | ClassCastException e) {
+			throw new IllegalArgumentException("Cannot deserialize the chat message: " + e.getMessage(), e);
+		}
+	}
+	
+	/*
+	 * Writes the type id and the fields of a message.
+	 */
+	private void write(final Output output, final Object obj) {
+		if (obj instanceof ClientMsg) {
+			final ClientMsg msg = (ClientMsg) obj;
+			output.writeVarint(CLIENT_MSG);
+			writeRef(output, msg.getSender());
+			output.writeVarint(zigZag(msg.getMessageId()));
+			write(output, msg.getMessage());
+		} else if (obj instanceof TimestampClientMsg) {
+			final TimestampClientMsg msg = (TimestampClientMsg) obj;
+			output.writeVarint(TIMESTAMP_CLIENT_MSG);
+			output.writeVarint(zigZag(msg.getLogicalTime()));
+			write(output, msg.getMessage());
+		} else if (obj instanceof SequenceNumberClientMsg) {
+			final SequenceNumberClientMsg msg = (SequenceNumberClientMsg) obj;
+			output.writeVarint(SEQUENCE_NUMBER_CLIENT_MSG);
+			output.writeVarint(zigZag(msg.getSequenceNumber()));
+			write(output, msg.getMessage());
+		} else if (obj instanceof BroadcastSendingRequestMsg) {
+			output.writeVarint(BROADCAST_SENDING_REQUEST_MSG);
+			write(output, ((BroadcastSendingRequestMsg) obj).getMessage());
+		} else if (obj instanceof ChatMsg) {
+			output.writeVarint(CHAT_MSG);
+			output.writeString(((ChatMsg) obj).getContent());
+		} else if (obj instanceof ExistingClientStateMsg) {
+			final ExistingClientStateMsg msg = (ExistingClientStateMsg) obj;
+			output.writeVarint(EXISTING_CLIENT_STATE_MSG);
+			writeRef(output, msg.getSender());
+			output.writeVarint(msg.isClientInCriticalSection() ? 1 : 0);
+		} else if (obj instanceof GotMutualExclusionAckMsg) {
+			output.writeVarint(GOT_MUTUAL_EXCLUSION_ACK_MSG);
+		} else if (obj instanceof GotMutualExclusionMsg) {
+			output.writeVarint(GOT_MUTUAL_EXCLUSION_MSG);
+			writeRef(output, ((GotMutualExclusionMsg) obj).getSender());
+		} else if (obj instanceof LoggedInClientsMsg) {
+			final Map<ActorRef, String> clientRefs = ((LoggedInClientsMsg) obj).getClientRefs();
+			output.writeVarint(LOGGED_IN_CLIENTS_MSG);
+			output.writeVarint(clientRefs.size());
+			clientRefs.forEach((clientRef, username) -> {
+				writeRef(output, clientRef);
+				output.writeString(username);
+			});
+		} else if (obj instanceof LoggedOutClientMsg) {
+			output.writeVarint(LOGGED_OUT_CLIENT_MSG);
+			writeRef(output, ((LoggedOutClientMsg) obj).getClientRef());
+		} else if (obj instanceof LostMutualExclusionAfterLogoutMsg) {
+			output.writeVarint(LOST_MUTUAL_EXCLUSION_AFTER_LOGOUT_MSG);
+			output.writeString(((LostMutualExclusionAfterLogoutMsg) obj).getClientUsername());
+		} else if (obj instanceof LostMutualExclusionMsg) {
+			output.writeVarint(LOST_MUTUAL_EXCLUSION_MSG);
+		} else if (obj instanceof MutualExclusionConsentMsg) {
+			output.writeVarint(MUTUAL_EXCLUSION_CONSENT_MSG);
+		} else if (obj instanceof MutualExclusionRequestMsg) {
+			final MutualExclusionRequestMsg msg = (MutualExclusionRequestMsg) obj;
+			output.writeVarint(MUTUAL_EXCLUSION_REQUEST_MSG);
+			writeRef(output, msg.getSender());
+			output.writeVarint(zigZag(msg.getTimestamp()));
+		} else if (obj instanceof NewLoggedInClientMsg) {
+			final NewLoggedInClientMsg msg = (NewLoggedInClientMsg) obj;
+			output.writeVarint(NEW_LOGGED_IN_CLIENT_MSG);
+			writeRef(output, msg.getClientRef());
+			output.writeString(msg.getUsername());
+		} else if (obj instanceof ClientLoginMsg) {
+			final ClientLoginMsg msg = (ClientLoginMsg) obj;
+			output.writeVarint(CLIENT_LOGIN_MSG);
+			writeRef(output, msg.getClientRef());
+			output.writeString(msg.getUsername());
+		} else if (obj instanceof ClientLogoutMsg) {
+			output.writeVarint(CLIENT_LOGOUT_MSG);
+			writeRef(output, ((ClientLogoutMsg) obj).getClientRef());
+		} else if (obj instanceof LoggedOutWithMutualExclusionMsg) {
+			output.writeVarint(LOGGED_OUT_WITH_MUTUAL_EXCLUSION_MSG);
+			output.writeString(((LoggedOutWithMutualExclusionMsg) obj).getClientUsername());
+		} else {
+			throw new IllegalArgumentException("Cannot serialize " + (obj == null ? "null" : obj.getClass().getName()));
+		}
+	}
+	
+	/*
+	 * Reads a message written by write().
+	 */
+	private Object read(final Input input) throws NotSerializableException {
+		final int type = input.readVarint();
+		switch (type) {
+		case CLIENT_MSG:
+			return new ClientMsg(readRef(input), unZigZag(input.readVarint()), (BroadcastMsg) read(input));
+		case TIMESTAMP_CLIENT_MSG: {
+			final int logicalTime = unZigZag(input.readVarint());
+			return new TimestampClientMsg((ClientMsg) read(input), logicalTime);
+		}
+		case SEQUENCE_NUMBER_CLIENT_MSG: {
+			final int sequenceNumber = unZigZag(input.readVarint());
+			return new SequenceNumberClientMsg((ClientMsg) read(input), sequenceNumber);
+		}
+		case BROADCAST_SENDING_REQUEST_MSG:
+			return new BroadcastSendingRequestMsg((BroadcastMsg) read(input));
+		case CHAT_MSG:
+			return new ChatMsg(input.readString());
+		case EXISTING_CLIENT_STATE_MSG:
+			return new ExistingClientStateMsg(readRef(input), input.readVarint() != 0);
+		case GOT_MUTUAL_EXCLUSION_ACK_MSG:
+			return new GotMutualExclusionAckMsg();
+		case GOT_MUTUAL_EXCLUSION_MSG:
+			return new GotMutualExclusionMsg(readRef(input));
+		case LOGGED_IN_CLIENTS_MSG: {
+			final int nClients = input.readVarint();
+			final Map<ActorRef, String> clientRefs = new HashMap<>();
+			for (int i = 0; i < nClients; i++) {
+				final ActorRef clientRef = readRef(input);
+				clientRefs.put(clientRef, input.readString());
+			}
+			return new LoggedInClientsMsg(clientRefs);
+		}
+		case LOGGED_OUT_CLIENT_MSG:
+			return new LoggedOutClientMsg(readRef(input));
+		case LOST_MUTUAL_EXCLUSION_AFTER_LOGOUT_MSG:
+			return new LostMutualExclusionAfterLogoutMsg(input.readString());
+		case LOST_MUTUAL_EXCLUSION_MSG:
+			return new LostMutualExclusionMsg();
+		case MUTUAL_EXCLUSION_CONSENT_MSG:
+			return new MutualExclusionConsentMsg();
+		case MUTUAL_EXCLUSION_REQUEST_MSG:
+			return new MutualExclusionRequestMsg(readRef(input), unZigZag(input.readVarint()));
+		case NEW_LOGGED_IN_CLIENT_MSG:
+			return new NewLoggedInClientMsg(readRef(input), input.readString());
+		case CLIENT_LOGIN_MSG:
+			return new ClientLoginMsg(readRef(input), input.readString());
+		case CLIENT_LOGOUT_MSG:
+			return new ClientLogoutMsg(readRef(input));
+		case LOGGED_OUT_WITH_MUTUAL_EXCLUSION_MSG:
+			return new LoggedOutWithMutualExclusionMsg(input.readString());
+		default:
+			throw new NotSerializableException("Unknown chat message type: " + type);
+		}
+	}
+	
+	/*
+	 * Writes the full path of an actor reference (with the address of this system if it is local).
+	 */
+	private void writeRef(final Output output, final ActorRef ref) {
+		if (ref == null) {
+			output.writeVarint(0);
+			return;
+		}
+		byte[] path = this.serializedPaths.get(ref);
+		if (path == null) {
+			path = Serialization.serializedActorPath(ref).getBytes(StandardCharsets.UTF_8);
+			if (this.serializedPaths.size() >= MAX_CACHED_REFS) {
+				this.serializedPaths.clear();
+			}
+			this.serializedPaths.put(ref, path);
+		}
+		output.writeVarint(path.length + 1);
+		output.writeBytes(path);
+	}
+	
+	/*
+	 * Reads an actor reference written by writeRef().
+	 */
+	private ActorRef readRef(final Input input) {
+		final int length = input.readVarint();
+		if (length == 0) {
+			return null;
+		}
+		final String path = input.readString(length - 1);
+		ActorRef ref = this.resolvedRefs.get(path);
+		if (ref == null) {
+			ref = this.system.provider().resolveActorRef(path);
+			if (this.resolvedRefs.size() >= MAX_CACHED_REFS) {
+				this.resolvedRefs.clear();
+			}
+			this.resolvedRefs.put(path, ref);
+		}
+		return ref;
+	}
+	
+	/*
+	 * Maps the signed integers to unsigned ones, so that small negative numbers have short varints.
+	 */
+	private static int zigZag(final int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+	
+	private static int unZigZag(final int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * Growable buffer where a message is written.
+	 */
+	private static final class Output {
+		private byte[] bytes = new byte[64];
+		private int size = 0;
+		
+		void writeVarint(final int value) {
+			ensureCapacity(5);
+			int remaining = value;
+			while ((remaining & ~0x7F) != 0) {
+				this.bytes[this.size++] = (byte) ((remaining & 0x7F) | 0x80);
+				remaining >>>= 7;
+			}
+			this.bytes[this.size++] = (byte) remaining;
+		}
+		
+		void writeBytes(final byte[] data) {
+			ensureCapacity(data.length);
+			System.arraycopy(data, 0, this.bytes, this.size, data.length);
+			this.size += data.length;
+		}
+		
+		void writeString(final String value) {
+			if (value == null) {
+				writeVarint(NULL_STRING_LENGTH);
+				return;
+			}
+			final byte[] data = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(data.length);
+			writeBytes(data);
+		}
+		
+		byte[] toByteArray() {
+			return Arrays.copyOf(this.bytes, this.size);
+		}
+		
+		private void ensureCapacity(final int nBytes) {
+			if (this.size + nBytes > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + nBytes));
+			}
+		}
+	}
+	
+	/**
+	 * Reader of a serialized message.
+	 */
+	private static final class Input {
+		private final byte[] bytes;
+		private int position = 0;
+		
+		Input(final byte[] bytes) {
+			this.bytes = bytes;
+		}
+		
+		int readVarint() {
+			int value = 0;
+			int shift = 0;
+			byte current;
+			do {
+				current = this.bytes[this.position++];
+				value |= (current & 0x7F) << shift;
+				shift += 7;
+			} while ((current & 0x80) != 0 && shift < 35);
+			return value;
+		}
+		
+		String readString() {
+			final int length = readVarint();
+			return length == NULL_STRING_LENGTH ? null : readString(length);
+		}
+		
+		String readString(final int length) {
+			if (length < 0 || this.position + length > this.bytes.length) {
+				throw new ArrayIndexOutOfBoundsException("String longer than the message");
+			}
+			final String value = new String(this.bytes, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return value;
+		}
+	}
+	
+}
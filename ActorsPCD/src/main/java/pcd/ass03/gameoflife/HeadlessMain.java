@@ -0,0 +1,155 @@
+package pcd.ass03.gameoflife;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import pcd.ass03.gameoflife.actors.GridActor;
+import pcd.ass03.gameoflife.actors.StatsActor;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.metrics.GameMetrics;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.PatternReader;
+import pcd.ass03.gameoflife.model.SeedPattern;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Runs the game without user interface, writing the statistics of each generation
+ * to a CSV or JSON file (depending on its extension) and printing a summary at the end.
+ * <p>
+ * Usage: {@code HeadlessMain [--width 500] [--height 500] [--engine TILE_ACTORS] [--pattern RANDOM]
+ * [--density 0.5] [--seed 42] [--generations 1000] [--output stats.csv] [--config headless.conf]}
+ * <p>
+ * The pattern is either a {@link SeedPattern} or a pattern file (RLE, Life 1.06 or checkpoint);
+ * for a file, the grid takes the dimension of the pattern unless it is specified.
+ *
+ */
+public class HeadlessMain {
+
+	private static final String DEFAULT_CONFIG = "src/main/java/pcd/ass03/gameoflife/headless.conf";
+	private static final List<String> OPTIONS = Arrays.asList(
+			"width", "height", "engine", "pattern", "density", "seed", "generations", "output", "config");
+
+	public static void main(final String[] args) throws Exception {
+		final Map<String, String> options = new HashMap<>();
+		options.put("engine", EngineType.TILE_ACTORS.name());
+		options.put("pattern", SeedPattern.RANDOM.name());
+		options.put("density", "0.5");
+		options.put("seed", "42");
+		options.put("generations", "1000");
+		options.put("output", "stats.csv");
+		options.put("config", DEFAULT_CONFIG);
+		for (int i = 0; i < args.length; i += 2) {
+			final String option = args[i].startsWith("--") ? args[i].substring(2) : "";
+			if (!OPTIONS.contains(option) || i + 1 >= args.length) {
+				exitWithUsage("Invalid option: " + args[i]);
+			}
+			options.put(option, args[i + 1]);
+		}
+
+		// Every option is checked before the actor system is created, since its threads would keep the JVM alive
+		final boolean isSeedPattern = Arrays.stream(SeedPattern.values()).anyMatch(p -> p.name().equals(options.get("pattern")));
+		final String defaultWidth = isSeedPattern ? "500" : "0";
+		final EngineType engine;
+		final int width;
+		final int height;
+		final double density;
+		final long seed;
+		final long nGenerations;
+		try {
+			engine = Arrays.stream(EngineType.values()).filter(type -> type.name().equals(options.get("engine"))).findFirst()
+					.orElseThrow(() -> new IllegalArgumentException("Invalid engine: " + options.get("engine")));
+			// A pattern file gives its own dimension to the grid when it is 0
+			width = parseOption("width", options.getOrDefault("width", defaultWidth), Integer::parseInt, isSeedPattern ? 1 : 0);
+			height = parseOption("height", options.getOrDefault("height", options.getOrDefault("width", defaultWidth)),
+					Integer::parseInt, isSeedPattern ? 1 : 0);
+			density = parseOption("density", options.get("density"), Double::parseDouble, 0.0);
+			if (!(density <= 1)) {
+				throw new IllegalArgumentException("Invalid density: " + options.get("density") + " (from 0 to 1)");
+			}
+			seed = parseOption("seed", options.get("seed"), Long::parseLong, Long.MIN_VALUE);
+			nGenerations = parseOption("generations", options.get("generations"), Long::parseLong, 1L);
+		} catch (final IllegalArgumentException e) {
+			exitWithUsage(e.getMessage());
+			return;
+		}
+		final BitGrid firstGeneration;
+		try {
+			firstGeneration = isSeedPattern
+					? SeedPattern.valueOf(options.get("pattern")).createGrid(width, height, density, seed)
+					: PatternReader.read(Paths.get(options.get("pattern")), width, height);
+		} catch (final IOException | IllegalArgumentException e) {
+			System.err.println("Cannot load the pattern: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		final String outputFile = options.get("output");
+		final StatsActor.Format format = outputFile.toLowerCase().endsWith(".json") ? StatsActor.Format.JSON : StatsActor.Format.CSV;
+
+		final Writer output;
+		try {
+			output = new BufferedWriter(new FileWriter(outputFile));
+		} catch (final IOException e) {
+			System.err.println("Cannot write the statistics: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		final Config config = ConfigFactory.parseFile(new File(options.get("config")));
+		final ActorSystem system = ActorSystem.create("GameOfLifeSystem", config);
+		GameMetrics.register();
+		final ActorRef gridActor = system.actorOf(GridActor.props(), "grid");
+		final ActorRef statsActor = system.actorOf(StatsActor.props(gridActor, nGenerations, output, format, System.out),
+				"stats");
+
+		gridActor.tell(new GridActor.InitGridMsg(firstGeneration, engine, statsActor), ActorRef.noSender());
+
+		// The stats actor terminates the system after the last generation
+		Await.result(system.whenTerminated(), Duration.Inf());
+	}
+
+	/*
+	 * Parses the value of a numeric option, which cannot be lower than the specified minimum.
+	 */
+	private static <T extends Comparable<T>> T parseOption(final String option, final String value,
+			final Function<String, T> parser, final T minimum) {
+		final T number;
+		try {
+			number = parser.apply(value);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid " + option + ": " + value);
+		}
+		if (number.compareTo(minimum) < 0) {
+			throw new IllegalArgumentException("Invalid " + option + ": " + value + " (at least " + minimum + ")");
+		}
+		return number;
+	}
+
+	/*
+	 * Prints the error and the accepted options, then exits with an error status.
+	 */
+	private static void exitWithUsage(final String error) {
+		System.err.println(error);
+		System.err.println("Options: --" + String.join(" <value>, --", OPTIONS) + " <value>");
+		System.err.println("Engines: " + Arrays.stream(EngineType.values()).map(Enum::name).collect(Collectors.joining(", ")));
+		System.err.println("Patterns: " + Arrays.stream(SeedPattern.values()).map(Enum::name).collect(Collectors.joining(", "))
+				+ " or a pattern file");
+		System.exit(1);
+	}
+
+}
@@ -10,19 +10,27 @@ import akka.actor.ActorSystem;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import pcd.ass03.gameoflife.actors.GridActor;
+import pcd.ass03.gameoflife.actors.HistoryActor;
 import pcd.ass03.gameoflife.actors.ViewActor;
+import pcd.ass03.gameoflife.metrics.GameMetrics;
 import pcd.ass03.gameoflife.view.View;
 import pcd.ass03.gameoflife.view.ViewImpl;
 
 public class Main extends Application {
 	
+	private static final String DEFAULT_CONFIG = "src/main/java/pcd/ass03/gameoflife/application.conf";
+	
 	@Override
 	public void start(final Stage primaryStage) {
 		final View view = new ViewImpl(primaryStage);
-		final Config config = ConfigFactory.parseFile(new File("src/main/java/pcd/ass03/gameoflife/application.conf"));
+		// The configuration can be specified as argument (e.g. distributed.conf, or metrics.conf to count the messages)
+		final String configFile = getParameters().getRaw().isEmpty() ? DEFAULT_CONFIG : getParameters().getRaw().get(0);
+		final Config config = ConfigFactory.parseFile(new File(configFile));
 		final ActorSystem system = ActorSystem.create("GameOfLifeSystem", config);
-		final ActorRef viewActor = system.actorOf(ViewActor.props(view), "view");
-		final ActorRef gridActor = system.actorOf(GridActor.props(), "grid");
+		GameMetrics.register();
+		final ActorRef historyActor = system.actorOf(HistoryActor.props(), "history");
+		final ActorRef viewActor = system.actorOf(ViewActor.props(view, historyActor), "view");
+		final ActorRef gridActor = system.actorOf(GridActor.props(historyActor), "grid");
 		
 		view.setGridActor(gridActor);
 		view.setViewActor(viewActor);
@@ -0,0 +1,30 @@
+package pcd.ass03.gameoflife;
+
+import java.io.File;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorSystem;
+import pcd.ass03.gameoflife.metrics.GameMetrics;
+
+/**
+ * Starts a worker system, where a grid configured with its address deploys part of the tiles.
+ * <p>
+ * Usage: {@code WorkerMain [port]}
+ *
+ */
+public class WorkerMain {
+
+	private static final String WORKER_SYSTEM = "GameOfLifeWorker";
+
+	public static void main(final String[] args) {
+		Config config = ConfigFactory.parseFile(new File("src/main/java/pcd/ass03/gameoflife/worker.conf"));
+		if (args.length > 0) {
+			config = ConfigFactory.parseString("akka.remote.netty.tcp.port = " + Integer.parseInt(args[0])).withFallback(config);
+		}
+		ActorSystem.create(WORKER_SYSTEM, config);
+		GameMetrics.register();
+	}
+
+}
@@ -0,0 +1,214 @@
+package pcd.ass03.gameoflife.actors;
+
+import java.util.Arrays;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * This actor collects the next states of the cells of a band of rows of the grid and sends them
+ * to the grid as a single message for each generation, containing only the indices of the changed cells.
+ * It also forwards to its cells the request of the grid to compute a generation.
+ * In this way the grid sends and receives one message for each band instead of one for each cell.
+ *
+ */
+public class AggregatorActor extends AbstractActor {
+
+	private static final int MAX_EXPECTED_CHANGES = 8;
+
+	private final int width;
+	private final int firstIndex;
+	private final int nCells;
+	private ActorRef[] cells;
+	private final CellActor.ComputeChangesMsg[] computeChangesMsgs;
+	private int nExpectedCells;
+	private int nReportedCells;
+	private int[] changedCells;
+	private int nChangedCells;
+
+	private final LoggingAdapter log;
+
+
+	/**
+	 * This message contains the next state of a cell with a certain
+	 * position, for the current generation that is being computed.
+	 */
+	public static final class CellNextStateMsg {
+		private final int x;
+		private final int y;
+		private final boolean state;
+		private final boolean isChanged;
+
+		public CellNextStateMsg(final int x, final int y, final boolean state, final boolean isChanged) {
+			this.x = x;
+			this.y = y;
+			this.state = state;
+			this.isChanged = isChanged;
+		}
+
+		public int getCellX() {
+			return this.x;
+		}
+
+		public int getCellY() {
+			return this.y;
+		}
+
+		public boolean getCellState() {
+			return this.state;
+		}
+
+		public boolean isCellStateChanged() {
+			return this.isChanged;
+		}
+	}
+
+	/**
+	 * This message contains the references to the cells of the band, by row-major order.
+	 */
+	public static final class CellsMsg {
+		private final ActorRef[] cells;
+
+		public CellsMsg(final ActorRef[] cells) {
+			this.cells = cells;
+		}
+
+		public ActorRef[] getCells() {
+			return this.cells;
+		}
+	}
+
+	/**
+	 * This message requests the computation of the specified generation to all the cells of the band.
+	 * The same instance is sent to all the aggregators.
+	 */
+	public static final class ComputeBandMsg {
+		private final int generation;
+
+		public ComputeBandMsg(final int generation) {
+			this.generation = generation;
+		}
+
+		public int getGeneration() {
+			return this.generation;
+		}
+	}
+
+	/**
+	 * This message requests the computation of the specified generation only to some cells of the band
+	 * (change-driven mode), each with the number of neighbors changes it must receive before computing.
+	 */
+	public static final class ComputeActiveCellsMsg {
+		private final int generation;
+		private final int[] activeCells;
+		private final int[] expectedChanges;
+
+		public ComputeActiveCellsMsg(final int generation, final int[] activeCells, final int[] expectedChanges) {
+			this.generation = generation;
+			this.activeCells = activeCells;
+			this.expectedChanges = expectedChanges;
+		}
+
+		public int getGeneration() {
+			return this.generation;
+		}
+
+		public int[] getActiveCells() {
+			return this.activeCells;
+		}
+
+		public int[] getExpectedChanges() {
+			return this.expectedChanges;
+		}
+	}
+
+
+	/**
+	 * Creates Props for an aggregator actor.
+	 *
+	 * @param width
+	 * 		the number of columns of the grid
+	 * @param firstIndex
+	 * 		the row-major index inside the grid of the first cell of the band
+	 * @param nCells
+	 * 		the number of cells of the band
+	 * @return a Props for creating aggregator actor, which can then be further configured
+	 */
+	public static Props props(final int width, final int firstIndex, final int nCells) {
+		return Props.create(AggregatorActor.class, width, firstIndex, nCells);
+	}
+
+	/**
+	 * Creates an aggregator actor.
+	 *
+	 * @param width
+	 * 		the number of columns of the grid
+	 * @param firstIndex
+	 * 		the row-major index inside the grid of the first cell of the band
+	 * @param nCells
+	 * 		the number of cells of the band
+	 */
+	public AggregatorActor(final int width, final int firstIndex, final int nCells) {
+		this.width = width;
+		this.firstIndex = firstIndex;
+		this.nCells = nCells;
+		this.cells = new ActorRef[0];
+		this.computeChangesMsgs = new CellActor.ComputeChangesMsg[MAX_EXPECTED_CHANGES + 1];
+		this.nExpectedCells = nCells;
+		this.nReportedCells = 0;
+		this.changedCells = new int[Math.min(nCells, 64)];
+		this.nChangedCells = 0;
+
+		this.log = Logging.getLogger(getContext().getSystem(), this);
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(CellsMsg.class, msg -> this.cells = msg.getCells())
+				.match(ComputeBandMsg.class, msg -> {
+					// All the cells of the band share the same message
+					final CellActor.ComputeMsg computeMsg = new CellActor.ComputeMsg(msg.getGeneration(), getSelf());
+					this.nExpectedCells = this.nCells;
+					for (final ActorRef cell : this.cells) {
+						cell.tell(computeMsg, ActorRef.noSender());
+					}
+				})
+				.match(ComputeActiveCellsMsg.class, msg -> {
+					// The cells expecting the same number of changes share the same message
+					Arrays.fill(this.computeChangesMsgs, null);
+					this.nExpectedCells = msg.getActiveCells().length;
+					for (int i = 0; i < msg.getActiveCells().length; i++) {
+						final int nExpectedChanges = msg.getExpectedChanges()[i];
+						if (this.computeChangesMsgs[nExpectedChanges] == null) {
+							this.computeChangesMsgs[nExpectedChanges] =
+									new CellActor.ComputeChangesMsg(msg.getGeneration(), nExpectedChanges, getSelf());
+						}
+						this.cells[msg.getActiveCells()[i] - this.firstIndex].tell(this.computeChangesMsgs[nExpectedChanges],
+								ActorRef.noSender());
+					}
+				})
+				.match(CellNextStateMsg.class, msg -> {
+					if (msg.isCellStateChanged()) {
+						if (this.nChangedCells == this.changedCells.length) {
+							this.changedCells = Arrays.copyOf(this.changedCells, this.changedCells.length * 2);
+						}
+						this.changedCells[this.nChangedCells++] = msg.getCellY() * this.width + msg.getCellX();
+					}
+					// Once all the cells of the band are computed, the grid receives their changes together
+					this.nReportedCells++;
+					if (this.nReportedCells == this.nExpectedCells) {
+						getContext().getParent().tell(new GridActor.CellsNextStatesMsg(
+								Arrays.copyOf(this.changedCells, this.nChangedCells), this.nReportedCells), getSelf());
+						this.nReportedCells = 0;
+						this.nChangedCells = 0;
+					}
+				})
+				.matchAny(msg -> this.log.info("Received unknown message: " + msg))
+				.build();
+	}
+
+}
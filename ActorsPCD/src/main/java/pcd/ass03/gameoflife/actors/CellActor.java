@@ -1,49 +1,57 @@
 package pcd.ass03.gameoflife.actors;
 
-import java.awt.Point;
-import java.util.HashSet;
-import java.util.Set;
-
-import akka.actor.AbstractActorWithStash;
+import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.event.Logging;
-import akka.event.LoggingAdapter;
 
 /**
  * This actor represents a cell for the Conway's Game Of Life.
- * With the adopted solution, the generation completion requires N_NEIGHBOURS + 1 messages for each cell.
+ * With the adopted solution, the generation completion requires N_NEIGHBOURS + 2 messages for each cell.
+ * In change-driven mode, instead, a cell notifies its neighbours only when its state flips and it is
+ * activated by the grid only if it or one of its neighbours has changed in the previous generation.
+ * <p>
+ * All the messages of a generation carry its number, and the neighbors messages are counted separately
+ * for the two generations that can overlap (the one being computed and the next one), so messages
+ * arrived in advance are applied directly, without stashing them and without changing behavior.
+ * <p>
+ * A grid can have millions of cells, so their state is kept small: the neighbors are in an array
+ * and the messages that do not depend on the cell (initial states) are shared.
  * 
  */
-public class CellActor extends AbstractActorWithStash {
+public class CellActor extends AbstractActor {
+	
+	private static final int NO_GENERATION = -1;
 	
 	private final int x;
 	private final int y;
-	private final Set<ActorRef> neighbours;
+	private ActorRef[] neighbours;
 	private boolean state;
-	private boolean nextState;
 	private int aliveNeighbours;
-	private int nextAliveNeighbours;
+	private boolean stateSet;
+	private int nArrivedNeighboursStates;
 	
-	private boolean stateChanged;
-	private int nArrivedNextStateNeighbours;
-
-	private final LoggingAdapter log;
-	private Receive initializingBehavior;
-	private Receive activeBehavior;
+	private final boolean changeDriven;
+	// Messages of the neighbors about a generation are consumed in the next one, so they are kept separated by parity
+	private final int[] neighboursChanges;
+	private final int[] nArrivedNeighboursMsgs;
+	private int pendingGeneration;
+	private int nPendingExpectedMsgs;
+	private ActorRef pendingSender;
 	
 	
 	/**
-	 * This message allows to define the neighbors of the cell.
+	 * This message allows to define the neighbors of the cell, each appearing once.
+	 * The array is not copied, so it must not be modified after sending the message.
 	 */
 	public static final class NeighboursMsg {
-		private final Set<ActorRef> neighbours;
+		private final ActorRef[] neighbours;
 		
-		public NeighboursMsg(final Set<ActorRef> neighbours) {
-			this.neighbours = new HashSet<>(neighbours);
+		public NeighboursMsg(final ActorRef[] neighbours) {
+			this.neighbours = neighbours;
 		}
 		
-		public Set<ActorRef> getNeighbours() {
+		public ActorRef[] getNeighbours() {
 			return this.neighbours;
 		}
 	}
@@ -52,65 +60,145 @@ public class CellActor extends AbstractActorWithStash {
 	 * This message allows to set the cell state during the initialization.
 	 */
 	public static final class SetStateMsg {
+		private static final SetStateMsg ALIVE = new SetStateMsg(true);
+		private static final SetStateMsg DEAD = new SetStateMsg(false);
+		
 		private final boolean state;
 		
 		public SetStateMsg(final boolean state) {
 			this.state = state;
 		}
 		
+		/**
+		 * @param state
+		 * 		the state of the cell
+		 * @return the shared message with the specified state
+		 */
+		public static SetStateMsg of(final boolean state) {
+			return state ? ALIVE : DEAD;
+		}
+		
 		public boolean getState() {
 			return this.state;
 		}
 	}
 	
 	/**
-	 * This message allows to prepare a new generation.
-	 *
+	 * This message requests the cell computation for the specified generation.
 	 */
-	public static final class PrepareNextGenerationMsg { }
+	public static final class ComputeMsg {
+		private final int generation;
+		private final ActorRef sender;
+		
+		public ComputeMsg(final int generation, final ActorRef sender) {
+			this.generation = generation;
+			this.sender = sender;
+		}
+		
+		public int getGeneration() {
+			return this.generation;
+		}
+		
+		public ActorRef getSender() {
+			return this.sender;
+		}
+	}
 	
 	/**
-	 * This message requests the cell computation for the current generation.
+	 * This message requests the cell computation for the specified generation, in change-driven mode.
+	 * It contains the number of neighbors changes (notified during the previous generation)
+	 * that must be received before computing.
 	 */
-	public static final class ComputeMsg {
+	public static final class ComputeChangesMsg {
+		private final int generation;
+		private final int nExpectedChanges;
 		private final ActorRef sender;
 		
-		public ComputeMsg(final ActorRef sender) {
+		public ComputeChangesMsg(final int generation, final int nExpectedChanges, final ActorRef sender) {
+			this.generation = generation;
+			this.nExpectedChanges = nExpectedChanges;
 			this.sender = sender;
 		}
 		
+		public int getGeneration() {
+			return this.generation;
+		}
+		
+		public int getExpectedChanges() {
+			return this.nExpectedChanges;
+		}
+		
 		public ActorRef getSender() {
 			return this.sender;
 		}
 	}
 	
+	/**
+	 * This message represents the state flip of a neighbor cell during a generation, in change-driven mode.
+	 */
+	public static final class NeighbourChangedMsg {
+		private final int generation;
+		private final boolean newState;
+		
+		public NeighbourChangedMsg(final int generation, final boolean newState) {
+			this.generation = generation;
+			this.newState = newState;
+		}
+		
+		public int getGeneration() {
+			return this.generation;
+		}
+		
+		public boolean getNeighbourNewState() {
+			return this.newState;
+		}
+	}
+	
 	/**
 	 * This message represents the state of a neighbor cell.
 	 */
 	public static final class NeighbourStateMsg {
+		private static final NeighbourStateMsg ALIVE = new NeighbourStateMsg(true);
+		private static final NeighbourStateMsg DEAD = new NeighbourStateMsg(false);
+		
 		private final boolean neighbourState;
 		
 		public NeighbourStateMsg(final boolean neighbourState) {
 			this.neighbourState = neighbourState;
 		}
 		
+		/**
+		 * @param neighbourState
+		 * 		the state of the neighbor
+		 * @return the shared message with the specified state
+		 */
+		public static NeighbourStateMsg of(final boolean neighbourState) {
+			return neighbourState ? ALIVE : DEAD;
+		}
+		
 		public boolean getNeighbourState() {
 			return this.neighbourState;
 		}
 	}
 
 	/**
-	 * This message represents the state informations of a neighbor cell after its computation.
+	 * This message represents the state informations of a neighbor cell after the computation of a generation.
 	 */
 	public static final class NeighbourNextStateMsg {
+		private final int generation;
 		private final boolean nextState;
 		private final boolean isChanged;
 		
-		public NeighbourNextStateMsg(final boolean nextState, final boolean isChanged) {
+		public NeighbourNextStateMsg(final int generation, final boolean nextState, final boolean isChanged) {
+			this.generation = generation;
 			this.nextState = nextState;
 			this.isChanged = isChanged;
 		}
 		
+		public int getGeneration() {
+			return this.generation;
+		}
+		
 		public boolean getNeighbourNextState() {
 			return this.nextState;
 		}
@@ -131,7 +219,22 @@ public class CellActor extends AbstractActorWithStash {
 	 * @return a Props for creating cell actor, which can then be further configured
 	 */
 	public static Props props(final int x, final int y) {
-		return Props.create(CellActor.class, x, y);
+		return props(x, y, false);
+	}
+	
+	/**
+	 * Creates Props for a cell actor.
+	 * 
+	 * @param x
+	 * 		the x coordinate of the cell to be passed to the actor's constructor.
+	 * @param y
+	 * 		the y coordinate of the cell to be passed to the actor's constructor.
+	 * @param changeDriven
+	 * 		true if the cell must use the change-driven protocol
+	 * @return a Props for creating cell actor, which can then be further configured
+	 */
+	public static Props props(final int x, final int y, final boolean changeDriven) {
+		return Props.create(CellActor.class, x, y, changeDriven);
 	}
 	
 	/**
@@ -141,151 +244,123 @@ public class CellActor extends AbstractActorWithStash {
 	 * 		the x coordinate of the cell
 	 * @param y
 	 * 		the y coordinate of the cell
+	 * @param changeDriven
+	 * 		true if the cell must use the change-driven protocol
 	 */
-	public CellActor(final int x, final int y) {
+	public CellActor(final int x, final int y, final boolean changeDriven) {
 		this.x = x;
 		this.y = y;
-		this.neighbours = new HashSet<>();
+		this.neighbours = new ActorRef[0];
 		this.state = false;
-		this.nextState = false;
 		this.aliveNeighbours = 0;
-		this.nextAliveNeighbours = 0;
-		
-		this.stateChanged = false;
-		this.nArrivedNextStateNeighbours = 0;
+		this.stateSet = false;
+		this.nArrivedNeighboursStates = 0;
 		
-		this.log = Logging.getLogger(getContext().getSystem(), this);
-		
-		this.initializingBehavior = receiveBuilder()
+		this.changeDriven = changeDriven;
+		this.neighboursChanges = new int[2];
+		this.nArrivedNeighboursMsgs = new int[2];
+		this.pendingGeneration = NO_GENERATION;
+	}
+	
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
 				.match(NeighboursMsg.class, neighboursMsg -> {
 					// Saves the neighbors
-					this.neighbours.clear();
-					this.neighbours.addAll(neighboursMsg.getNeighbours());
-					// Enters in a state in which it knows its neighbors...
-					getContext().become(receiveBuilder()
-							// With the neighbors knowledge, the cell can notify its initialization state...
-							.match(SetStateMsg.class, stateMsg -> {
-								this.nextState = stateMsg.getState();
-								this.neighbours.forEach(n -> n.tell(new NeighbourStateMsg(this.nextState), ActorRef.noSender()));
-								// If the state is configured and all the neighbors have been notified, initialization is complete...
-								if (this.nArrivedNextStateNeighbours == this.neighbours.size()) {
-									unstashAll();
-									getContext().become(this.activeBehavior);
-								} else {
-									// ... Otherwise changes the behavior: once its state has been set, it can no longer be changed directly
-									getContext().become(receiveBuilder()
-											.match(NeighbourStateMsg.class, neighbourMsg -> {
-												this.nArrivedNextStateNeighbours++;
-												if (neighbourMsg.getNeighbourState()) {
-													this.nextAliveNeighbours++;
-												}
-												// Checks if the initialization is completed
-												if (this.nArrivedNextStateNeighbours == this.neighbours.size()) {
-													unstashAll();
-													getContext().become(this.activeBehavior);										
-												}
-											})
-											.match(PrepareNextGenerationMsg.class, msg -> stash())
-											.match(ComputeMsg.class, msg -> stash())
-											.match(NeighbourNextStateMsg.class, msg -> stash())
-											.matchAny(msg -> this.log.info("Received unknown message: " + msg))
-											.build());
-								}
-							})
-							// ... Or it can be notified by a neighbor
-							.match(NeighbourStateMsg.class, neighbourMsg -> {
-								this.nArrivedNextStateNeighbours++;
-								if (neighbourMsg.getNeighbourState()) {
-									this.nextAliveNeighbours++;
-								}
-							})
-							.match(PrepareNextGenerationMsg.class, msg -> stash())
-							.match(ComputeMsg.class, msg -> stash())
-							.match(NeighbourNextStateMsg.class, msg -> stash())
-							.matchAny(msg -> this.log.info("Received unknown message: " + msg))
-							.build());
+					this.neighbours = neighboursMsg.getNeighbours();
 				})
-				.match(NeighbourNextStateMsg.class, msg -> stash())
-				.matchAny(msg -> this.log.info("Received unknown message: " + msg))
-				.build();
-		
-		this.activeBehavior = receiveBuilder()
-				.match(PrepareNextGenerationMsg.class, nextMsg -> {
-					// Resets data
-					this.stateChanged = false;
-					this.nArrivedNextStateNeighbours = 0;
-					// Swaps
-					this.state = this.nextState;
-					this.aliveNeighbours = this.nextAliveNeighbours;
-					unstashAll();
-					getContext().become(receiveBuilder()
-							.match(ComputeMsg.class, computeMsg -> {
-								// Considers the next state as unchanged by default
-								this.stateChanged = false;
-								this.nextState = this.state;
-								
-								// Evaluates an update only if necessary									
-								if (this.state || (!this.state && this.aliveNeighbours > 0)) {
-									if (this.state) {
-										if (this.aliveNeighbours < 2 || this.aliveNeighbours > 3) {
-											this.nextState = false;
-											this.stateChanged = true;										
-										}
-									} else {
-										if (this.aliveNeighbours == 3) {
-											this.nextState = true;
-											this.stateChanged = true;
-										}
-									}
-								}
-								
-								// Sends the computed state to the neighbors (even if unchanged)
-								this.neighbours.forEach(n -> n.tell(new NeighbourNextStateMsg(this.nextState, this.stateChanged), ActorRef.noSender()));
-								
-								// The computation of a cell is completed if its next state and that of the neighbors have been determined
-								if (this.nArrivedNextStateNeighbours == this.neighbours.size()) {
-									computeMsg.getSender().tell(new GridActor.CellNextStateMsg(new Point(this.x, this.y), this.nextState), ActorRef.noSender());
-									unstashAll();
-									getContext().become(this.activeBehavior);
-								} else {
-									// Waits for the completion of the neighboring cells computation
-									getContext().become(receiveBuilder()
-											.match(NeighbourNextStateMsg.class, stateMsg -> {
-												this.nArrivedNextStateNeighbours++;
-												if (stateMsg.isNeighbourStateChanged()) {
-													this.nextAliveNeighbours += stateMsg.getNeighbourNextState() ? 1 : -1;
-												}
-												if (this.nArrivedNextStateNeighbours == this.neighbours.size()) {
-													computeMsg.getSender().tell(new GridActor.CellNextStateMsg(new Point(this.x, this.y), this.nextState), ActorRef.noSender());
-													unstashAll();
-													getContext().become(this.activeBehavior);
-												}
-											})
-											.match(PrepareNextGenerationMsg.class, msg -> stash())
-											.match(ComputeMsg.class, msg -> stash())
-											.matchAny(msg -> this.log.info("Received unknown message: " + msg))
-											.build());
-								}
-							})
-							.match(NeighbourNextStateMsg.class, stateMsg -> {
-								this.nArrivedNextStateNeighbours++;
-								if (stateMsg.isNeighbourStateChanged()) {
-									this.nextAliveNeighbours += stateMsg.getNeighbourNextState() ? 1 : -1;
-								}
-							})
-							.match(PrepareNextGenerationMsg.class, msg -> stash())
-							.matchAny(msg -> this.log.info("Received unknown message: " + msg))
-							.build());
+				.match(SetStateMsg.class, stateMsg -> {
+					// The neighbors are notified of the initial state, so they can count the alive ones
+					this.state = stateMsg.getState();
+					this.stateSet = true;
+					tellNeighbours(NeighbourStateMsg.of(this.state));
+					tryCompute();
+				})
+				.match(NeighbourStateMsg.class, neighbourMsg -> {
+					this.nArrivedNeighboursStates++;
+					if (neighbourMsg.getNeighbourState()) {
+						this.aliveNeighbours++;
+					}
+					tryCompute();
+				})
+				.match(ComputeMsg.class, computeMsg -> {
+					// Every neighbor notifies its state of the previous generation, except before the first one
+					requestComputation(computeMsg.getGeneration(), computeMsg.getGeneration() > 0 ? this.neighbours.length : 0,
+							computeMsg.getSender());
+				})
+				.match(NeighbourNextStateMsg.class, stateMsg -> {
+					final int slot = stateMsg.getGeneration() & 1;
+					if (stateMsg.isNeighbourStateChanged()) {
+						this.neighboursChanges[slot] += stateMsg.getNeighbourNextState() ? 1 : -1;
+					}
+					this.nArrivedNeighboursMsgs[slot]++;
+					tryCompute();
+				})
+				.match(ComputeChangesMsg.class, computeMsg -> {
+					requestComputation(computeMsg.getGeneration(), computeMsg.getExpectedChanges(), computeMsg.getSender());
 				})
-				.match(ComputeMsg.class, msg -> stash())
-				.match(NeighbourNextStateMsg.class, msg -> stash())
-				.matchAny(msg -> this.log.info("Received unknown message: " + msg))
+				.match(NeighbourChangedMsg.class, changedMsg -> {
+					final int slot = changedMsg.getGeneration() & 1;
+					this.neighboursChanges[slot] += changedMsg.getNeighbourNewState() ? 1 : -1;
+					this.nArrivedNeighboursMsgs[slot]++;
+					tryCompute();
+				})
+				// The logger is not kept by every cell, it is needed only here
+				.matchAny(msg -> Logging.getLogger(getContext().getSystem(), this).info("Received unknown message: " + msg))
 				.build();
 	}
 	
-	@Override
-	public Receive createReceive() {
-		return this.initializingBehavior;
+	/*
+	 * Records the request of the computation of a generation, which can start once the expected messages
+	 * of the neighbors about the previous generation are arrived.
+	 */
+	private void requestComputation(final int generation, final int nExpectedMsgs, final ActorRef sender) {
+		this.pendingGeneration = generation;
+		this.nPendingExpectedMsgs = nExpectedMsgs;
+		this.pendingSender = sender;
+		tryCompute();
+	}
+	
+	/*
+	 * Computes the requested generation, if the cell is initialized and all the neighbors messages
+	 * of the previous generation are arrived. In change-driven mode the neighbors are notified only
+	 * if the state flips, otherwise they are always notified.
+	 */
+	private void tryCompute() {
+		final boolean initialized = this.stateSet && this.nArrivedNeighboursStates == this.neighbours.length;
+		if (this.pendingGeneration == NO_GENERATION || !initialized) {
+			return;
+		}
+		final int previousSlot = (this.pendingGeneration - 1) & 1;
+		if (this.nArrivedNeighboursMsgs[previousSlot] == this.nPendingExpectedMsgs) {
+			// Applies the changes of the neighbors
+			this.aliveNeighbours += this.neighboursChanges[previousSlot];
+			this.neighboursChanges[previousSlot] = 0;
+			this.nArrivedNeighboursMsgs[previousSlot] = 0;
+			
+			final boolean newState = this.aliveNeighbours == 3 || (this.state && this.aliveNeighbours == 2);
+			final boolean stateChanged = newState != this.state;
+			this.state = newState;
+			if (!this.changeDriven) {
+				final NeighbourNextStateMsg stateMsg = new NeighbourNextStateMsg(this.pendingGeneration, this.state, stateChanged);
+				tellNeighbours(stateMsg);
+			} else if (stateChanged) {
+				final NeighbourChangedMsg changedMsg = new NeighbourChangedMsg(this.pendingGeneration, this.state);
+				tellNeighbours(changedMsg);
+			}
+			this.pendingSender.tell(new AggregatorActor.CellNextStateMsg(this.x, this.y, this.state, stateChanged), ActorRef.noSender());
+			this.pendingGeneration = NO_GENERATION;
+			this.pendingSender = null;
+		}
+	}
+	
+	/*
+	 * Sends a message to all the neighbors.
+	 */
+	private void tellNeighbours(final Object msg) {
+		for (final ActorRef neighbour : this.neighbours) {
+			neighbour.tell(msg, ActorRef.noSender());
+		}
 	}
 
 }
@@ -0,0 +1,310 @@
+package pcd.ass03.gameoflife.actors;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.typesafe.config.Config;
+
+import akka.actor.AbstractActor.ActorContext;
+import akka.actor.AbstractActor.Receive;
+import akka.actor.ActorRef;
+import akka.japi.pf.ReceiveBuilder;
+import pcd.ass03.gameoflife.actors.GridActor.CellsNextStatesMsg;
+import pcd.ass03.gameoflife.model.BitGrid;
+
+/**
+ * This protocol computes the generations with one actor for each cell, children of the grid actor.
+ * The results of each band of rows are merged by an aggregator, which also forwards to the cells the requests
+ * of computation, so the grid does not exchange a message with each cell at every generation.
+ * In change-driven mode only the cells that changed in the previous generation and their neighbours are computed.
+ *
+ */
+class CellsProtocol implements GenerationProtocol {
+
+	private static final String CELL_PROTOCOL_SETTING = "gameoflife.cell-protocol";
+	private static final String CHANGE_DRIVEN_PROTOCOL = "change-driven";
+	private static final String AGGREGATOR_ROWS_SETTING = "gameoflife.cell-aggregator-rows";
+	private static final int DEFAULT_AGGREGATOR_ROWS = 1;
+
+	private final ActorContext context;
+	private final Results results;
+	private final Receive resultsBehavior;
+	private final boolean changeDriven;
+	private final int aggregatorRows;
+	private int width;
+	private int height;
+	private ActorRef[] cellsActors;
+	private ActorRef[] aggregators;
+	private int step;
+	private int nComputedCells;
+	private int nCellsToCompute;
+
+	// Only in change-driven mode
+	private int[] changedCells;
+	private int nChangedCells;
+	private BitGrid activeCellsMask;
+	private int[] activeCells;
+	private int[] expectedChanges;
+	private int[] nActiveCellsPerBand;
+
+
+	/**
+	 * This message notifies that no cell must be computed in the current generation (change-driven mode).
+	 */
+	private static final class QuiescentGenerationMsg { }
+
+
+	/**
+	 * Creates a protocol for the cell actors.
+	 *
+	 * @param context
+	 * 		the context of the grid actor
+	 * @param config
+	 * 		the configuration of the actor system, containing the protocol settings
+	 * @param results
+	 * 		the receiver of the results of the generations
+	 */
+	CellsProtocol(final ActorContext context, final Config config, final Results results) {
+		this.context = context;
+		this.results = results;
+		this.changeDriven = config.hasPath(CELL_PROTOCOL_SETTING)
+				&& CHANGE_DRIVEN_PROTOCOL.equals(config.getString(CELL_PROTOCOL_SETTING));
+		this.aggregatorRows = Math.max(1, config.hasPath(AGGREGATOR_ROWS_SETTING)
+				? config.getInt(AGGREGATOR_ROWS_SETTING) : DEFAULT_AGGREGATOR_ROWS);
+		this.cellsActors = new ActorRef[0];
+		this.aggregators = new ActorRef[0];
+		this.resultsBehavior = ReceiveBuilder.create()
+				.match(CellsNextStatesMsg.class, msg -> {
+					for (final int index : msg.getChangedCells()) {
+						this.results.applyChange(index);
+						if (this.changeDriven) {
+							recordChange(index);
+						}
+					}
+					// If all the states of the current generation are computed...
+					this.nComputedCells += msg.getComputedCells();
+					if (this.nComputedCells == this.nCellsToCompute) {
+						completeStep();
+					}
+				})
+				.match(QuiescentGenerationMsg.class, msg -> completeStep())
+				.build();
+	}
+
+	/*
+	 * Creates cell actors and aggregators and sends them their neighbours, bands and initial states.
+	 */
+	@Override
+	public void init(final BitGrid initialGeneration) {
+		this.width = initialGeneration.getWidth();
+		this.height = initialGeneration.getHeight();
+		final int nBands = (this.height + this.aggregatorRows - 1) / this.aggregatorRows;
+		this.aggregators = new ActorRef[nBands];
+		for (int band = 0; band < nBands; band++) {
+			final int nBandRows = Math.min(this.aggregatorRows, this.height - band * this.aggregatorRows);
+			this.aggregators[band] = this.context.actorOf(
+					AggregatorActor.props(this.width, band * this.aggregatorRows * this.width, nBandRows * this.width),
+					"aggregator_" + band);
+			this.context.watch(this.aggregators[band]);
+		}
+		this.cellsActors = new ActorRef[this.width * this.height];
+		for (int y = 0; y < this.height; y++) {
+			for (int x = 0; x < this.width; x++) {
+				final ActorRef cellActor = this.context.actorOf(CellActor.props(x, y, this.changeDriven), "cell_" + x + "_" + y);
+				this.cellsActors[y * this.width + x] = cellActor;
+				this.context.watch(cellActor);
+			}
+		}
+		if (this.changeDriven) {
+			this.changedCells = new int[Math.min(this.width * this.height, 1024)];
+			this.nChangedCells = 0;
+			this.activeCellsMask = new BitGrid(this.width, this.height);
+			this.activeCells = new int[this.width * this.height];
+			this.expectedChanges = new int[this.width * this.height];
+			this.nActiveCellsPerBand = new int[nBands];
+		}
+
+		// Sends to each aggregator the cells of its band
+		final int bandSize = this.aggregatorRows * this.width;
+		for (int band = 0; band < nBands; band++) {
+			this.aggregators[band].tell(new AggregatorActor.CellsMsg(Arrays.copyOfRange(this.cellsActors,
+					band * bandSize, Math.min((band + 1) * bandSize, this.cellsActors.length))), ActorRef.noSender());
+		}
+
+		// Sends neighbors to each cell
+		for (int index = 0; index < this.cellsActors.length; index++) {
+			this.cellsActors[index].tell(new CellActor.NeighboursMsg(getCellNeighbours(index % this.width, index / this.width)),
+					ActorRef.noSender());
+		}
+
+		// Sends the initial state to each cell
+		for (int index = 0; index < this.cellsActors.length; index++) {
+			this.cellsActors[index].tell(CellActor.SetStateMsg.of(initialGeneration.get(index)), ActorRef.noSender());
+		}
+	}
+
+	@Override
+	public void startStep(final int step, final int credits) {
+		this.step = step;
+		this.nComputedCells = 0;
+		if (this.changeDriven) {
+			activateChangedCells();
+		} else {
+			// The request reaches the cells through the aggregators
+			this.nCellsToCompute = this.cellsActors.length;
+			final AggregatorActor.ComputeBandMsg computeMsg = new AggregatorActor.ComputeBandMsg(step);
+			for (final ActorRef aggregator : this.aggregators) {
+				aggregator.tell(computeMsg, ActorRef.noSender());
+			}
+		}
+	}
+
+	@Override
+	public Receive getResultsBehavior() {
+		return this.resultsBehavior;
+	}
+
+	@Override
+	public void pause() {
+		// The cells are idle between two generations
+	}
+
+	@Override
+	public long getGeneration() {
+		return this.step;
+	}
+
+	@Override
+	public Set<ActorRef> dispose() {
+		final Set<ActorRef> actors = new HashSet<>(Arrays.asList(this.cellsActors));
+		actors.addAll(Arrays.asList(this.aggregators));
+		actors.forEach(this.context::stop);
+		return actors;
+	}
+
+	/*
+	 * Counts the completed step and notifies the completion of the generation.
+	 */
+	private void completeStep() {
+		this.step++;
+		this.results.completeGeneration();
+	}
+
+	/*
+	 * Records a change of the generation being computed, to activate its cell and neighbours in the next one.
+	 */
+	private void recordChange(final int index) {
+		if (this.nChangedCells == this.changedCells.length) {
+			this.changedCells = Arrays.copyOf(this.changedCells, this.changedCells.length * 2);
+		}
+		this.changedCells[this.nChangedCells++] = index;
+	}
+
+	/*
+	 * Requests the computation only to the cells that can change in the next generation (change-driven mode):
+	 * all of them at the beginning, then only the changed cells and their neighbours. Each neighbour is told
+	 * how many changes it must receive before computing, so no cell waits for unchanged neighbours.
+	 */
+	private void activateChangedCells() {
+		this.nCellsToCompute = 0;
+		if (this.step == 0) {
+			for (int index = 0; index < this.cellsActors.length; index++) {
+				activateCell(index);
+			}
+		} else {
+			for (int i = 0; i < this.nChangedCells; i++) {
+				final int index = this.changedCells[i];
+				activateCell(index);
+				for (final int neighbourIndex : getCellNeighboursIndices(index % this.width, index / this.width)) {
+					this.expectedChanges[neighbourIndex]++;
+					activateCell(neighbourIndex);
+				}
+			}
+		}
+		this.nChangedCells = 0;
+
+		// The active cells are grouped by band, so each aggregator receives a single request for all of them
+		final int bandSize = this.aggregatorRows * this.width;
+		for (int i = 0; i < this.nCellsToCompute; i++) {
+			this.nActiveCellsPerBand[this.activeCells[i] / bandSize]++;
+		}
+		final int[][] bandCells = new int[this.aggregators.length][];
+		final int[][] bandExpectedChanges = new int[this.aggregators.length][];
+		for (int band = 0; band < this.aggregators.length; band++) {
+			if (this.nActiveCellsPerBand[band] > 0) {
+				bandCells[band] = new int[this.nActiveCellsPerBand[band]];
+				bandExpectedChanges[band] = new int[this.nActiveCellsPerBand[band]];
+				this.nActiveCellsPerBand[band] = 0;
+			}
+		}
+		for (int i = 0; i < this.nCellsToCompute; i++) {
+			final int index = this.activeCells[i];
+			final int band = index / bandSize;
+			bandCells[band][this.nActiveCellsPerBand[band]] = index;
+			bandExpectedChanges[band][this.nActiveCellsPerBand[band]++] = this.expectedChanges[index];
+			this.expectedChanges[index] = 0;
+			this.activeCellsMask.set(index, false);
+		}
+		for (int band = 0; band < this.aggregators.length; band++) {
+			if (bandCells[band] != null) {
+				this.aggregators[band].tell(new AggregatorActor.ComputeActiveCellsMsg(this.step, bandCells[band],
+						bandExpectedChanges[band]), ActorRef.noSender());
+				this.nActiveCellsPerBand[band] = 0;
+			}
+		}
+
+		// A still grid would never receive any result, so the generation is completed directly
+		if (this.nCellsToCompute == 0) {
+			this.context.self().tell(new QuiescentGenerationMsg(), ActorRef.noSender());
+		}
+	}
+
+	/*
+	 * Marks a cell as active for the next generation, if not already done.
+	 */
+	private void activateCell(final int index) {
+		if (!this.activeCellsMask.get(index)) {
+			this.activeCellsMask.set(index, true);
+			this.activeCells[this.nCellsToCompute++] = index;
+		}
+	}
+
+	/*
+	 * Calculates the references to the actors linked to the neighbors
+	 * of the cell with the specified position.
+	 */
+	private ActorRef[] getCellNeighbours(final int cellX, final int cellY) {
+		final int[] indices = getCellNeighboursIndices(cellX, cellY);
+		final ActorRef[] neighbours = new ActorRef[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			neighbours[i] = this.cellsActors[indices[i]];
+		}
+		return neighbours;
+	}
+
+	/*
+	 * Calculates the distinct row-major indices of the neighbours of the cell with the specified position
+	 * (on small grids the same cell can be reached from more than one direction).
+	 */
+	private int[] getCellNeighboursIndices(final int cellX, final int cellY) {
+		final int[] neighbours = new int[8];
+		int nNeighbours = 0;
+		for (int y = cellY - 1; y <= cellY + 1; y++) {
+			for (int x = cellX - 1; x <= cellX + 1; x++) {
+				if (cellY != y || cellX != x) {
+					final int index = ((y + this.height) % this.height) * this.width + (x + this.width) % this.width;
+					boolean isDuplicate = false;
+					for (int i = 0; i < nNeighbours && !isDuplicate; i++) {
+						isDuplicate = neighbours[i] == index;
+					}
+					if (!isDuplicate) {
+						neighbours[nNeighbours++] = index;
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(neighbours, nNeighbours);
+	}
+
+}
@@ -0,0 +1,103 @@
+package pcd.ass03.gameoflife.actors;
+
+import java.util.Collections;
+import java.util.Set;
+
+import akka.actor.AbstractActor.Receive;
+import akka.actor.ActorRef;
+import akka.japi.pf.ReceiveBuilder;
+import pcd.ass03.gameoflife.engine.GolEngine;
+import pcd.ass03.gameoflife.model.BitGrid;
+
+/**
+ * This protocol computes the generations with a synchronous {@link GolEngine}, one step for each message
+ * that the grid actor sends to itself, so control messages are still handled between steps.
+ *
+ */
+class EngineProtocol implements GenerationProtocol {
+
+	private final GolEngine engine;
+	private final ActorRef grid;
+	private final Results results;
+	private final Receive resultsBehavior;
+	private BitGrid lastGeneration;
+
+
+	/**
+	 * This message requests the computation of the next step to the engine.
+	 */
+	private static final class StepMsg { }
+
+
+	/**
+	 * Creates a protocol for an engine.
+	 *
+	 * @param engine
+	 * 		the engine that computes the generations
+	 * @param grid
+	 * 		the grid actor
+	 * @param results
+	 * 		the receiver of the results of the generations
+	 */
+	EngineProtocol(final GolEngine engine, final ActorRef grid, final Results results) {
+		this.engine = engine;
+		this.grid = grid;
+		this.results = results;
+		this.resultsBehavior = ReceiveBuilder.create()
+				.match(StepMsg.class, msg -> computeStep())
+				.build();
+	}
+
+	@Override
+	public void init(final BitGrid initialGeneration) {
+		this.engine.init(initialGeneration);
+		this.lastGeneration = initialGeneration.copy();
+	}
+
+	@Override
+	public void startStep(final int step, final int credits) {
+		this.grid.tell(new StepMsg(), ActorRef.noSender());
+	}
+
+	@Override
+	public Receive getResultsBehavior() {
+		return this.resultsBehavior;
+	}
+
+	@Override
+	public void pause() {
+		this.engine.pause();
+	}
+
+	@Override
+	public long getGeneration() {
+		return this.engine.getGeneration();
+	}
+
+	@Override
+	public Set<ActorRef> dispose() {
+		this.engine.dispose();
+		return Collections.emptySet();
+	}
+
+	/*
+	 * Computes the next step with the engine, reporting as changes the cells that differ
+	 * from the previous generation, and completes it.
+	 */
+	private void computeStep() {
+		this.engine.step();
+		final BitGrid nextGeneration = this.engine.snapshot();
+		final long[] previousWords = this.lastGeneration.getWords();
+		final long[] nextWords = nextGeneration.getWords();
+		for (int word = 0; word < nextWords.length; word++) {
+			long diff = previousWords[word] ^ nextWords[word];
+			while (diff != 0) {
+				this.results.applyChange(word * Long.SIZE + Long.numberOfTrailingZeros(diff));
+				diff &= diff - 1;
+			}
+		}
+		this.lastGeneration = nextGeneration;
+		this.results.completeGeneration();
+	}
+
+}
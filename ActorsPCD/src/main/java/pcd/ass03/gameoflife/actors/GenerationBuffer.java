@@ -0,0 +1,217 @@
+package pcd.ass03.gameoflife.actors;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import com.typesafe.config.Config;
+
+import pcd.ass03.gameoflife.actors.ViewActor.GenerationResultsMsg;
+import pcd.ass03.gameoflife.actors.ViewActor.RegionFillMsg;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.GridRegion;
+
+/**
+ * This class represents the bounded buffer of the generation results waiting to be shown.
+ * When the buffer is full, the two oldest results are merged into one, so the generations
+ * are skipped but the changes they contain are never lost.
+ * The fills of the regions subscribed by the view wait in the buffer too, until the results
+ * of their generation are taken.
+ *
+ */
+public class GenerationBuffer {
+
+	private static final String POLICY_SETTING = "gameoflife.view-buffer.policy";
+	private static final String CAPACITY_SETTING = "gameoflife.view-buffer.capacity";
+	private static final int DEFAULT_CAPACITY = 32;
+
+	/**
+	 * The policies of the buffer.
+	 */
+	public enum Policy {
+
+		/**
+		 * Only the latest results are kept (the capacity is ignored).
+		 */
+		LATEST,
+
+		/**
+		 * The oldest results are dropped when the buffer is full.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * The grid sends results only while it has credits, given back by the view for each shown result,
+		 * so the grid waits when the view lags.
+		 */
+		CREDIT
+	}
+
+	private final Policy policy;
+	private final int capacity;
+	private final Deque<GenerationResultsMsg> generations;
+	private final Deque<RegionFillMsg> fills;
+	private long nDroppedGenerations;
+
+	/**
+	 * Creates an empty buffer.
+	 *
+	 * @param policy
+	 * 		the policy of the buffer
+	 * @param capacity
+	 * 		the maximum number of results in the buffer
+	 */
+	public GenerationBuffer(final Policy policy, final int capacity) {
+		this.policy = policy;
+		this.capacity = policy == Policy.LATEST ? 1 : Math.max(1, capacity);
+		this.generations = new ArrayDeque<>();
+		this.fills = new ArrayDeque<>();
+		this.nDroppedGenerations = 0;
+	}
+
+	/**
+	 * @param config
+	 * 		the configuration of the actor system
+	 * @return the policy of the buffer between grid and view
+	 */
+	public static Policy getPolicy(final Config config) {
+		return config.hasPath(POLICY_SETTING) ? config.getEnum(Policy.class, POLICY_SETTING) : Policy.DROP_OLDEST;
+	}
+
+	/**
+	 * @param config
+	 * 		the configuration of the actor system
+	 * @return the capacity of the buffer between grid and view
+	 */
+	public static int getCapacity(final Config config) {
+		return Math.max(1, config.hasPath(CAPACITY_SETTING) ? config.getInt(CAPACITY_SETTING) : DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @return the policy of the buffer
+	 */
+	public Policy getPolicy() {
+		return this.policy;
+	}
+
+	/**
+	 * Adds the results of a generation, merging the oldest ones if the buffer is full.
+	 *
+	 * @param results
+	 * 		the results to add
+	 */
+	public void add(final GenerationResultsMsg results) {
+		this.generations.addLast(results);
+		while (this.generations.size() > this.capacity) {
+			final GenerationResultsMsg oldest = this.generations.pollFirst();
+			this.generations.addFirst(merge(oldest, this.generations.pollFirst()));
+			this.nDroppedGenerations++;
+		}
+	}
+
+	/**
+	 * @return the oldest results, or null if the buffer is empty
+	 */
+	public GenerationResultsMsg poll() {
+		return this.generations.pollFirst();
+	}
+
+	/**
+	 * Adds the fill of a region, to be taken after the results of its generation.
+	 *
+	 * @param fill
+	 * 		the fill to add
+	 */
+	public void addFill(final RegionFillMsg fill) {
+		this.fills.addLast(fill);
+	}
+
+	/**
+	 * @param shownGeneration
+	 * 		the number of the last generation taken from the buffer
+	 * @return the oldest fill of a region whose generation is not after the specified one, or null if there is none
+	 */
+	public RegionFillMsg pollFill(final long shownGeneration) {
+		return !this.fills.isEmpty() && this.fills.peekFirst().getGenerationNumber() <= shownGeneration
+				? this.fills.pollFirst() : null;
+	}
+
+	/**
+	 * @return the number of results in the buffer
+	 */
+	public int size() {
+		return this.generations.size();
+	}
+
+	/**
+	 * @return the number of generations merged into the following ones, so never shown
+	 */
+	public long getDroppedGenerations() {
+		return this.nDroppedGenerations;
+	}
+
+	/**
+	 * Removes all the results and the fills, and resets the dropped generations.
+	 */
+	public void clear() {
+		this.generations.clear();
+		this.fills.clear();
+		this.nDroppedGenerations = 0;
+	}
+
+	/*
+	 * Merges the results of two consecutive generations: the statistics are the ones of the newer.
+	 */
+	private static GenerationResultsMsg merge(final GenerationResultsMsg older, final GenerationResultsMsg newer) {
+		if (newer.isKeyframe()) {
+			return newer;
+		} else if (older.getRegion() != null) {
+			// The changes are indices of the whole grid, all inside the region of the keyframe
+			final GridRegion region = older.getRegion().copy();
+			for (final int index : newer.getChangedCells()) {
+				region.getCells().flip(region.toRegionIndex(index));
+			}
+			return new GenerationResultsMsg(newer.getGenerationNumber(), region, newer.getTimeElapsed(),
+					newer.getAverageTime(), newer.getNumberOfAliveCells(), newer.getNumberOfMessages());
+		} else if (older.isKeyframe()) {
+			final BitGrid generation = older.getGenerationComputed().copy();
+			for (final int index : newer.getChangedCells()) {
+				generation.flip(index);
+			}
+			return new GenerationResultsMsg(newer.getGenerationNumber(), generation, newer.getTimeElapsed(),
+					newer.getAverageTime(), newer.getNumberOfAliveCells(), newer.getNumberOfMessages());
+		} else {
+			return new GenerationResultsMsg(newer.getGenerationNumber(),
+					mergeChanges(older.getChangedCells(), newer.getChangedCells()), newer.getTimeElapsed(),
+					newer.getAverageTime(), newer.getNumberOfAliveCells(), newer.getNumberOfMessages());
+		}
+	}
+
+	/*
+	 * Returns the sorted cells changed by exactly one of the two sorted arrays (a cell changed twice is unchanged).
+	 */
+	private static int[] mergeChanges(final int[] older, final int[] newer) {
+		final int[] merged = new int[older.length + newer.length];
+		int nMerged = 0;
+		int i = 0;
+		int j = 0;
+		while (i < older.length && j < newer.length) {
+			if (older[i] < newer[j]) {
+				merged[nMerged++] = older[i++];
+			} else if (older[i] > newer[j]) {
+				merged[nMerged++] = newer[j++];
+			} else {
+				i++;
+				j++;
+			}
+		}
+		while (i < older.length) {
+			merged[nMerged++] = older[i++];
+		}
+		while (j < newer.length) {
+			merged[nMerged++] = newer[j++];
+		}
+		return nMerged == merged.length ? merged : Arrays.copyOf(merged, nMerged);
+	}
+
+}
@@ -0,0 +1,109 @@
+package pcd.ass03.gameoflife.actors;
+
+import java.util.Set;
+
+import com.typesafe.config.Config;
+
+import akka.actor.AbstractActor.ActorContext;
+import akka.actor.AbstractActor.Receive;
+import akka.actor.ActorRef;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.model.BitGrid;
+
+/**
+ * This interface represents the way the generations are computed on behalf of the grid actor:
+ * by a mesh of its child actors (cells or tiles) or by a synchronous engine.
+ * The protocol keeps all its own state, while the grid keeps the last completed generation:
+ * the protocol only reports the cells that change and the completion of each generation.
+ *
+ */
+interface GenerationProtocol {
+
+	/**
+	 * This interface receives the results of the generations from a protocol.
+	 */
+	interface Results {
+
+		/**
+		 * Records that a cell has changed state in the generation being computed.
+		 *
+		 * @param index
+		 * 		the row-major index of the cell
+		 */
+		void applyChange(int index);
+
+		/**
+		 * Notifies that all the changes of the generation being computed have been reported.
+		 * It can start the computation of the next generation before returning.
+		 */
+		void completeGeneration();
+	}
+
+	/**
+	 * Creates the protocol for an engine.
+	 *
+	 * @param engine
+	 * 		the engine chosen for the game
+	 * @param context
+	 * 		the context of the grid actor, used to create the actors of the protocol
+	 * @param config
+	 * 		the configuration of the actor system, containing the protocol settings
+	 * @param results
+	 * 		the receiver of the results of the generations
+	 * @return a new protocol, to be initialized
+	 */
+	static GenerationProtocol create(final EngineType engine, final ActorContext context, final Config config,
+			final Results results) {
+		switch (engine) {
+		case CELL_ACTORS:
+			return new CellsProtocol(context, config, results);
+		case TILE_ACTORS:
+			return new TilesProtocol(context, config, results);
+		default:
+			return new EngineProtocol(engine.createEngine(config), context.self(), results);
+		}
+	}
+
+	/**
+	 * Prepares the computation from the first generation (e.g. creating the actors).
+	 *
+	 * @param initialGeneration
+	 * 		the first generation (the protocol does not keep a reference to it)
+	 */
+	void init(BitGrid initialGeneration);
+
+	/**
+	 * Requests the computation of the next step.
+	 *
+	 * @param step
+	 * 		the number of steps completed since the initialization
+	 * @param credits
+	 * 		the number of generations that the view can still receive
+	 * 		(Integer.MAX_VALUE if it is not limited by credits)
+	 */
+	void startStep(int step, int credits);
+
+	/**
+	 * @return the behavior that handles the messages of the protocol addressed to the grid actor
+	 * 		(e.g. the partial results), which the grid must stash while the game is paused
+	 */
+	Receive getResultsBehavior();
+
+	/**
+	 * Notifies the protocol that no step will be requested until the game is resumed.
+	 */
+	void pause();
+
+	/**
+	 * @return the number of generations computed since the initialization (a step can compute more than one)
+	 */
+	long getGeneration();
+
+	/**
+	 * Releases the resources of the protocol and stops its actors.
+	 *
+	 * @return the stopped actors, whose termination must be awaited before creating new ones
+	 */
+	Set<ActorRef> dispose();
+
+}
@@ -1,11 +1,16 @@
 package pcd.ass03.gameoflife.actors;
 
-import java.awt.Point;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.typesafe.config.Config;
 
 import akka.actor.AbstractActorWithStash;
 import akka.actor.ActorRef;
@@ -13,8 +18,14 @@ import akka.actor.Props;
 import akka.actor.Terminated;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
-import pcd.ass03.gameoflife.actors.CellActor.ComputeMsg;
-import pcd.ass03.gameoflife.actors.CellActor.PrepareNextGenerationMsg;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.metrics.GameMetrics;
+import pcd.ass03.gameoflife.metrics.MessageCounter;
+import pcd.ass03.gameoflife.metrics.StashCounter;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.Checkpoint;
+import pcd.ass03.gameoflife.model.DensitySummary;
+import pcd.ass03.gameoflife.model.GridRegion;
 import pcd.ass03.gameoflife.utilities.Chrono;
 
 /**
@@ -23,18 +34,47 @@ import pcd.ass03.gameoflife.utilities.Chrono;
  */
 public class GridActor extends AbstractActorWithStash {
 	
+	private static final String KEYFRAME_INTERVAL_SETTING = "gameoflife.keyframe-interval";
+	private static final int DEFAULT_KEYFRAME_INTERVAL = 50;
+	private static final String CHECKPOINT_DISPATCHER = "akka.actor.default-blocking-io-dispatcher";
+	private static final String SUMMARY_INTERVAL_SETTING = "gameoflife.view-region.summary-interval-ms";
+	private static final int DEFAULT_SUMMARY_INTERVAL = 500;
+	private static final int SUMMARY_BLOCKS = 256;
+	private static final StashCounter STASH_COUNTER = GameMetrics.getStashCounter(GridActor.class);
+	
+	private final Config config;
+	private final int keyframeInterval;
+	private final boolean creditBased;
+	private final int maxCredits;
+	private final long summaryInterval;
+	private final GenerationProtocol.Results results;
 	private int width;
 	private int height;
 	private ActorRef view;
-	private Map<Point, ActorRef> cellsActorsMap;
+	private final ActorRef history;
+	private GenerationProtocol protocol;
 	
 	private boolean notYetStarted;
-	private int nGenerations;
-	private Map<Point, Boolean> calculatedGeneration;
+	private long nGenerations;
+	private int nSteps;
+	private BitGrid calculatedGeneration;
+	private int[] changedCells;
+	private int nChangedCells;
 	private int nAliveCells;
 	private long averageTime;
+	private long nDeliveredMessages;
+	private long generationStartTime;
+	private long pauseStartTime;
+	private int nStashedMessages;
 	private Chrono timer;
-	private int nTerminatedCells;
+	private int nTerminatedActors;
+	private int credits;
+	private boolean waitingForCredits;
+	private boolean generationInProgress;
+	private Path pendingCheckpoint;
+	private Rectangle subscribedRegion;
+	private Rectangle sentArea;
+	private long lastSummaryTime;
 	
 	private final LoggingAdapter log;
 	private Receive initializingBehavior;
@@ -48,11 +88,34 @@ public class GridActor extends AbstractActorWithStash {
 	public static final class InitGridMsg {
 		private final int width;
 		private final int height;
+		private final BitGrid initialGeneration;
+		private final EngineType engine;
 		private final ActorRef view;
 		
 		public InitGridMsg(final int width, final int height, final ActorRef view) {
+			this(width, height, EngineType.CELL_ACTORS, view);
+		}
+		
+		/**
+		 * Creates a message for a grid with a random first generation.
+		 */
+		public InitGridMsg(final int width, final int height, final EngineType engine, final ActorRef view) {
+			this(width, height, null, engine, view);
+		}
+		
+		/**
+		 * Creates a message for a grid with the specified first generation.
+		 */
+		public InitGridMsg(final BitGrid initialGeneration, final EngineType engine, final ActorRef view) {
+			this(initialGeneration.getWidth(), initialGeneration.getHeight(), initialGeneration.copy(), engine, view);
+		}
+		
+		private InitGridMsg(final int width, final int height, final BitGrid initialGeneration,
+				final EngineType engine, final ActorRef view) {
 			this.width = width;
 			this.height = height;
+			this.initialGeneration = initialGeneration;
+			this.engine = engine;
 			this.view = view;
 		}
 		
@@ -64,6 +127,17 @@ public class GridActor extends AbstractActorWithStash {
 			return this.height;
 		}
 		
+		/**
+		 * @return the first generation, or null if it must be random
+		 */
+		public BitGrid getInitialGeneration() {
+			return this.initialGeneration;
+		}
+		
+		public EngineType getEngine() {
+			return this.engine;
+		}
+		
 		public ActorRef getView() {
 			return this.view;
 		}
@@ -85,24 +159,128 @@ public class GridActor extends AbstractActorWithStash {
 	public static final class ResetGameMsg { }
 	
 	/**
-	 * This message contains the next state of a cell with a certain
-	 * position, for the current generation that is being computed.
+	 * This message allows to save the last computed generation to a checkpoint file.
+	 * If a generation is being computed, it is saved as soon as it is completed.
+	 */
+	public static final class SaveCheckpointMsg {
+		private final Path file;
+		
+		public SaveCheckpointMsg(final Path file) {
+			this.file = file;
+		}
+		
+		public Path getFile() {
+			return this.file;
+		}
+	}
+	
+	/**
+	 * This message subscribes the view to a region of the grid: the keyframes and the changes sent to the view
+	 * are limited to the region (intersected with the grid), and a summary of the whole grid is sent at low rate.
+	 * The subscription is kept for the next games, until a new one.
+	 */
+	public static final class SubscribeRegionMsg {
+		private final Rectangle area;
+		
+		public SubscribeRegionMsg(final Rectangle area) {
+			this.area = new Rectangle(area);
+		}
+		
+		public Rectangle getArea() {
+			return new Rectangle(this.area);
+		}
+	}
+	
+	/**
+	 * This message contains the indices of the changed cells of a band of rows,
+	 * merged by its aggregator, for the current generation that is being computed.
+	 */
+	public static final class CellsNextStatesMsg {
+		private final int[] changedCells;
+		private final int nCells;
+		
+		public CellsNextStatesMsg(final int[] changedCells, final int nCells) {
+			this.changedCells = changedCells;
+			this.nCells = nCells;
+		}
+		
+		public int[] getChangedCells() {
+			return this.changedCells;
+		}
+		
+		public int getComputedCells() {
+			return this.nCells;
+		}
+	}
+	
+	/**
+	 * This message gives the grid new credits for sending generation results to the view
+	 * (only with a credit-based buffer).
+	 */
+	public static final class GenerationCreditMsg {
+		private final int credits;
+		
+		public GenerationCreditMsg(final int credits) {
+			this.credits = credits;
+		}
+		
+		public int getCredits() {
+			return this.credits;
+		}
+	}
+	
+	/**
+	 * This message contains the cells of a tile whose state has changed in a generation:
+	 * the current one that is being computed or, in pipelined mode, one of the following.
 	 */
-	public static final class CellNextStateMsg {
-		private final Point position;
-		private final boolean state;
+	public static final class TileNextStateMsg implements Serializable {
+		private static final long serialVersionUID = -7972171298250599964L;
+		
+		private final int generation;
+		private final int originX;
+		private final int originY;
+		private final int width;
+		private final int height;
+		private final int[] changedCells;
+		
+		public TileNextStateMsg(final int generation, final int originX, final int originY, final int width, final int height,
+				final int[] changedCells) {
+			this.generation = generation;
+			this.originX = originX;
+			this.originY = originY;
+			this.width = width;
+			this.height = height;
+			this.changedCells = changedCells;
+		}
+		
+		/**
+		 * @return the number of the generation computed by the tile (the first one after the initial is 1)
+		 */
+		public int getGeneration() {
+			return this.generation;
+		}
 		
-		public CellNextStateMsg(final Point position, final boolean state) {
-			this.position = position;
-			this.state = state;
+		public int getOriginX() {
+			return this.originX;
+		}
+		
+		public int getOriginY() {
+			return this.originY;
+		}
+		
+		public int getWidth() {
+			return this.width;
 		}
 		
-		public Point getCellPosition() {
-			return this.position;
+		public int getHeight() {
+			return this.height;
 		}
 		
-		public boolean getCellState() {
-			return this.state;
+		/**
+		 * @return the row-major indices (inside the tile) of the cells whose state has changed
+		 */
+		public int[] getChangedCells() {
+			return this.changedCells;
 		}
 	}
 	
@@ -116,63 +294,109 @@ public class GridActor extends AbstractActorWithStash {
 		return Props.create(GridActor.class);
 	}
 	
+	/**
+	 * Creates Props for a grid actor that records the generations.
+	 * 
+	 * @param history
+	 * 		the history actor that receives all the generation results
+	 * @return a Props for creating a grid actor, which can then be further configured
+	 */
+	public static Props props(final ActorRef history) {
+		return Props.create(GridActor.class, history);
+	}
+	
 	/**
 	 * Creates a grid actor.
 	 */
 	public GridActor() {
+		this(null);
+	}
+	
+	/**
+	 * Creates a grid actor that records the generations.
+	 * 
+	 * @param history
+	 * 		the history actor that receives all the generation results, or null
+	 */
+	public GridActor(final ActorRef history) {
+		this.history = history;
 		this.log = Logging.getLogger(getContext().getSystem(), this);
 		
+		this.config = getContext().getSystem().settings().config();
+		this.keyframeInterval = Math.max(1, this.config.hasPath(KEYFRAME_INTERVAL_SETTING)
+				? this.config.getInt(KEYFRAME_INTERVAL_SETTING) : DEFAULT_KEYFRAME_INTERVAL);
+		this.creditBased = GenerationBuffer.getPolicy(this.config) == GenerationBuffer.Policy.CREDIT;
+		this.maxCredits = GenerationBuffer.getCapacity(this.config);
+		this.summaryInterval = TimeUnit.MILLISECONDS.toNanos(this.config.hasPath(SUMMARY_INTERVAL_SETTING)
+				? this.config.getInt(SUMMARY_INTERVAL_SETTING) : DEFAULT_SUMMARY_INTERVAL);
+		this.results = new GenerationProtocol.Results() {
+			@Override
+			public void applyChange(final int index) {
+				GridActor.this.applyChange(index);
+			}
+			
+			@Override
+			public void completeGeneration() {
+				GridActor.this.completeGeneration();
+			}
+		};
+		
 		this.initializingBehavior = receiveBuilder()
 				.match(InitGridMsg.class, msg -> {
 					// Initializes the fields
 					this.width = msg.getWidth();
 					this.height = msg.getHeight();
 					this.view = msg.getView();
-					this.cellsActorsMap = new HashMap<>();
 					this.notYetStarted = true;
 					this.nGenerations = 0;
-					this.calculatedGeneration = new HashMap<>();
+					this.nSteps = 0;
+					this.changedCells = new int[Math.min(this.width * this.height, 1024)];
+					this.nChangedCells = 0;
 					this.nAliveCells = 0;
 					this.averageTime = 0;
-					this.nTerminatedCells = 0;
+					this.nTerminatedActors = 0;
+					this.credits = this.maxCredits;
+					this.waitingForCredits = false;
+					this.generationInProgress = false;
+					this.pendingCheckpoint = null;
+					this.sentArea = null;
+					this.lastSummaryTime = System.nanoTime() - this.summaryInterval;
 					this.timer = new Chrono();
 					
-					// Creates cell actors and registers their references in a map
-					for (int y = 0; y < this.height; y++) {
-						for (int x = 0; x < this.width; x++) {
-							final ActorRef cellActor = getContext().actorOf(CellActor.props(x, y), "cell_" + x + "_" + y);
-							this.cellsActorsMap.put(new Point(x, y), cellActor);
-							getContext().watch(cellActor);
+					if (msg.getInitialGeneration() != null) {
+						// Initializes the cells with the requested state
+						this.calculatedGeneration = msg.getInitialGeneration();
+						this.nAliveCells = this.calculatedGeneration.countAlive();
+					} else {
+						// Initializes the cells with a random state
+						this.calculatedGeneration = new BitGrid(this.width, this.height);
+						for (int y = 0; y < this.height; y++) {
+							for (int x = 0; x < this.width; x++) {
+								boolean randomState = ThreadLocalRandom.current().nextBoolean();
+								if (randomState) {
+									this.nAliveCells++;
+								}
+								this.calculatedGeneration.set(x, y, randomState);
+							}
 						}
 					}
 					
-					// Sends neighbors to each cell
-					this.cellsActorsMap.forEach((cellPos, cellRef) ->
-						cellRef.tell(new CellActor.NeighboursMsg(getCellNeighbours(cellPos)), ActorRef.noSender()));
-					
-					// Initializes the cells with a random state
-					this.cellsActorsMap.forEach((cellPos, cellRef) -> {
-						boolean randomState = ThreadLocalRandom.current().nextBoolean();
-						if (randomState) {
-							this.nAliveCells++;
-						}
-						this.calculatedGeneration.put(cellPos, randomState);
-						cellRef.tell(new CellActor.SetStateMsg(randomState), ActorRef.noSender());
-					});
+					// Creates the actors (or the engine) that will compute the generations
+					this.protocol = GenerationProtocol.create(msg.getEngine(), getContext(), this.config, this.results);
+					this.protocol.init(this.calculatedGeneration);
 					
 					// Notify the actor view with the initialized grid
-					this.view.tell(new ViewActor.GenerationResultsMsg(
-							this.nGenerations,
-							new HashMap<Point, Boolean>(this.calculatedGeneration),
-							0, 0,
-							this.nAliveCells), ActorRef.noSender());
+					sendResults(null, 0, 0);
 					
 					// Changes state
 					unstashAll();
 					getContext().become(this.pausedBehavior);
 				})
 				.match(StartGameMsg.class, msg -> stash())
-				.match(CellNextStateMsg.class, msg -> {})
+				.match(SubscribeRegionMsg.class, msg -> this.subscribedRegion = msg.getArea())
+				// The results of a game that has been reset are ignored
+				.match(Object.class, this::isProtocolMessage, msg -> {})
+				.match(GenerationCreditMsg.class, msg -> {})
 				.matchAny(msg -> log.info("Received unknown message: " + msg))
 				.build();
 		
@@ -181,104 +405,286 @@ public class GridActor extends AbstractActorWithStash {
 					this.timer.start();
 					// Distinguishes first start from resume
 					if (this.notYetStarted) {
-						this.calculatedGeneration.clear();
-						this.nAliveCells = 0;
-						this.cellsActorsMap.values().forEach(cellRef -> cellRef.tell(new PrepareNextGenerationMsg(), ActorRef.noSender()));
-						this.cellsActorsMap.values().forEach(cellRef -> cellRef.tell(new ComputeMsg(getSelf()), ActorRef.noSender()));
+						this.notYetStarted = false;
+						tryStartNextGeneration();
 					} else {
+						// The time spent paused is not part of the latency of the generation
+						this.generationStartTime += System.nanoTime() - this.pauseStartTime;
 						unstashAll();
+						// The game could have been paused while waiting for credits
+						if (this.waitingForCredits) {
+							tryStartNextGeneration();
+						}
 					}
 					getContext().become(this.playingBehavior, false);
 				})
-				.match(CellNextStateMsg.class, msg -> stash())
-				.match(ResetGameMsg.class, resetMsg -> {
-					this.cellsActorsMap.values().forEach(cellRef -> {
-						getContext().stop(cellRef);
-					});
-					getContext().become(receiveBuilder()
-							.match(Terminated.class, t -> this.cellsActorsMap.values().contains(t.actor()), t -> {
-								this.nTerminatedCells++;
-								if (this.nTerminatedCells == this.cellsActorsMap.size()) {
-									unstashAll();
-									getContext().become(initializingBehavior);									
-								}
-							})
-							.match(InitGridMsg.class, msg -> stash())
-							.matchAny(msg -> log.info("Received unknown message: " + msg))
-							.build(), false);
-				})
+				.match(Object.class, this::isProtocolMessage, msg -> stash())
+				.match(GenerationCreditMsg.class, msg -> addCredits(msg.getCredits()))
+				.match(SaveCheckpointMsg.class, msg -> saveCheckpoint(msg.getFile()))
+				.match(SubscribeRegionMsg.class, msg -> subscribeRegion(msg.getArea()))
+				.match(Terminated.class, msg -> logLostActor(msg.actor()))
+				.match(ResetGameMsg.class, resetMsg -> reset())
 				.matchAny(msg -> log.info("Received unknown message: " + msg))
 				.build();
 		
 		this.playingBehavior = receiveBuilder()
-				.match(CellNextStateMsg.class, msg -> {
-					if (msg.getCellState()) {
-						this.nAliveCells++;
-					}
-					this.calculatedGeneration.put(msg.getCellPosition(), msg.getCellState());
-					// If all the states of the current generation are computed...
-					if (this.calculatedGeneration.size() == this.cellsActorsMap.size()) {
-						// Updates generations number
-						this.nGenerations++;
-						// Calculates the averageTime
-						this.timer.stop();
-						final long elapsedTime = this.timer.getTime();
-						this.averageTime += (elapsedTime - this.averageTime) / this.nGenerations;
-						// Notify the actor view
-						this.view.tell(new ViewActor.GenerationResultsMsg(
-								this.nGenerations,
-								new HashMap<Point, Boolean>(this.calculatedGeneration),
-								elapsedTime,
-								this.averageTime,
-								this.nAliveCells), ActorRef.noSender());
-						
-						// Prepares and starts the computation for the new generation
-						this.calculatedGeneration.clear();
-						this.nAliveCells = 0;
-						this.timer.start();
-						this.cellsActorsMap.values().forEach(cellRef -> cellRef.tell(new PrepareNextGenerationMsg(), ActorRef.noSender()));
-						this.cellsActorsMap.values().forEach(cellRef -> cellRef.tell(new ComputeMsg(getSelf()), ActorRef.noSender()));
+				// Only the changes are applied to the grid, that always contains the last generation
+				.match(Object.class, this::isProtocolMessage, msg -> this.protocol.getResultsBehavior().onMessage().apply(msg))
+				.match(GenerationCreditMsg.class, msg -> {
+					addCredits(msg.getCredits());
+					if (this.waitingForCredits) {
+						tryStartNextGeneration();
 					}
 				})
 				.match(PauseGameMsg.class, msg -> {
+					this.pauseStartTime = System.nanoTime();
 					this.timer.pause();
+					this.protocol.pause();
 					getContext().unbecome();
 				})
-				.match(ResetGameMsg.class, resetMsg -> {
-					this.cellsActorsMap.values().forEach(cellRef -> {
-						getContext().stop(cellRef);
-					});
-					getContext().become(receiveBuilder()
-							.match(Terminated.class, t -> this.cellsActorsMap.values().contains(t.actor()), t -> {
-								this.nTerminatedCells++;
-								if (this.nTerminatedCells == this.cellsActorsMap.size()) {
-									unstashAll();
-									getContext().become(initializingBehavior);
-								}
-							})
-							.match(InitGridMsg.class, msg -> stash())
-							.matchAny(msg -> log.info("Received unknown message: " + msg))
-							.build(), false);
-				})
+				.match(SaveCheckpointMsg.class, msg -> saveCheckpoint(msg.getFile()))
+				.match(SubscribeRegionMsg.class, msg -> subscribeRegion(msg.getArea()))
+				.match(Terminated.class, msg -> logLostActor(msg.actor()))
+				.match(ResetGameMsg.class, resetMsg -> reset())
 				.matchAny(msg -> log.info("Received unknown message: " + msg))
 				.build();
 	}
 	
 	/*
-	 * Calculates the references to the actors linked to the neighbors
-	 * of the cell with the specified position.
+	 * Clears the partial results and requests the computation of the next generation.
+	 */
+	private void startNextGeneration() {
+		this.generationInProgress = true;
+		this.nChangedCells = 0;
+		this.nDeliveredMessages = MessageCounter.getDeliveredMessages();
+		this.generationStartTime = System.nanoTime();
+		this.timer.start();
+		// The protocol can complete the generation before returning (e.g. with results already arrived)
+		this.protocol.startStep(this.nSteps, this.creditBased ? this.credits : Integer.MAX_VALUE);
+	}
+	
+	/*
+	 * Notifies the view with the results of the generation just computed and starts the next one.
+	 */
+	private void completeGeneration() {
+		this.generationInProgress = false;
+		if (this.pendingCheckpoint != null) {
+			saveCheckpoint(this.pendingCheckpoint);
+			this.pendingCheckpoint = null;
+		}
+		// Updates generations number (an engine can advance by more than one generation for each step)
+		this.nSteps++;
+		this.nGenerations = this.protocol.getGeneration();
+		// Calculates the averageTime (of a step)
+		this.timer.stop();
+		final long elapsedTime = this.timer.getTime();
+		this.averageTime += (elapsedTime - this.averageTime) / this.nSteps;
+		// Counts the messages delivered since the start of the generation (0 without the counting mailboxes)
+		final long nMessages = MessageCounter.getDeliveredMessages() - this.nDeliveredMessages;
+		// Without the pauses like the timer, but measured in nanoseconds instead of milliseconds
+		GameMetrics.recordGeneration(System.nanoTime() - this.generationStartTime);
+		// Notify the actor view with a full keyframe or only with the changed cells
+		if (this.nSteps % this.keyframeInterval == 0) {
+			sendResults(null, elapsedTime, nMessages);
+		} else {
+			final int[] generationChanges = Arrays.copyOf(this.changedCells, this.nChangedCells);
+			Arrays.sort(generationChanges);
+			sendResults(generationChanges, elapsedTime, nMessages);
+		}
+		
+		// Prepares and starts the computation for the new generation
+		tryStartNextGeneration();
+	}
+	
+	/*
+	 * Writes a copy of the last computed generation to a checkpoint file, without blocking the actor.
+	 * While a generation is being computed the grid is partially updated, so the saving is postponed.
+	 */
+	private void saveCheckpoint(final Path file) {
+		if (this.generationInProgress) {
+			this.pendingCheckpoint = file;
+			return;
+		}
+		final BitGrid generation = this.calculatedGeneration.copy();
+		CompletableFuture.runAsync(() -> {
+			try {
+				Checkpoint.write(file, generation);
+				log.info("Checkpoint saved to " + file);
+			} catch (final IOException e) {
+				log.error(e, "Cannot save the checkpoint to " + file);
+			}
+		}, getContext().getSystem().dispatchers().lookup(CHECKPOINT_DISPATCHER));
+	}
+	
+	/*
+	 * Sends the results of a generation to the view, using a credit (credit-based buffer), and to the history.
+	 * The view receives only the region it subscribed, with a keyframe whenever the region changes,
+	 * while the history always receives the whole generation.
+	 */
+	private void sendResults(final int[] generationChanges, final long elapsedTime, final long nMessages) {
+		final Rectangle area = getRegionArea();
+		final boolean isWholeGrid = area.width == this.width && area.height == this.height;
+		if (generationChanges == null || !area.equals(this.sentArea)) {
+			this.view.tell(isWholeGrid
+					? new ViewActor.GenerationResultsMsg(this.nGenerations, this.calculatedGeneration.copy(),
+							elapsedTime, this.averageTime, this.nAliveCells, nMessages)
+					: new ViewActor.GenerationResultsMsg(this.nGenerations, GridRegion.extract(this.calculatedGeneration, area),
+							elapsedTime, this.averageTime, this.nAliveCells, nMessages), getSelf());
+		} else {
+			this.view.tell(new ViewActor.GenerationResultsMsg(this.nGenerations,
+					isWholeGrid ? generationChanges : filterChanges(generationChanges, area),
+					elapsedTime, this.averageTime, this.nAliveCells, nMessages), getSelf());
+		}
+		this.sentArea = area;
+		
+		if (this.history != null) {
+			// The view can modify its keyframes, so the history receives its own copy
+			this.history.tell(generationChanges == null
+					? new ViewActor.GenerationResultsMsg(this.nGenerations, this.calculatedGeneration.copy(),
+							elapsedTime, this.averageTime, this.nAliveCells, nMessages)
+					: new ViewActor.GenerationResultsMsg(this.nGenerations, generationChanges,
+							elapsedTime, this.averageTime, this.nAliveCells, nMessages), getSelf());
+		}
+		if (this.creditBased) {
+			this.credits--;
+		}
+		
+		// A view that shows only a region is also told about the rest of the grid, at low rate
+		final long now = System.nanoTime();
+		if (this.subscribedRegion != null && now - this.lastSummaryTime >= this.summaryInterval) {
+			this.lastSummaryTime = now;
+			this.view.tell(new ViewActor.GridSummaryMsg(DensitySummary.of(this.calculatedGeneration, SUMMARY_BLOCKS)), getSelf());
+		}
+	}
+	
+	/*
+	 * Changes the region of the grid sent to the view and sends it the cells it has not received yet.
+	 * While a generation is being computed the grid is partially updated, so the changes already applied
+	 * are reverted in the copy, which always contains the last completed generation.
 	 */
-	private Set<ActorRef> getCellNeighbours(final Point cellPosition) {
-		final Set<ActorRef> neighbours = new HashSet<ActorRef>();
-		for (int y = cellPosition.y - 1; y <= cellPosition.y + 1; y++) {
-			for (int x = cellPosition.x - 1; x <= cellPosition.x + 1; x++) {
-				if (cellPosition.y != y || cellPosition.x != x) {
-					neighbours.add(this.cellsActorsMap.get(
-							new Point((x + this.width) % this.width, (y + this.height) % this.height)));
+	private void subscribeRegion(final Rectangle region) {
+		this.subscribedRegion = region;
+		final Rectangle area = getRegionArea();
+		if (!area.equals(this.sentArea)) {
+			final GridRegion fill = GridRegion.extract(this.calculatedGeneration, area);
+			if (this.generationInProgress) {
+				for (int i = 0; i < this.nChangedCells; i++) {
+					final int index = this.changedCells[i];
+					if (area.contains(index % this.width, index / this.width)) {
+						fill.getCells().flip(fill.toRegionIndex(index));
+					}
 				}
 			}
+			this.view.tell(new ViewActor.RegionFillMsg(this.nGenerations, fill, this.sentArea), getSelf());
+		}
+	}
+	
+	/*
+	 * Returns the area of the grid sent to the view: the subscribed region inside the grid, or the whole grid.
+	 */
+	private Rectangle getRegionArea() {
+		final Rectangle grid = new Rectangle(0, 0, this.width, this.height);
+		if (this.subscribedRegion == null) {
+			return grid;
+		}
+		final Rectangle area = grid.intersection(this.subscribedRegion);
+		return area.isEmpty() ? grid : area;
+	}
+	
+	/*
+	 * Keeps only the sorted row-major indices of the changed cells inside an area.
+	 */
+	private int[] filterChanges(final int[] generationChanges, final Rectangle area) {
+		final int[] areaChanges = new int[generationChanges.length];
+		int nAreaChanges = 0;
+		for (final int index : generationChanges) {
+			if (area.contains(index % this.width, index / this.width)) {
+				areaChanges[nAreaChanges++] = index;
+			}
+		}
+		return Arrays.copyOf(areaChanges, nAreaChanges);
+	}
+	
+	/*
+	 * Adds the credits given back by the view (never more than the capacity of its buffer).
+	 */
+	private void addCredits(final int newCredits) {
+		this.credits = Math.min(this.maxCredits, this.credits + newCredits);
+	}
+	
+	/*
+	 * Starts the next generation, unless the view has no more credits for its results (credit-based buffer).
+	 */
+	private void tryStartNextGeneration() {
+		this.waitingForCredits = this.creditBased && this.credits <= 0;
+		if (!this.waitingForCredits) {
+			startNextGeneration();
+		}
+	}
+	
+	/*
+	 * Inverts the state of the cell with the specified row-major index and records the change.
+	 */
+	private void applyChange(final int index) {
+		this.calculatedGeneration.flip(index);
+		this.nAliveCells += this.calculatedGeneration.get(index) ? 1 : -1;
+		if (this.nChangedCells == this.changedCells.length) {
+			this.changedCells = Arrays.copyOf(this.changedCells, this.changedCells.length * 2);
 		}
-		return neighbours;
+		this.changedCells[this.nChangedCells++] = index;
+	}
+	
+	/*
+	 * Stops all the actors of the engine and, once they are terminated, goes back to the initializing state.
+	 */
+	private void reset() {
+		final Set<ActorRef> activeActors = this.protocol.dispose();
+		if (activeActors.isEmpty()) {
+			unstashAll();
+			getContext().become(this.initializingBehavior);
+		} else {
+			getContext().become(receiveBuilder()
+					.match(Terminated.class, t -> activeActors.contains(t.actor()), t -> {
+						this.nTerminatedActors++;
+						if (this.nTerminatedActors == activeActors.size()) {
+							unstashAll();
+							getContext().become(initializingBehavior);
+						}
+					})
+					.match(InitGridMsg.class, msg -> stash())
+					.match(SubscribeRegionMsg.class, msg -> this.subscribedRegion = msg.getArea())
+					.matchAny(msg -> log.info("Received unknown message: " + msg))
+					.build(), false);
+		}
+	}
+	
+	/*
+	 * Checks if a message belongs to the protocol that computes the generations (e.g. a partial result).
+	 */
+	private boolean isProtocolMessage(final Object msg) {
+		return this.protocol != null && this.protocol.getResultsBehavior().onMessage().isDefinedAt(msg);
+	}
+	
+	/*
+	 * Reports an actor of the engine stopped unexpectedly (e.g. a remote worker is unreachable):
+	 * the game cannot go on until it is reset.
+	 */
+	private void logLostActor(final ActorRef actor) {
+		log.error("The actor " + actor + " is terminated, the game must be reset");
+	}
+	
+	@Override
+	public void stash() {
+		super.stash();
+		this.nStashedMessages++;
+		STASH_COUNTER.stashed();
+	}
+	
+	@Override
+	public void unstashAll() {
+		super.unstashAll();
+		STASH_COUNTER.unstashed(this.nStashedMessages);
+		this.nStashedMessages = 0;
 	}
 	
 	@Override
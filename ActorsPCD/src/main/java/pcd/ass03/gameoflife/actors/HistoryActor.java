@@ -0,0 +1,174 @@
+package pcd.ass03.gameoflife.actors;
+
+import com.typesafe.config.Config;
+
+import akka.actor.AbstractActor;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.GenerationHistory;
+
+/**
+ * This actor records the generations computed by the grid in an off-heap {@link GenerationHistory},
+ * so that the view can move back and forth through them while the game goes on.
+ *
+ */
+public class HistoryActor extends AbstractActor {
+
+	private static final String SIZE_SETTING = "gameoflife.history.size-mb";
+	private static final String MAX_GENERATIONS_SETTING = "gameoflife.history.max-generations";
+	private static final String KEYFRAME_INTERVAL_SETTING = "gameoflife.history.keyframe-interval";
+
+	private final GenerationHistory history;
+	private BitGrid currentGeneration;
+
+	private final LoggingAdapter log;
+
+
+	/**
+	 * The generations that can be requested, relative to a reference one.
+	 */
+	public enum Seek {
+		OLDEST, PREVIOUS, NEXT, LATEST
+	}
+
+	/**
+	 * This message requests a stored generation.
+	 */
+	public static final class SeekMsg {
+		private final Seek seek;
+		private final long generation;
+
+		/**
+		 * @param seek
+		 * 		the requested generation
+		 * @param generation
+		 * 		the reference generation (for {@link Seek#PREVIOUS} and {@link Seek#NEXT})
+		 */
+		public SeekMsg(final Seek seek, final long generation) {
+			this.seek = seek;
+			this.generation = generation;
+		}
+
+		public Seek getSeek() {
+			return this.seek;
+		}
+
+		public long getGeneration() {
+			return this.generation;
+		}
+	}
+
+	/**
+	 * This message contains a stored generation, in reply to a {@link SeekMsg}.
+	 * If the requested generation does not exist, the nearest one is sent.
+	 */
+	public static final class StoredGenerationMsg {
+		private final long generation;
+		private final BitGrid cells;
+		private final boolean isLatest;
+
+		public StoredGenerationMsg(final long generation, final BitGrid cells, final boolean isLatest) {
+			this.generation = generation;
+			this.cells = cells;
+			this.isLatest = isLatest;
+		}
+
+		public long getGeneration() {
+			return this.generation;
+		}
+
+		/**
+		 * @return the cells of the generation, or null if the history is empty
+		 */
+		public BitGrid getCells() {
+			return this.cells;
+		}
+
+		/**
+		 * @return true if this is the last generation received from the grid
+		 */
+		public boolean isLatest() {
+			return this.isLatest;
+		}
+	}
+
+
+	/**
+	 * Creates Props for a history actor.
+	 *
+	 * @return a Props for creating history actor, which can then be further configured
+	 */
+	public static Props props() {
+		return Props.create(HistoryActor.class);
+	}
+
+	/**
+	 * Creates a history actor, with the off-heap buffer sized as configured.
+	 */
+	public HistoryActor() {
+		final Config config = getContext().getSystem().settings().config();
+		this.history = new GenerationHistory(
+				(config.hasPath(SIZE_SETTING) ? config.getInt(SIZE_SETTING) : 64) << 20,
+				config.hasPath(MAX_GENERATIONS_SETTING) ? config.getInt(MAX_GENERATIONS_SETTING) : 100000,
+				config.hasPath(KEYFRAME_INTERVAL_SETTING) ? config.getInt(KEYFRAME_INTERVAL_SETTING) : 64);
+
+		this.log = Logging.getLogger(getContext().getSystem(), this);
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(ViewActor.GenerationResultsMsg.class, msg -> {
+					if (msg.isKeyframe()) {
+						if (msg.getGenerationNumber() <= this.history.getLatestGeneration()
+								|| this.currentGeneration == null
+								|| this.currentGeneration.getWidth() != msg.getGenerationComputed().getWidth()
+								|| this.currentGeneration.getHeight() != msg.getGenerationComputed().getHeight()) {
+							// A new game is started
+							this.history.reset(msg.getGenerationComputed().getWidth(), msg.getGenerationComputed().getHeight());
+							if (!this.history.isEnabled()) {
+								log.warning("The grid is too big to record its history");
+							}
+						}
+						this.currentGeneration = msg.getGenerationComputed();
+					} else if (this.currentGeneration != null) {
+						for (final int index : msg.getChangedCells()) {
+							this.currentGeneration.flip(index);
+						}
+					}
+					if (this.currentGeneration != null) {
+						this.history.append(msg.getGenerationNumber(), this.currentGeneration);
+					}
+				})
+				.match(SeekMsg.class, msg -> {
+					long generation;
+					switch (msg.getSeek()) {
+					case OLDEST:
+						generation = this.history.getOldestGeneration();
+						break;
+					case PREVIOUS:
+						generation = this.history.getGenerationBefore(msg.getGeneration());
+						if (generation < 0) {
+							generation = this.history.getOldestGeneration();
+						}
+						break;
+					case NEXT:
+						generation = this.history.getGenerationAfter(msg.getGeneration());
+						if (generation < 0) {
+							generation = this.history.getLatestGeneration();
+						}
+						break;
+					default:
+						generation = this.history.getLatestGeneration();
+						break;
+					}
+					getSender().tell(new StoredGenerationMsg(generation, generation < 0 ? null : this.history.get(generation),
+							generation == this.history.getLatestGeneration()), getSelf());
+				})
+				.matchAny(msg -> log.info("Received unknown message: " + msg))
+				.build();
+	}
+
+}
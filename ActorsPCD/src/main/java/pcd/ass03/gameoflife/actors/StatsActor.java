@@ -0,0 +1,185 @@
+package pcd.ass03.gameoflife.actors;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * This actor takes the place of the view actor when the game runs without user interface:
+ * it starts the game, writes the statistics of each generation and, once the requested
+ * generation is reached, writes a summary and terminates the actor system.
+ *
+ */
+public class StatsActor extends AbstractActor {
+
+	/**
+	 * The formats of the statistics.
+	 */
+	public enum Format {
+		CSV, JSON
+	}
+
+	private final ActorRef grid;
+	private final long lastGeneration;
+	private final Writer output;
+	private final Format format;
+	private final PrintStream summaryOutput;
+
+	private long[] latencies;
+	private int nGenerations;
+	private long nMessages;
+	private long startTime;
+	private long lastResultTime;
+
+	private final LoggingAdapter log;
+
+
+	/**
+	 * Creates Props for a stats actor.
+	 *
+	 * @param grid
+	 * 		the grid actor, already initialized with this actor as view
+	 * @param lastGeneration
+	 * 		the generation after which the game is stopped
+	 * @param output
+	 * 		the writer of the statistics, closed at the end
+	 * @param format
+	 * 		the format of the statistics
+	 * @param summaryOutput
+	 * 		the stream where the summary is printed
+	 * @return a Props for creating stats actor, which can then be further configured
+	 */
+	public static Props props(final ActorRef grid, final long lastGeneration, final Writer output, final Format format,
+			final PrintStream summaryOutput) {
+		return Props.create(StatsActor.class, grid, lastGeneration, output, format, summaryOutput);
+	}
+
+	/**
+	 * Creates a stats actor.
+	 */
+	public StatsActor(final ActorRef grid, final long lastGeneration, final Writer output, final Format format,
+			final PrintStream summaryOutput) {
+		this.grid = grid;
+		this.lastGeneration = lastGeneration;
+		this.output = output;
+		this.format = format;
+		this.summaryOutput = summaryOutput;
+		this.latencies = new long[1024];
+		this.nGenerations = 0;
+		this.nMessages = 0;
+
+		this.log = Logging.getLogger(getContext().getSystem(), this);
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(ViewActor.GenerationResultsMsg.class, msg -> msg.getGenerationNumber() == 0, msg -> {
+					// The grid is initialized: the game can start
+					writeHeader();
+					this.startTime = System.nanoTime();
+					this.lastResultTime = this.startTime;
+					this.grid.tell(new GridActor.GenerationCreditMsg(1), getSelf());
+					this.grid.tell(new GridActor.StartGameMsg(), ActorRef.noSender());
+				})
+				.match(ViewActor.GenerationResultsMsg.class, msg -> {
+					// The results of a generation arrive as soon as the previous ones, so their distance is its latency
+					final long now = System.nanoTime();
+					final long latency = now - this.lastResultTime;
+					this.lastResultTime = now;
+					if (this.nGenerations == this.latencies.length) {
+						this.latencies = Arrays.copyOf(this.latencies, this.latencies.length * 2);
+					}
+					this.latencies[this.nGenerations++] = latency;
+					this.nMessages += msg.getNumberOfMessages();
+					// The results are consumed immediately (credit-based buffer)
+					getSender().tell(new GridActor.GenerationCreditMsg(1), getSelf());
+					writeGeneration(msg, latency);
+
+					if (msg.getGenerationNumber() >= this.lastGeneration) {
+						this.grid.tell(new GridActor.PauseGameMsg(), ActorRef.noSender());
+						writeSummary(now - this.startTime);
+						getContext().getSystem().terminate();
+						getContext().become(receiveBuilder()
+								.match(ViewActor.GenerationResultsMsg.class, res -> { })
+								.build());
+					}
+				})
+				.matchAny(msg -> log.info("Received unknown message: " + msg))
+				.build();
+	}
+
+	/*
+	 * Writes the beginning of the statistics.
+	 */
+	private void writeHeader() throws IOException {
+		if (this.format == Format.CSV) {
+			this.output.write("generation,elapsed_ms,latency_us,alive_cells,messages\n");
+		} else {
+			this.output.write("{\n  \"generations\": [");
+		}
+	}
+
+	/*
+	 * Writes the statistics of a generation.
+	 */
+	private void writeGeneration(final ViewActor.GenerationResultsMsg res, final long latency) throws IOException {
+		if (this.format == Format.CSV) {
+			this.output.write(res.getGenerationNumber() + "," + res.getTimeElapsed() + "," + latency / 1000 + ","
+					+ res.getNumberOfAliveCells() + "," + res.getNumberOfMessages() + "\n");
+		} else {
+			this.output.write((this.nGenerations > 1 ? ",\n" : "\n")
+					+ "    { \"generation\": " + res.getGenerationNumber()
+					+ ", \"elapsed_ms\": " + res.getTimeElapsed()
+					+ ", \"latency_us\": " + latency / 1000
+					+ ", \"alive_cells\": " + res.getNumberOfAliveCells()
+					+ ", \"messages\": " + res.getNumberOfMessages() + " }");
+		}
+	}
+
+	/*
+	 * Writes the summary of the run and closes the statistics.
+	 */
+	private void writeSummary(final long totalTime) throws IOException {
+		final long[] sortedLatencies = Arrays.copyOf(this.latencies, this.nGenerations);
+		Arrays.sort(sortedLatencies);
+		final double seconds = totalTime / 1e9;
+		final double generationsPerSecond = this.nGenerations / seconds;
+		final double p50 = getPercentile(sortedLatencies, 50) / 1e6;
+		final double p99 = getPercentile(sortedLatencies, 99) / 1e6;
+		final double max = getPercentile(sortedLatencies, 100) / 1e6;
+
+		if (this.format == Format.JSON) {
+			this.output.write(String.format(Locale.ROOT, "\n  ],\n  \"summary\": { \"generations\": %d, \"total_s\": %.3f,"
+					+ " \"generations_per_s\": %.2f, \"p50_ms\": %.3f, \"p99_ms\": %.3f, \"max_ms\": %.3f, \"messages\": %d }\n}\n",
+					this.nGenerations, seconds, generationsPerSecond, p50, p99, max, this.nMessages));
+		}
+		this.output.close();
+
+		this.summaryOutput.println(String.format(Locale.ROOT, "Generations: %d in %.3f s (%.2f generations/s)",
+				this.nGenerations, seconds, generationsPerSecond));
+		this.summaryOutput.println(String.format(Locale.ROOT, "Generation latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+				p50, p99, max));
+		this.summaryOutput.println("Messages: " + this.nMessages);
+	}
+
+	/*
+	 * Returns the percentile of the sorted values (nearest rank).
+	 */
+	private static long getPercentile(final long[] sortedValues, final int percentile) {
+		if (sortedValues.length == 0) {
+			return 0;
+		}
+		final int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+		return sortedValues[Math.max(0, rank - 1)];
+	}
+
+}
@@ -0,0 +1,397 @@
+package pcd.ass03.gameoflife.actors;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * This actor represents a rectangular block of cells for the Conway's Game Of Life.
+ * The cells are kept in primitive arrays and, for each generation, only the borders
+ * (halos) are exchanged with the (up to) 8 neighbour tiles.
+ * With the adopted solution, the generation completion requires 8 + 1 messages for each tile.
+ * In pipelined mode, instead, the grid lets the tiles compute the generations up to a limit, and each tile
+ * computes a generation as soon as the halos of its neighbours are known, without waiting for the whole grid.
+ *
+ */
+public class TileActor extends AbstractActor {
+
+	/**
+	 * The directions of the neighbour tiles, in row-major order around the tile.
+	 */
+	public static final int NORTH_WEST = 0;
+	public static final int NORTH = 1;
+	public static final int NORTH_EAST = 2;
+	public static final int WEST = 3;
+	public static final int EAST = 4;
+	public static final int SOUTH_WEST = 5;
+	public static final int SOUTH = 6;
+	public static final int SOUTH_EAST = 7;
+	public static final int N_DIRECTIONS = 8;
+
+	private static final int[] DIRECTION_DX = { -1, 0, 1, -1, 1, -1, 0, 1 };
+	private static final int[] DIRECTION_DY = { -1, -1, -1, 0, 0, 1, 1, 1 };
+
+	private final int originX;
+	private final int originY;
+	private final int width;
+	private final int height;
+	private ActorRef[] neighbours;
+	private boolean[] cells;
+	private boolean[] nextCells;
+	private final byte[] paddedCells;
+	private final int[] changedCells;
+
+	private int generation;
+	private final boolean[][][] halos;
+	private final int[] nArrivedHalos;
+	private ActorRef computeRequester;
+	private ActorRef resultsCollector;
+	private int lastGeneration;
+
+	private final LoggingAdapter log;
+
+
+	/**
+	 * This message allows to define the neighbour tiles.
+	 */
+	public static final class NeighboursMsg implements Serializable {
+		private static final long serialVersionUID = -2481040521166681822L;
+
+		private final ActorRef[] neighbours;
+
+		/**
+		 * @param neighbours
+		 * 		the references to the neighbour tiles, indexed by direction
+		 */
+		public NeighboursMsg(final ActorRef[] neighbours) {
+			this.neighbours = neighbours.clone();
+		}
+
+		public ActorRef[] getNeighbours() {
+			return this.neighbours;
+		}
+	}
+
+	/**
+	 * This message allows to set the cells states during the initialization.
+	 */
+	public static final class SetStateMsg implements Serializable {
+		private static final long serialVersionUID = 3226200683373518969L;
+
+		private final boolean[] states;
+
+		/**
+		 * @param states
+		 * 		the states of the cells of the tile, in row-major order
+		 */
+		public SetStateMsg(final boolean[] states) {
+			this.states = states.clone();
+		}
+
+		public boolean[] getStates() {
+			return this.states;
+		}
+	}
+
+	/**
+	 * This message requests the tile computation for the current generation.
+	 */
+	public static final class ComputeMsg implements Serializable {
+		private static final long serialVersionUID = 9192217636921393138L;
+
+		private final ActorRef sender;
+
+		public ComputeMsg(final ActorRef sender) {
+			this.sender = sender;
+		}
+
+		public ActorRef getSender() {
+			return this.sender;
+		}
+	}
+
+	/**
+	 * This message lets the tile compute autonomously the generations up to the specified one (pipelined mode).
+	 */
+	public static final class RunMsg implements Serializable {
+		private static final long serialVersionUID = 4417368405372096513L;
+
+		private final ActorRef sender;
+		private final int lastGeneration;
+
+		/**
+		 * @param sender
+		 * 		the actor that receives the changes of each generation
+		 * @param lastGeneration
+		 * 		the last generation that can be computed
+		 */
+		public RunMsg(final ActorRef sender, final int lastGeneration) {
+			this.sender = sender;
+			this.lastGeneration = lastGeneration;
+		}
+
+		public ActorRef getSender() {
+			return this.sender;
+		}
+
+		public int getLastGeneration() {
+			return this.lastGeneration;
+		}
+	}
+
+	/**
+	 * This message contains the border of a neighbour tile for a certain generation.
+	 */
+	public static final class HaloMsg implements Serializable {
+		private static final long serialVersionUID = -5934398258710840539L;
+
+		private final int generation;
+		private final int direction;
+		private final boolean[] border;
+
+		/**
+		 * @param generation
+		 * 		the generation to which the border refers
+		 * @param direction
+		 * 		the direction of the sender tile, as seen from the receiver
+		 * @param border
+		 * 		the states of the border cells
+		 */
+		public HaloMsg(final int generation, final int direction, final boolean[] border) {
+			this.generation = generation;
+			this.direction = direction;
+			this.border = border;
+		}
+
+		public int getGeneration() {
+			return this.generation;
+		}
+
+		public int getDirection() {
+			return this.direction;
+		}
+
+		public boolean[] getBorder() {
+			return this.border;
+		}
+	}
+
+
+	/**
+	 * Creates Props for a tile actor.
+	 *
+	 * @param originX
+	 * 		the x coordinate of the top-left cell of the tile
+	 * @param originY
+	 * 		the y coordinate of the top-left cell of the tile
+	 * @param width
+	 * 		the number of columns of the tile
+	 * @param height
+	 * 		the number of rows of the tile
+	 * @return a Props for creating tile actor, which can then be further configured
+	 */
+	public static Props props(final int originX, final int originY, final int width, final int height) {
+		return Props.create(TileActor.class, originX, originY, width, height);
+	}
+
+	/**
+	 * @param direction
+	 * 		a direction
+	 * @return the horizontal offset of the neighbour tile in the specified direction
+	 */
+	public static int getDirectionDx(final int direction) {
+		return DIRECTION_DX[direction];
+	}
+
+	/**
+	 * @param direction
+	 * 		a direction
+	 * @return the vertical offset of the neighbour tile in the specified direction
+	 */
+	public static int getDirectionDy(final int direction) {
+		return DIRECTION_DY[direction];
+	}
+
+	/**
+	 * @param direction
+	 * 		a direction
+	 * @return the opposite direction
+	 */
+	public static int getOppositeDirection(final int direction) {
+		return N_DIRECTIONS - 1 - direction;
+	}
+
+	/**
+	 * Creates a tile actor.
+	 *
+	 * @param originX
+	 * 		the x coordinate of the top-left cell of the tile
+	 * @param originY
+	 * 		the y coordinate of the top-left cell of the tile
+	 * @param width
+	 * 		the number of columns of the tile
+	 * @param height
+	 * 		the number of rows of the tile
+	 */
+	public TileActor(final int originX, final int originY, final int width, final int height) {
+		this.originX = originX;
+		this.originY = originY;
+		this.width = width;
+		this.height = height;
+		this.neighbours = new ActorRef[N_DIRECTIONS];
+		this.cells = new boolean[width * height];
+		this.nextCells = new boolean[width * height];
+		this.paddedCells = new byte[(width + 2) * (height + 2)];
+		this.changedCells = new int[width * height];
+
+		this.generation = 0;
+		// The halos of two consecutive generations can be pending at the same time
+		this.halos = new boolean[2][N_DIRECTIONS][];
+		this.nArrivedHalos = new int[2];
+		this.computeRequester = null;
+		this.resultsCollector = null;
+		this.lastGeneration = 0;
+
+		this.log = Logging.getLogger(getContext().getSystem(), this);
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(NeighboursMsg.class, msg -> this.neighbours = msg.getNeighbours())
+				.match(SetStateMsg.class, msg -> {
+					this.cells = msg.getStates();
+					this.generation = 0;
+					this.lastGeneration = 0;
+					sendHalos();
+				})
+				.match(HaloMsg.class, msg -> {
+					// Halos can arrive one generation in advance, so they are kept separated by parity
+					final int slot = msg.getGeneration() & 1;
+					this.halos[slot][msg.getDirection()] = msg.getBorder();
+					this.nArrivedHalos[slot]++;
+					tryCompute();
+				})
+				.match(ComputeMsg.class, msg -> {
+					this.computeRequester = msg.getSender();
+					tryCompute();
+				})
+				.match(RunMsg.class, msg -> {
+					this.resultsCollector = msg.getSender();
+					this.lastGeneration = Math.max(this.lastGeneration, msg.getLastGeneration());
+					tryCompute();
+				})
+				.matchAny(msg -> this.log.info("Received unknown message: " + msg))
+				.build();
+	}
+
+	/*
+	 * Computes the next generations, as long as they are requested (or allowed in pipelined mode)
+	 * and all the halos of the current one are arrived.
+	 */
+	private void tryCompute() {
+		int slot = this.generation & 1;
+		while ((this.computeRequester != null || this.generation < this.lastGeneration) && this.nArrivedHalos[slot] == N_DIRECTIONS) {
+			fillPaddedCells(this.halos[slot]);
+			this.nArrivedHalos[slot] = 0;
+
+			int nChangedCells = 0;
+			final int paddedWidth = this.width + 2;
+			for (int y = 0; y < this.height; y++) {
+				final int up = y * paddedWidth;
+				final int middle = up + paddedWidth;
+				final int down = middle + paddedWidth;
+				for (int x = 0; x < this.width; x++) {
+					final int aliveNeighbours =
+							this.paddedCells[up + x] + this.paddedCells[up + x + 1] + this.paddedCells[up + x + 2]
+							+ this.paddedCells[middle + x] + this.paddedCells[middle + x + 2]
+							+ this.paddedCells[down + x] + this.paddedCells[down + x + 1] + this.paddedCells[down + x + 2];
+					final int index = y * this.width + x;
+					final boolean nextState = aliveNeighbours == 3 || (aliveNeighbours == 2 && this.cells[index]);
+					this.nextCells[index] = nextState;
+					if (nextState != this.cells[index]) {
+						this.changedCells[nChangedCells++] = index;
+					}
+				}
+			}
+
+			// Swaps the buffers
+			final boolean[] tmp = this.cells;
+			this.cells = this.nextCells;
+			this.nextCells = tmp;
+			this.generation++;
+
+			// Shares the new borders before notifying the changed cells
+			sendHalos();
+			final ActorRef requester = this.computeRequester != null ? this.computeRequester : this.resultsCollector;
+			requester.tell(new GridActor.TileNextStateMsg(this.generation, this.originX, this.originY, this.width, this.height,
+					Arrays.copyOf(this.changedCells, nChangedCells)), ActorRef.noSender());
+			this.computeRequester = null;
+			slot = this.generation & 1;
+		}
+	}
+
+	/*
+	 * Copies the current cells and the specified halos in the padded buffer used for the computation.
+	 */
+	private void fillPaddedCells(final boolean[][] currentHalos) {
+		final int paddedWidth = this.width + 2;
+		for (int y = 0; y < this.height; y++) {
+			for (int x = 0; x < this.width; x++) {
+				this.paddedCells[(y + 1) * paddedWidth + x + 1] = (byte) (this.cells[y * this.width + x] ? 1 : 0);
+			}
+		}
+		final int lastRow = (this.height + 1) * paddedWidth;
+		for (int x = 0; x < this.width; x++) {
+			this.paddedCells[x + 1] = (byte) (currentHalos[NORTH][x] ? 1 : 0);
+			this.paddedCells[lastRow + x + 1] = (byte) (currentHalos[SOUTH][x] ? 1 : 0);
+		}
+		for (int y = 0; y < this.height; y++) {
+			this.paddedCells[(y + 1) * paddedWidth] = (byte) (currentHalos[WEST][y] ? 1 : 0);
+			this.paddedCells[(y + 1) * paddedWidth + this.width + 1] = (byte) (currentHalos[EAST][y] ? 1 : 0);
+		}
+		this.paddedCells[0] = (byte) (currentHalos[NORTH_WEST][0] ? 1 : 0);
+		this.paddedCells[this.width + 1] = (byte) (currentHalos[NORTH_EAST][0] ? 1 : 0);
+		this.paddedCells[lastRow] = (byte) (currentHalos[SOUTH_WEST][0] ? 1 : 0);
+		this.paddedCells[lastRow + this.width + 1] = (byte) (currentHalos[SOUTH_EAST][0] ? 1 : 0);
+	}
+
+	/*
+	 * Sends to each neighbour the border of the current generation adjacent to it.
+	 */
+	private void sendHalos() {
+		for (int direction = 0; direction < N_DIRECTIONS; direction++) {
+			this.neighbours[direction].tell(new HaloMsg(this.generation, getOppositeDirection(direction), getBorder(direction)),
+					ActorRef.noSender());
+		}
+	}
+
+	/*
+	 * Extracts the border of the tile facing the specified direction.
+	 */
+	private boolean[] getBorder(final int direction) {
+		final int dx = DIRECTION_DX[direction];
+		final int dy = DIRECTION_DY[direction];
+		final int borderX = dx < 0 ? 0 : this.width - 1;
+		final int borderY = dy < 0 ? 0 : this.height - 1;
+		if (dx != 0 && dy != 0) {
+			return new boolean[] { this.cells[borderY * this.width + borderX] };
+		} else if (dy != 0) {
+			final boolean[] border = new boolean[this.width];
+			System.arraycopy(this.cells, borderY * this.width, border, 0, this.width);
+			return border;
+		} else {
+			final boolean[] border = new boolean[this.height];
+			for (int y = 0; y < this.height; y++) {
+				border[y] = this.cells[y * this.width + borderX];
+			}
+			return border;
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+package pcd.ass03.gameoflife.actors;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.typesafe.config.Config;
+
+import akka.actor.AbstractActor.ActorContext;
+import akka.actor.AbstractActor.Receive;
+import akka.actor.ActorRef;
+import akka.actor.Address;
+import akka.actor.AddressFromURIString;
+import akka.actor.Deploy;
+import akka.japi.pf.ReceiveBuilder;
+import akka.remote.RemoteScope;
+import pcd.ass03.gameoflife.actors.GridActor.TileNextStateMsg;
+import pcd.ass03.gameoflife.model.BitGrid;
+
+/**
+ * This protocol computes the generations with one actor for each block of cells, children of the grid actor
+ * (possibly deployed on remote workers). In barrier mode the grid requests each generation once the previous
+ * one is complete; in pipelined mode the tiles compute up to a bounded number of generations ahead, and the
+ * results of the following generations are kept until the current one is complete.
+ *
+ */
+class TilesProtocol implements GenerationProtocol {
+
+	private static final String TILE_SIZE_SETTING = "gameoflife.tile-size";
+	private static final int DEFAULT_TILE_SIZE = 32;
+	private static final String TILE_PROTOCOL_SETTING = "gameoflife.tile-protocol";
+	private static final String PIPELINED_PROTOCOL = "pipelined";
+	private static final String TILE_MAX_LEAD_SETTING = "gameoflife.tile-max-lead";
+	private static final int DEFAULT_TILE_MAX_LEAD = 4;
+	private static final String WORKERS_SETTING = "gameoflife.workers";
+
+	private final ActorContext context;
+	private final Results results;
+	private final Receive resultsBehavior;
+	private final int tileSize;
+	private final boolean pipelined;
+	private final int maxLead;
+	private final List<Address> workers;
+	private final Map<Point, ActorRef> tilesActorsMap;
+	private final Map<Integer, List<TileNextStateMsg>> earlyTileResults;
+	private int width;
+	private int step;
+	private boolean stepInProgress;
+	private int nComputedTiles;
+	private int grantedGeneration;
+
+
+	/**
+	 * Creates a protocol for the tile actors.
+	 *
+	 * @param context
+	 * 		the context of the grid actor
+	 * @param config
+	 * 		the configuration of the actor system, containing the protocol settings
+	 * @param results
+	 * 		the receiver of the results of the generations
+	 */
+	TilesProtocol(final ActorContext context, final Config config, final Results results) {
+		this.context = context;
+		this.results = results;
+		this.tileSize = config.hasPath(TILE_SIZE_SETTING) ? config.getInt(TILE_SIZE_SETTING) : DEFAULT_TILE_SIZE;
+		this.pipelined = config.hasPath(TILE_PROTOCOL_SETTING)
+				&& PIPELINED_PROTOCOL.equals(config.getString(TILE_PROTOCOL_SETTING));
+		this.maxLead = Math.max(1, config.hasPath(TILE_MAX_LEAD_SETTING)
+				? config.getInt(TILE_MAX_LEAD_SETTING) : DEFAULT_TILE_MAX_LEAD);
+		this.workers = config.hasPath(WORKERS_SETTING)
+				? config.getStringList(WORKERS_SETTING).stream().map(AddressFromURIString::parse).collect(Collectors.toList())
+				: Collections.emptyList();
+		this.tilesActorsMap = new HashMap<>();
+		this.earlyTileResults = new HashMap<>();
+		this.resultsBehavior = ReceiveBuilder.create()
+				.match(TileNextStateMsg.class, msg -> {
+					// In pipelined mode the tiles can send the following generations before the current one is complete
+					if (msg.getGeneration() > this.step + 1 || !this.stepInProgress) {
+						this.earlyTileResults.computeIfAbsent(msg.getGeneration(), g -> new ArrayList<>()).add(msg);
+					} else {
+						applyTileChanges(msg);
+					}
+				})
+				.build();
+	}
+
+	/*
+	 * Creates tile actors, registers their references in a map (by tile coordinates)
+	 * and sends them their neighbours and initial states.
+	 * If remote workers are configured, each of them receives a band of rows of tiles,
+	 * so only the halos at the edges of the bands are exchanged over the network.
+	 */
+	@Override
+	public void init(final BitGrid initialGeneration) {
+		this.width = initialGeneration.getWidth();
+		final int height = initialGeneration.getHeight();
+		final int nTilesX = (this.width + this.tileSize - 1) / this.tileSize;
+		final int nTilesY = (height + this.tileSize - 1) / this.tileSize;
+		for (int tileY = 0; tileY < nTilesY; tileY++) {
+			final Deploy deploy = this.workers.isEmpty() ? Deploy.local()
+					: new Deploy(new RemoteScope(this.workers.get(tileY * this.workers.size() / nTilesY)));
+			for (int tileX = 0; tileX < nTilesX; tileX++) {
+				final int originX = tileX * this.tileSize;
+				final int originY = tileY * this.tileSize;
+				final ActorRef tileActor = this.context.actorOf(TileActor.props(originX, originY,
+						Math.min(this.tileSize, this.width - originX), Math.min(this.tileSize, height - originY))
+						.withDeploy(deploy),
+						"tile_" + tileX + "_" + tileY);
+				this.tilesActorsMap.put(new Point(tileX, tileY), tileActor);
+				this.context.watch(tileActor);
+			}
+		}
+
+		// Sends neighbours to each tile (the grid is toroidal, so a tile can be a neighbour of itself)
+		this.tilesActorsMap.forEach((tilePos, tileRef) -> {
+			final ActorRef[] neighbours = new ActorRef[TileActor.N_DIRECTIONS];
+			for (int direction = 0; direction < TileActor.N_DIRECTIONS; direction++) {
+				neighbours[direction] = this.tilesActorsMap.get(new Point(
+						(tilePos.x + TileActor.getDirectionDx(direction) + nTilesX) % nTilesX,
+						(tilePos.y + TileActor.getDirectionDy(direction) + nTilesY) % nTilesY));
+			}
+			tileRef.tell(new TileActor.NeighboursMsg(neighbours), ActorRef.noSender());
+		});
+
+		// Sends the initial states to each tile
+		this.tilesActorsMap.forEach((tilePos, tileRef) -> {
+			final int originX = tilePos.x * this.tileSize;
+			final int originY = tilePos.y * this.tileSize;
+			final int tileWidth = Math.min(this.tileSize, this.width - originX);
+			final int tileHeight = Math.min(this.tileSize, height - originY);
+			final boolean[] states = new boolean[tileWidth * tileHeight];
+			for (int y = 0; y < tileHeight; y++) {
+				for (int x = 0; x < tileWidth; x++) {
+					states[y * tileWidth + x] = initialGeneration.get(originX + x, originY + y);
+				}
+			}
+			tileRef.tell(new TileActor.SetStateMsg(states), ActorRef.noSender());
+		});
+	}
+
+	@Override
+	public void startStep(final int step, final int credits) {
+		this.step = step;
+		this.stepInProgress = true;
+		this.nComputedTiles = 0;
+		if (this.pipelined) {
+			grantGenerations(credits);
+		} else {
+			final TileActor.ComputeMsg computeMsg = new TileActor.ComputeMsg(this.context.self());
+			this.tilesActorsMap.values().forEach(tileRef -> tileRef.tell(computeMsg, ActorRef.noSender()));
+		}
+		// The results of the tiles that are already arrived are applied only now (they can complete the generation)
+		final List<TileNextStateMsg> tileResults = this.earlyTileResults.remove(step + 1);
+		if (tileResults != null) {
+			tileResults.forEach(this::applyTileChanges);
+		}
+	}
+
+	@Override
+	public Receive getResultsBehavior() {
+		return this.resultsBehavior;
+	}
+
+	@Override
+	public void pause() {
+		// In pipelined mode the tiles stop by themselves at the last granted generation
+	}
+
+	@Override
+	public long getGeneration() {
+		return this.stepInProgress ? this.step : this.step + 1;
+	}
+
+	@Override
+	public Set<ActorRef> dispose() {
+		final Set<ActorRef> actors = new HashSet<>(this.tilesActorsMap.values());
+		actors.forEach(this.context::stop);
+		return actors;
+	}
+
+	/*
+	 * Lets the tiles compute the generations up to a bounded number after the last completed one (pipelined mode),
+	 * without exceeding the credits of the view (credit-based buffer). The limit is sent only when it has advanced
+	 * by half of the maximum lead, so there is no message to the tiles for each generation.
+	 */
+	private void grantGenerations(final int credits) {
+		final int lastGeneration = this.step + Math.min(this.maxLead, credits);
+		if (lastGeneration > this.grantedGeneration
+				&& (lastGeneration - this.grantedGeneration >= (this.maxLead + 1) / 2 || this.grantedGeneration <= this.step)) {
+			this.grantedGeneration = lastGeneration;
+			final TileActor.RunMsg runMsg = new TileActor.RunMsg(this.context.self(), lastGeneration);
+			this.tilesActorsMap.values().forEach(tileRef -> tileRef.tell(runMsg, ActorRef.noSender()));
+		}
+	}
+
+	/*
+	 * Reports the changes of a tile and completes the generation if all the tiles are computed.
+	 */
+	private void applyTileChanges(final TileNextStateMsg msg) {
+		for (final int tileIndex : msg.getChangedCells()) {
+			final int x = msg.getOriginX() + tileIndex % msg.getWidth();
+			final int y = msg.getOriginY() + tileIndex / msg.getWidth();
+			this.results.applyChange(y * this.width + x);
+		}
+		// If all the tiles of the current generation are computed...
+		this.nComputedTiles++;
+		if (this.nComputedTiles == this.tilesActorsMap.size()) {
+			this.stepInProgress = false;
+			this.results.completeGeneration();
+		}
+	}
+
+}
@@ -1,15 +1,19 @@
 package pcd.ass03.gameoflife.actors;
 
-import java.awt.Point;
-import java.util.Deque;
-import java.util.LinkedList;
-import java.util.Map;
+import java.awt.Rectangle;
+
+import com.typesafe.config.Config;
 
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
+import pcd.ass03.gameoflife.metrics.GameMetrics;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.DensitySummary;
+import pcd.ass03.gameoflife.model.GridRegion;
+import pcd.ass03.gameoflife.view.FrameState;
 import pcd.ass03.gameoflife.view.View;
 import pcd.ass03.gameoflife.view.ViewDataManager;
 
@@ -24,7 +28,16 @@ public class ViewActor extends AbstractActor {
 	private ActorRef scheduler;
 	private final View view;
 	
-	private final Deque<GenerationResultsMsg> generationsNotShown;
+	private final GenerationBuffer generationsNotShown;
+	private ActorRef grid;
+	
+	private final ActorRef history;
+	private boolean historyMode;
+	private boolean replaying;
+	private boolean waitingForKeyframe;
+	private long historyGeneration;
+	private long lastShownGeneration;
+	private FrameState frameState;
 	
 	private final LoggingAdapter log;
 	private Receive pausedBehavior;
@@ -46,33 +59,103 @@ public class ViewActor extends AbstractActor {
 	 */
 	public static final class ResetVisualizationMsg { }
 	
+	/**
+	 * This message allows to show the oldest generation stored in the history.
+	 */
+	public static final class RewindHistoryMsg { }
+	
+	/**
+	 * This message allows to show the generation preceding the one displayed.
+	 */
+	public static final class StepBackHistoryMsg { }
+	
+	/**
+	 * This message allows to show the stored generations one for each refresh,
+	 * until the visualization reaches the running game again.
+	 */
+	public static final class ReplayHistoryMsg { }
+	
 	/**
 	 * This message contains the results of a generation that must be displayed.
+	 * The results are either a keyframe of the grid (or of the region of the grid subscribed by the view)
+	 * or only the cells changed with respect to the previous generation.
 	 */
 	public static final class GenerationResultsMsg {
-		private final int generationNumber;
-		private final Map<Point, Boolean> generationComputed;
+		private final long generationNumber;
+		private final BitGrid generationComputed;
+		private final GridRegion region;
+		private final int[] changedCells;
 		private final long timeElapsed;
 		private final long averageTime;
 		private final int nAliveCells;
+		private final long nMessages;
 		
-		public GenerationResultsMsg(final int generationNumber, final Map<Point, Boolean> generationComputed,
-				final long timeElapsed, final long averageTime, final int nAliveCells) {
+		/**
+		 * Creates a keyframe with the whole generation.
+		 */
+		public GenerationResultsMsg(final long generationNumber, final BitGrid generationComputed,
+				final long timeElapsed, final long averageTime, final int nAliveCells, final long nMessages) {
+			this(generationNumber, generationComputed, null, null, timeElapsed, averageTime, nAliveCells, nMessages);
+		}
+		
+		/**
+		 * Creates a keyframe with only a region of the generation.
+		 */
+		public GenerationResultsMsg(final long generationNumber, final GridRegion region,
+				final long timeElapsed, final long averageTime, final int nAliveCells, final long nMessages) {
+			this(generationNumber, region.getCells(), region, null, timeElapsed, averageTime, nAliveCells, nMessages);
+		}
+		
+		/**
+		 * Creates a delta with the sorted row-major indices of the cells changed since the previous generation.
+		 */
+		public GenerationResultsMsg(final long generationNumber, final int[] changedCells,
+				final long timeElapsed, final long averageTime, final int nAliveCells, final long nMessages) {
+			this(generationNumber, null, null, changedCells, timeElapsed, averageTime, nAliveCells, nMessages);
+		}
+		
+		private GenerationResultsMsg(final long generationNumber, final BitGrid generationComputed, final GridRegion region,
+				final int[] changedCells, final long timeElapsed, final long averageTime, final int nAliveCells, final long nMessages) {
 			this.generationNumber = generationNumber;
 			this.generationComputed = generationComputed;
+			this.region = region;
+			this.changedCells = changedCells;
 			this.timeElapsed = timeElapsed;
 			this.averageTime = averageTime;
 			this.nAliveCells = nAliveCells;
+			this.nMessages = nMessages;
 		}
 		
-		public int getGenerationNumber() {
+		public long getGenerationNumber() {
 			return this.generationNumber;
 		}
 		
-		public Map<Point, Boolean> getGenerationComputed() {
+		public boolean isKeyframe() {
+			return this.generationComputed != null;
+		}
+		
+		/**
+		 * @return the whole generation (or its region), or null if the results are a delta
+		 */
+		public BitGrid getGenerationComputed() {
 			return this.generationComputed;
 		}
 		
+		/**
+		 * @return the region of the generation of a keyframe, or null if the results are a delta
+		 * 		or a keyframe of the whole generation
+		 */
+		public GridRegion getRegion() {
+			return this.region;
+		}
+		
+		/**
+		 * @return the row-major indices of the changed cells, or null if the results are a keyframe
+		 */
+		public int[] getChangedCells() {
+			return this.changedCells;
+		}
+		
 		public long getTimeElapsed() {
 			return this.timeElapsed;
 		}
@@ -84,6 +167,62 @@ public class ViewActor extends AbstractActor {
 		public int getNumberOfAliveCells() {
 			return this.nAliveCells;
 		}
+		
+		/**
+		 * @return the number of messages delivered to the actors during the computation of the generation
+		 * 		(0 if the messages are not counted)
+		 */
+		public long getNumberOfMessages() {
+			return this.nMessages;
+		}
+	}
+	
+	/**
+	 * This message contains the cells of the region subscribed by the view, sent as soon as the region changes.
+	 * Only the cells outside the previous region must be applied, since those inside it are already
+	 * kept up to date by the results. The cells belong to the last generation completed by the grid,
+	 * so they are drawn only when the view shows that generation.
+	 */
+	public static final class RegionFillMsg {
+		private final long generationNumber;
+		private final GridRegion region;
+		private final Rectangle previousArea;
+		
+		public RegionFillMsg(final long generationNumber, final GridRegion region, final Rectangle previousArea) {
+			this.generationNumber = generationNumber;
+			this.region = region;
+			this.previousArea = previousArea;
+		}
+		
+		public long getGenerationNumber() {
+			return this.generationNumber;
+		}
+		
+		public GridRegion getRegion() {
+			return this.region;
+		}
+		
+		/**
+		 * @return the area of the previous region, or null if there was no previous region
+		 */
+		public Rectangle getPreviousArea() {
+			return this.previousArea;
+		}
+	}
+	
+	/**
+	 * This message contains a summary of the population of the whole grid, sent at low rate for the minimap.
+	 */
+	public static final class GridSummaryMsg {
+		private final DensitySummary summary;
+		
+		public GridSummaryMsg(final DensitySummary summary) {
+			this.summary = summary;
+		}
+		
+		public DensitySummary getSummary() {
+			return this.summary;
+		}
 	}
 	
 	/**
@@ -108,16 +247,34 @@ public class ViewActor extends AbstractActor {
 	 * @return a Props for creating view actor, which can then be further configured
 	 */
 	public static Props props(final View view) {
-		return Props.create(ViewActor.class, view);
+		return props(view, null);
+	}
+	
+	/**
+	 * Creates Props for a view actor able to show the past generations.
+	 * 
+	 * @param view
+	 * 		the view
+	 * @param history
+	 * 		the history actor which records the generations (null if there is no history)
+	 * @return a Props for creating view actor, which can then be further configured
+	 */
+	public static Props props(final View view, final ActorRef history) {
+		return Props.create(ViewActor.class, view, history);
 	}
 	
 	/**
 	 * Creates a view actor.
 	 */
-	public ViewActor(final View view) {
+	public ViewActor(final View view, final ActorRef history) {
 		this.view = view;
+		this.history = history;
+		this.historyGeneration = -1;
+		this.lastShownGeneration = -1;
+		this.frameState = FrameState.EMPTY;
 		
-		this.generationsNotShown = new LinkedList<>();
+		final Config config = getContext().getSystem().settings().config();
+		this.generationsNotShown = new GenerationBuffer(GenerationBuffer.getPolicy(config), GenerationBuffer.getCapacity(config));
 		
 		this.log = Logging.getLogger(getContext().getSystem(), this);
 		
@@ -131,27 +288,66 @@ public class ViewActor extends AbstractActor {
 				.match(ChangeRefreshRateMsg.class, msg -> {
 					this.scheduler.tell(new SchedulerActor.ChangeRateMsg(msg.refreshRate), ActorRef.noSender());
 				})
-				.match(GenerationResultsMsg.class, msg -> this.generationsNotShown.add(msg))
-				.match(ResetVisualizationMsg.class, msg -> this.generationsNotShown.clear())
+				.match(GenerationResultsMsg.class, msg -> addResults(msg))
+				.match(ResetVisualizationMsg.class, msg -> clearResults())
+				.match(RegionFillMsg.class, msg -> fillRegion(msg))
+				.match(GridSummaryMsg.class, msg -> showSummary(msg))
 				.match(SchedulerActor.TickMsg.class, msg -> { })
+				.match(RewindHistoryMsg.class, msg -> seekHistory(HistoryActor.Seek.OLDEST))
+				.match(StepBackHistoryMsg.class, msg -> seekHistory(HistoryActor.Seek.PREVIOUS))
+				.match(ReplayHistoryMsg.class, msg -> this.replaying = this.historyMode)
+				.match(HistoryActor.StoredGenerationMsg.class, msg -> showStoredGeneration(msg))
 				.matchAny(msg -> log.info("Received unknown message: " + msg))
 				.build();
 		
 		this.playingBehavior = receiveBuilder()
 				.match(GenerationResultsMsg.class, msg -> {
 					// The arrived results are managed only with the refresh frequency determined by the scheduler
-					this.generationsNotShown.add(msg);
+					addResults(msg);
 				})
 				.match(SchedulerActor.TickMsg.class, refreshMsg -> {
+					if (this.historyMode) {
+						if (this.replaying) {
+							this.history.tell(new HistoryActor.SeekMsg(HistoryActor.Seek.NEXT, this.historyGeneration), getSelf());
+						}
+					} else if (this.waitingForKeyframe) {
+						// The deltas cannot be applied to a generation taken from the history
+						this.history.tell(new HistoryActor.SeekMsg(HistoryActor.Seek.LATEST, -1), getSelf());
+					}
+					
 					if (this.generationsNotShown.size() > 0) {
-						final GenerationResultsMsg res = this.generationsNotShown.pop();
-						// Shows results
-						this.view.drawCells(res.generationComputed);
-						ViewDataManager.getInstance().setGeneration(res.getGenerationNumber());
-						ViewDataManager.getInstance().setAliveCells(res.getNumberOfAliveCells());
-						ViewDataManager.getInstance().setElapsedTime(res.getTimeElapsed());
-						ViewDataManager.getInstance().setAvgElapsedTime(res.getAverageTime());
+						final GenerationResultsMsg res = this.generationsNotShown.poll();
+						// Gives the grid back the credit of the results (credit-based buffer)
+						if (this.generationsNotShown.getPolicy() == GenerationBuffer.Policy.CREDIT && this.grid != null) {
+							this.grid.tell(new GridActor.GenerationCreditMsg(1), getSelf());
+						}
+						if (this.waitingForKeyframe && res.isKeyframe()) {
+							this.waitingForKeyframe = false;
+						}
+						// Shows results, unless the history is displayed (the running game goes on anyway)
+						if (!this.historyMode && !this.waitingForKeyframe) {
+							if (res.getRegion() != null) {
+								this.view.drawRegion(res.getRegion(), null);
+							} else if (res.isKeyframe()) {
+								this.view.drawCells(res.getGenerationComputed());
+							} else {
+								this.view.updateCells(res.getChangedCells());
+							}
+							this.lastShownGeneration = res.getGenerationNumber();
+							this.frameState = this.frameState.withResults(res.getGenerationNumber(), res.getNumberOfAliveCells(),
+									res.getTimeElapsed(), res.getAverageTime());
+						}
+						// The fills of the region waiting for this generation can be drawn over it, while the older ones
+						// are discarded (the results of the following generation are a keyframe of the new region)
+						RegionFillMsg fill;
+						while ((fill = this.generationsNotShown.pollFill(res.getGenerationNumber())) != null) {
+							if (fill.getGenerationNumber() == res.getGenerationNumber()) {
+								drawFill(fill);
+							}
+						}
 					}
+					// The whole frame is published once for each tick
+					updateBufferData();
 				})
 				.match(ChangeRefreshRateMsg.class, msg -> {
 					this.scheduler.tell(new SchedulerActor.ChangeRateMsg(msg.refreshRate), ActorRef.noSender());
@@ -162,11 +358,124 @@ public class ViewActor extends AbstractActor {
 					// Goes into paused state
 					getContext().become(this.pausedBehavior);
 				})
-				.match(ResetVisualizationMsg.class, msg -> this.generationsNotShown.clear())
+				.match(ResetVisualizationMsg.class, msg -> clearResults())
+				.match(RegionFillMsg.class, msg -> fillRegion(msg))
+				.match(GridSummaryMsg.class, msg -> showSummary(msg))
+				.match(RewindHistoryMsg.class, msg -> seekHistory(HistoryActor.Seek.OLDEST))
+				.match(StepBackHistoryMsg.class, msg -> seekHistory(HistoryActor.Seek.PREVIOUS))
+				.match(ReplayHistoryMsg.class, msg -> this.replaying = this.historyMode)
+				.match(HistoryActor.StoredGenerationMsg.class, msg -> showStoredGeneration(msg))
 				.matchAny(msg -> log.info("Received unknown message: " + msg))
 				.build();
 	}
 	
+	/*
+	 * Buffers the results, keeping track of the grid that must receive the credits.
+	 */
+	private void addResults(final GenerationResultsMsg results) {
+		this.grid = getSender();
+		final long nDroppedGenerations = this.generationsNotShown.getDroppedGenerations();
+		this.generationsNotShown.add(results);
+		// The credits of the merged results are given back immediately, otherwise the grid would lose them
+		if (this.generationsNotShown.getPolicy() == GenerationBuffer.Policy.CREDIT
+				&& this.generationsNotShown.getDroppedGenerations() > nDroppedGenerations && this.grid != null) {
+			this.grid.tell(new GridActor.GenerationCreditMsg(
+					(int) (this.generationsNotShown.getDroppedGenerations() - nDroppedGenerations)), getSelf());
+		}
+	}
+	
+	/*
+	 * Discards the results not yet shown.
+	 */
+	private void clearResults() {
+		this.generationsNotShown.clear();
+		this.historyMode = false;
+		this.replaying = false;
+		this.waitingForKeyframe = false;
+		this.historyGeneration = -1;
+		this.lastShownGeneration = -1;
+		updateBufferData();
+	}
+	
+	/*
+	 * Requests a generation to the history, entering the history mode.
+	 */
+	private void seekHistory(final HistoryActor.Seek seek) {
+		if (this.history != null && this.lastShownGeneration >= 0) {
+			this.historyMode = true;
+			this.replaying = false;
+			this.history.tell(new HistoryActor.SeekMsg(seek,
+					this.historyGeneration >= 0 ? this.historyGeneration : this.lastShownGeneration), getSelf());
+		}
+	}
+	
+	/*
+	 * Shows a generation read from the history.
+	 * When the replay reaches the running game, the live results are shown again from the next keyframe.
+	 */
+	private void showStoredGeneration(final HistoryActor.StoredGenerationMsg stored) {
+		if ((!this.historyMode && !this.waitingForKeyframe) || stored.getCells() == null) {
+			if (stored.getCells() == null) {
+				// Nothing is recorded, so the history cannot be shown
+				this.historyMode = false;
+			}
+			return;
+		}
+		this.view.drawCells(stored.getCells());
+		this.frameState = this.frameState.withGeneration(stored.getGeneration(), stored.getCells().countAlive());
+		ViewDataManager.getInstance().publish(this.frameState);
+		this.historyGeneration = stored.getGeneration();
+		if (this.historyMode && this.replaying && stored.isLatest()) {
+			this.historyMode = false;
+			this.replaying = false;
+			this.waitingForKeyframe = true;
+		}
+		if (!this.historyMode) {
+			this.historyGeneration = -1;
+		}
+	}
+	
+	/*
+	 * Shows the cells of a new region subscribed by the view if their generation is already shown,
+	 * otherwise they wait in the buffer until the results of their generation are shown:
+	 * drawing them on arrival would mix them with an older generation.
+	 */
+	private void fillRegion(final RegionFillMsg fill) {
+		if (fill.getGenerationNumber() <= this.lastShownGeneration && this.generationsNotShown.size() == 0) {
+			drawFill(fill);
+		} else {
+			this.generationsNotShown.addFill(fill);
+		}
+	}
+	
+	/*
+	 * Draws the cells of a new region subscribed by the view, unless the history is displayed
+	 * (the next live keyframe will contain the region anyway).
+	 */
+	private void drawFill(final RegionFillMsg fill) {
+		if (!this.historyMode && !this.waitingForKeyframe) {
+			this.view.drawRegion(fill.getRegion(), fill.getPreviousArea());
+		}
+	}
+	
+	/*
+	 * Shows the summary of the running game, unless the history is displayed.
+	 */
+	private void showSummary(final GridSummaryMsg summary) {
+		if (!this.historyMode) {
+			this.view.drawSummary(summary.getSummary());
+		}
+	}
+	
+	/*
+	 * Shows the state of the buffer, together with the last shown generation.
+	 */
+	private void updateBufferData() {
+		this.frameState = this.frameState.withBuffer(this.generationsNotShown.size(), this.generationsNotShown.getDroppedGenerations());
+		ViewDataManager.getInstance().publish(this.frameState);
+		GameMetrics.recordViewBuffer(this.frameState.getBufferedGenerations(), this.frameState.getDroppedGenerations());
+	}
+	
 	@Override
 	public void preStart() {
 		// Creates the scheduler actor
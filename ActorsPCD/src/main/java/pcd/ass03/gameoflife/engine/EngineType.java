@@ -0,0 +1,85 @@
+package pcd.ass03.gameoflife.engine;
+
+import java.util.function.Function;
+
+import com.typesafe.config.Config;
+
+/**
+ * This enumeration represents the engines that can be used to compute the generations
+ * of the Conway's Game Of Life.
+ *
+ */
+public enum EngineType {
+
+	/**
+	 * One actor for each cell of the grid.
+	 */
+	CELL_ACTORS("Cell actors", null),
+
+	/**
+	 * One actor for each block of cells, exchanging only the borders with the neighbour blocks.
+	 */
+	TILE_ACTORS("Tile actors", null),
+
+	/**
+	 * Shared-memory engine based on parallel streams.
+	 */
+	PARALLEL("Parallel streams", config -> new ParallelEngine(
+			config.hasPath("gameoflife.parallel-engine.parallelism")
+					? config.getInt("gameoflife.parallel-engine.parallelism") : 0)),
+
+	/**
+	 * Memoized quadtree (Hashlife) on the torus, advancing 2^k generations for each step.
+	 */
+	HASHLIFE("Hashlife", config -> new HashlifeEngine(
+			config.hasPath("gameoflife.hashlife.step-exponent") ? config.getInt("gameoflife.hashlife.step-exponent") : 0,
+			config.hasPath("gameoflife.hashlife.max-nodes") ? config.getInt("gameoflife.hashlife.max-nodes") : 1000000,
+			config.hasPath("gameoflife.hashlife.eviction")
+					? config.getEnum(HashlifeEngine.EvictionPolicy.class, "gameoflife.hashlife.eviction")
+					: HashlifeEngine.EvictionPolicy.DROP_RESULTS));
+
+	private final String description;
+	private final Function<Config, GolEngine> engineFactory;
+
+	private EngineType(final String description, final Function<Config, GolEngine> engineFactory) {
+		this.description = description;
+		this.engineFactory = engineFactory;
+	}
+
+	/**
+	 * @return the description of the engine, suitable to be shown inside the view
+	 */
+	public String getDescription() {
+		return this.description;
+	}
+
+	/**
+	 * @return true if the generations are computed by a mesh of actors,
+	 * 		false if they are computed by a {@link GolEngine}
+	 */
+	public boolean isActorBased() {
+		return this.engineFactory == null;
+	}
+
+	/**
+	 * Creates the engine.
+	 *
+	 * @param config
+	 * 		the configuration of the actor system, containing the engine settings
+	 * @return a new engine
+	 * @throws UnsupportedOperationException
+	 * 		if the generations are computed by actors
+	 */
+	public GolEngine createEngine(final Config config) {
+		if (isActorBased()) {
+			throw new UnsupportedOperationException(this.description + " are not a GolEngine");
+		}
+		return this.engineFactory.apply(config);
+	}
+
+	@Override
+	public String toString() {
+		return this.description;
+	}
+
+}
@@ -0,0 +1,47 @@
+package pcd.ass03.gameoflife.engine;
+
+import pcd.ass03.gameoflife.model.BitGrid;
+
+/**
+ * This interface represents an engine that computes the generations of the Conway's Game Of Life
+ * synchronously, on behalf of the grid actor.
+ * The grid actor invokes the engine one step at a time, so that it can still handle
+ * the control messages (pause, reset) between two steps.
+ *
+ */
+public interface GolEngine {
+
+	/**
+	 * Initializes the engine with the first generation.
+	 *
+	 * @param initialGeneration
+	 * 		the initial generation (the engine does not keep a reference to it)
+	 */
+	void init(BitGrid initialGeneration);
+
+	/**
+	 * Computes the next generation (or more than one, see {@link #getGeneration()}).
+	 */
+	void step();
+
+	/**
+	 * Notifies the engine that no step will be requested until the game is resumed.
+	 */
+	void pause();
+
+	/**
+	 * @return a copy of the last computed generation
+	 */
+	BitGrid snapshot();
+
+	/**
+	 * @return the number of generations computed since the initialization
+	 */
+	long getGeneration();
+
+	/**
+	 * Releases the resources of the engine, that will not be used anymore.
+	 */
+	void dispose();
+
+}
@@ -0,0 +1,462 @@
+package pcd.ass03.gameoflife.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import pcd.ass03.gameoflife.model.BitGrid;
+
+/**
+ * This engine implements the Hashlife algorithm: the universe is a quadtree whose nodes are
+ * canonicalized in a hash table, so that identical regions are shared, and the future of each
+ * node is memoized. Each step advances the universe by 2^k generations.
+ * <p>
+ * Like the other engines, the universe is the grid wrapped around as a torus: at each step the root
+ * is built by tiling the torus around its center, with a margin wider than the distance that the
+ * patterns can travel in 2^k generations, so the advanced center of the root is the next torus.
+ * The node cache is kept between the steps, so the regions already met are not computed again.
+ *
+ */
+public class HashlifeEngine implements GolEngine {
+
+	private static final int INITIAL_TABLE_SIZE = 1 << 16;
+	private static final int MIN_ROOT_LEVEL = 3;
+	// Below this level the tiles of the torus are built without looking them up in the tiles map
+	private static final int MIN_TILE_LEVEL = 3;
+
+	/**
+	 * This enumeration represents what is discarded when the node cache exceeds its limit.
+	 * In both cases only the nodes reachable from the current universe survive.
+	 */
+	public enum EvictionPolicy {
+
+		/**
+		 * All the memoized results are discarded.
+		 */
+		DROP_RESULTS,
+
+		/**
+		 * The memoized results of the surviving nodes are kept, unless this prevents
+		 * the cache from shrinking to half of its limit.
+		 */
+		RETAIN_RESULTS
+	}
+
+	/*
+	 * A canonical square of 2^level x 2^level cells.
+	 */
+	private static final class Node {
+		private final int id;
+		private final int level;
+		private final Node nw;
+		private final Node ne;
+		private final Node sw;
+		private final Node se;
+		private final long population;
+		// Center of the node advanced by 2^(level - 2) generations
+		private Node result;
+		// Center of the node advanced by 2^stepExponent generations (when smaller than the full result)
+		private Node jump;
+		// Next node in the same bucket of the table
+		private Node next;
+		private int mark;
+
+		private Node(final int id, final boolean alive) {
+			this.id = id;
+			this.level = 0;
+			this.nw = null;
+			this.ne = null;
+			this.sw = null;
+			this.se = null;
+			this.population = alive ? 1 : 0;
+		}
+
+		private Node(final int id, final Node nw, final Node ne, final Node sw, final Node se) {
+			this.id = id;
+			this.level = nw.level + 1;
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			this.population = nw.population + ne.population + sw.population + se.population;
+		}
+	}
+
+	private final int stepExponent;
+	private final int maxNodes;
+	private final EvictionPolicy evictionPolicy;
+
+	private final Node deadLeaf;
+	private final Node aliveLeaf;
+	private Node[] emptyNodes;
+	private Node[] table;
+	private int nNodes;
+	private int nextId;
+	private int currentMark;
+
+	private Node root;
+	private BitGrid universe;
+	private int width;
+	private int height;
+	private long generation;
+
+	/**
+	 * Creates an Hashlife engine.
+	 *
+	 * @param stepExponent
+	 * 		each step advances the universe by 2^stepExponent generations
+	 * @param maxNodes
+	 * 		the number of cached nodes beyond which the eviction takes place
+	 * @param evictionPolicy
+	 * 		what is discarded by the eviction
+	 */
+	public HashlifeEngine(final int stepExponent, final int maxNodes, final EvictionPolicy evictionPolicy) {
+		if (stepExponent < 0 || stepExponent > 60) {
+			throw new IllegalArgumentException("Step exponent out of range: " + stepExponent);
+		}
+		this.stepExponent = stepExponent;
+		this.maxNodes = maxNodes;
+		this.evictionPolicy = evictionPolicy;
+		this.deadLeaf = new Node(this.nextId++, false);
+		this.aliveLeaf = new Node(this.nextId++, true);
+		clearCache();
+	}
+
+	@Override
+	public void init(final BitGrid initialGeneration) {
+		clearCache();
+		this.width = initialGeneration.getWidth();
+		this.height = initialGeneration.getHeight();
+		this.universe = initialGeneration.copy();
+		this.root = null;
+		this.generation = 0;
+	}
+
+	@Override
+	public void step() {
+		if (this.universe.size() > 0) {
+			// The center of the root must cover the torus, and its border must be wider than the jump
+			int level = Math.max(MIN_ROOT_LEVEL, this.stepExponent + 2);
+			while ((1L << (level - 1)) < Math.max(this.width, this.height)) {
+				level++;
+			}
+
+			// The cell (0, 0) of the torus is tiled at the top-left corner of the center of the root
+			final long border = 1L << (level - 2);
+			this.root = buildTorus(level, (int) Math.floorMod(-border, (long) this.width),
+					(int) Math.floorMod(-border, (long) this.height), new HashMap<>());
+
+			// The center of the root, advanced in time, starts with the cell (0, 0) of the next torus
+			final BitGrid nextUniverse = new BitGrid(this.width, this.height);
+			render(jump(this.root), 0, 0, nextUniverse);
+			this.universe = nextUniverse;
+		}
+		this.generation += 1L << this.stepExponent;
+
+		if (this.nNodes > this.maxNodes) {
+			evict();
+		}
+	}
+
+	@Override
+	public void pause() {
+		// Each step is completed before returning, so there is nothing in progress to suspend
+	}
+
+	@Override
+	public BitGrid snapshot() {
+		return this.universe.copy();
+	}
+
+	@Override
+	public long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * @return the number of nodes currently cached
+	 */
+	public int getCachedNodes() {
+		return this.nNodes;
+	}
+
+	@Override
+	public void dispose() {
+		clearCache();
+		this.root = null;
+		this.universe = null;
+	}
+
+	/*
+	 * Builds the node of the specified level that tiles the torus starting from the specified cell.
+	 * The tiles that start from the same cell are the same node, so they are built only once for each step
+	 * (this bounds the work by the size of the torus, even when the root is much larger).
+	 */
+	private Node buildTorus(final int level, final int x, final int y, final Map<Long, Node> tiles) {
+		if (level == 0) {
+			return getLeaf(this.universe.get(x, y));
+		}
+		final Long key = level >= MIN_TILE_LEVEL ? ((long) level << 58 | (long) x << 29 | y) : null;
+		Node node = key != null ? tiles.get(key) : null;
+		if (node == null) {
+			final int halfX = (int) ((x + (1L << (level - 1))) % this.width);
+			final int halfY = (int) ((y + (1L << (level - 1))) % this.height);
+			node = join(buildTorus(level - 1, x, y, tiles), buildTorus(level - 1, halfX, y, tiles),
+					buildTorus(level - 1, x, halfY, tiles), buildTorus(level - 1, halfX, halfY, tiles));
+			if (key != null) {
+				tiles.put(key, node);
+			}
+		}
+		return node;
+	}
+
+	/*
+	 * Sets the alive cells of the node (whose top-left cell is at the specified position) inside the snapshot.
+	 */
+	private void render(final Node node, final long x, final long y, final BitGrid snapshot) {
+		final long size = 1L << node.level;
+		if (node.population == 0 || x >= snapshot.getWidth() || y >= snapshot.getHeight() || x + size <= 0 || y + size <= 0) {
+			return;
+		}
+		if (node.level == 0) {
+			snapshot.set((int) x, (int) y, true);
+		} else {
+			final long half = size >> 1;
+			render(node.nw, x, y, snapshot);
+			render(node.ne, x + half, y, snapshot);
+			render(node.sw, x, y + half, snapshot);
+			render(node.se, x + half, y + half, snapshot);
+		}
+	}
+
+	/*
+	 * Returns the canonical node with the specified quadrants.
+	 */
+	private Node join(final Node nw, final Node ne, final Node sw, final Node se) {
+		final int bucket = hash(nw, ne, sw, se) & (this.table.length - 1);
+		for (Node node = this.table[bucket]; node != null; node = node.next) {
+			if (node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+				return node;
+			}
+		}
+		final Node node = new Node(this.nextId++, nw, ne, sw, se);
+		insert(node);
+		return node;
+	}
+
+	private static int hash(final Node nw, final Node ne, final Node sw, final Node se) {
+		int hash = nw.id;
+		hash = hash * 1000003 + ne.id;
+		hash = hash * 1000003 + sw.id;
+		hash = hash * 1000003 + se.id;
+		return hash ^ (hash >>> 16);
+	}
+
+	private void insert(final Node node) {
+		if (this.nNodes >= this.table.length - (this.table.length >> 2)) {
+			resizeTable(this.table.length << 1);
+		}
+		final int bucket = hash(node.nw, node.ne, node.sw, node.se) & (this.table.length - 1);
+		node.next = this.table[bucket];
+		this.table[bucket] = node;
+		this.nNodes++;
+	}
+
+	private void resizeTable(final int size) {
+		final Node[] oldTable = this.table;
+		this.table = new Node[size];
+		for (Node head : oldTable) {
+			while (head != null) {
+				final Node next = head.next;
+				final int bucket = hash(head.nw, head.ne, head.sw, head.se) & (size - 1);
+				head.next = this.table[bucket];
+				this.table[bucket] = head;
+				head = next;
+			}
+		}
+	}
+
+	/*
+	 * Returns the canonical empty node of the specified level.
+	 */
+	private Node getEmpty(final int level) {
+		if (level >= this.emptyNodes.length) {
+			final Node[] emptyNodes = new Node[level + 1];
+			System.arraycopy(this.emptyNodes, 0, emptyNodes, 0, this.emptyNodes.length);
+			this.emptyNodes = emptyNodes;
+		}
+		if (this.emptyNodes[level] == null) {
+			if (level == 0) {
+				this.emptyNodes[level] = this.deadLeaf;
+			} else {
+				final Node child = getEmpty(level - 1);
+				this.emptyNodes[level] = join(child, child, child, child);
+			}
+		}
+		return this.emptyNodes[level];
+	}
+
+	/*
+	 * Returns the node of the previous level at the center of the specified one.
+	 */
+	private Node center(final Node node) {
+		return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+	}
+
+	/*
+	 * Returns the node of the same level between two horizontally adjacent nodes.
+	 */
+	private Node centerHorizontal(final Node west, final Node east) {
+		return join(west.ne, east.nw, west.se, east.sw);
+	}
+
+	/*
+	 * Returns the node of the same level between two vertically adjacent nodes.
+	 */
+	private Node centerVertical(final Node north, final Node south) {
+		return join(north.sw, north.se, south.nw, south.ne);
+	}
+
+	/*
+	 * Returns the center of the node advanced by 2^(level - 2) generations.
+	 */
+	private Node result(final Node node) {
+		if (node.result == null) {
+			if (node.population == 0) {
+				node.result = getEmpty(node.level - 1);
+			} else if (node.level == 2) {
+				node.result = computeBase(node);
+			} else {
+				// Nine overlapping sub-nodes advanced by 2^(level - 3) generations...
+				final Node n00 = result(node.nw);
+				final Node n01 = result(centerHorizontal(node.nw, node.ne));
+				final Node n02 = result(node.ne);
+				final Node n10 = result(centerVertical(node.nw, node.sw));
+				final Node n11 = result(center(node));
+				final Node n12 = result(centerVertical(node.ne, node.se));
+				final Node n20 = result(node.sw);
+				final Node n21 = result(centerHorizontal(node.sw, node.se));
+				final Node n22 = result(node.se);
+				// ... combined in four nodes, advanced by 2^(level - 3) generations again
+				node.result = join(
+						result(join(n00, n01, n10, n11)), result(join(n01, n02, n11, n12)),
+						result(join(n10, n11, n20, n21)), result(join(n11, n12, n21, n22)));
+			}
+		}
+		return node.result;
+	}
+
+	/*
+	 * Returns the center of the node advanced by 2^stepExponent generations.
+	 */
+	private Node jump(final Node node) {
+		if (this.stepExponent >= node.level - 2) {
+			return result(node);
+		}
+		if (node.jump == null) {
+			if (node.population == 0) {
+				node.jump = getEmpty(node.level - 1);
+			} else {
+				// Nine overlapping sub-nodes advanced by 2^stepExponent generations...
+				final Node n00 = jump(node.nw);
+				final Node n01 = jump(centerHorizontal(node.nw, node.ne));
+				final Node n02 = jump(node.ne);
+				final Node n10 = jump(centerVertical(node.nw, node.sw));
+				final Node n11 = jump(center(node));
+				final Node n12 = jump(centerVertical(node.ne, node.se));
+				final Node n20 = jump(node.sw);
+				final Node n21 = jump(centerHorizontal(node.sw, node.se));
+				final Node n22 = jump(node.se);
+				// ... combined in four nodes, without advancing further
+				node.jump = join(
+						center(join(n00, n01, n10, n11)), center(join(n01, n02, n11, n12)),
+						center(join(n10, n11, n20, n21)), center(join(n11, n12, n21, n22)));
+			}
+		}
+		return node.jump;
+	}
+
+	/*
+	 * Computes by brute force the 2x2 center of a 4x4 node, advanced by one generation.
+	 */
+	private Node computeBase(final Node node) {
+		final boolean[] nextCenter = new boolean[4];
+		for (int y = 1; y <= 2; y++) {
+			for (int x = 1; x <= 2; x++) {
+				int aliveNeighbours = 0;
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if ((dx != 0 || dy != 0) && isAlive(node, x + dx, y + dy)) {
+							aliveNeighbours++;
+						}
+					}
+				}
+				nextCenter[(y - 1) * 2 + x - 1] = aliveNeighbours == 3 || (aliveNeighbours == 2 && isAlive(node, x, y));
+			}
+		}
+		return join(getLeaf(nextCenter[0]), getLeaf(nextCenter[1]), getLeaf(nextCenter[2]), getLeaf(nextCenter[3]));
+	}
+
+	/*
+	 * Returns the state of a cell of a 4x4 node.
+	 */
+	private static boolean isAlive(final Node node, final int x, final int y) {
+		final Node quadrant = y < 2 ? (x < 2 ? node.nw : node.ne) : (x < 2 ? node.sw : node.se);
+		final Node leaf = (y & 1) == 0 ? ((x & 1) == 0 ? quadrant.nw : quadrant.ne) : ((x & 1) == 0 ? quadrant.sw : quadrant.se);
+		return leaf.population != 0;
+	}
+
+	private Node getLeaf(final boolean alive) {
+		return alive ? this.aliveLeaf : this.deadLeaf;
+	}
+
+	/*
+	 * Empties the node cache.
+	 */
+	private void clearCache() {
+		this.table = new Node[INITIAL_TABLE_SIZE];
+		this.nNodes = 0;
+		this.emptyNodes = new Node[] { this.deadLeaf };
+	}
+
+	/*
+	 * Rebuilds the node cache keeping only the nodes reachable from the root (and, depending
+	 * on the policy, from their memoized results).
+	 */
+	private void evict() {
+		boolean retainResults = this.evictionPolicy == EvictionPolicy.RETAIN_RESULTS;
+		rebuildTable(retainResults);
+		if (retainResults && this.nNodes > this.maxNodes / 2) {
+			rebuildTable(false);
+		}
+	}
+
+	private void rebuildTable(final boolean retainResults) {
+		final Node[] emptyNodes = this.emptyNodes;
+		this.table = new Node[this.table.length];
+		this.nNodes = 0;
+		this.currentMark++;
+		retain(this.root, retainResults);
+		for (final Node empty : emptyNodes) {
+			retain(empty, retainResults);
+		}
+	}
+
+	private void retain(final Node node, final boolean retainResults) {
+		if (node != null && node.level > 0 && node.mark != this.currentMark) {
+			node.mark = this.currentMark;
+			retain(node.nw, retainResults);
+			retain(node.ne, retainResults);
+			retain(node.sw, retainResults);
+			retain(node.se, retainResults);
+			if (retainResults) {
+				retain(node.result, true);
+				retain(node.jump, true);
+			} else {
+				node.result = null;
+				node.jump = null;
+			}
+			insert(node);
+		}
+	}
+
+}
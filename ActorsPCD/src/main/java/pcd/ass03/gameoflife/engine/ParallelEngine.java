@@ -0,0 +1,125 @@
+package pcd.ass03.gameoflife.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import pcd.ass03.gameoflife.model.BitGrid;
+
+/**
+ * This engine computes the generations in shared memory, on two double-buffered arrays of cells.
+ * The rows of the grid are split in stripes that are computed by parallel streams
+ * running inside a dedicated {@link ForkJoinPool}.
+ *
+ */
+public class ParallelEngine implements GolEngine {
+
+	private static final int STRIPES_PER_THREAD = 4;
+	private static final int WORDS_PER_PACKING_TASK = 1024;
+
+	private final ForkJoinPool pool;
+	private int width;
+	private int height;
+	private int rowsPerStripe;
+	private int nStripes;
+	private byte[] cells;
+	private byte[] nextCells;
+	private long generation;
+
+	/**
+	 * Creates a parallel engine.
+	 *
+	 * @param parallelism
+	 * 		the number of worker threads (0 to use one thread for each available processor)
+	 */
+	public ParallelEngine(final int parallelism) {
+		this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	@Override
+	public void init(final BitGrid initialGeneration) {
+		this.width = initialGeneration.getWidth();
+		this.height = initialGeneration.getHeight();
+		this.cells = new byte[this.width * this.height];
+		this.nextCells = new byte[this.width * this.height];
+		for (int index = 0; index < this.cells.length; index++) {
+			this.cells[index] = (byte) (initialGeneration.get(index) ? 1 : 0);
+		}
+		// More stripes than threads, so that the work-stealing can balance the load
+		this.rowsPerStripe = Math.max(1, this.height / (this.pool.getParallelism() * STRIPES_PER_THREAD));
+		this.nStripes = (this.height + this.rowsPerStripe - 1) / this.rowsPerStripe;
+		this.generation = 0;
+	}
+
+	@Override
+	public void step() {
+		this.pool.submit(() -> IntStream.range(0, this.nStripes)
+				.parallel()
+				.forEach(this::computeStripe)).join();
+
+		// Swaps the buffers
+		final byte[] tmp = this.cells;
+		this.cells = this.nextCells;
+		this.nextCells = tmp;
+		this.generation++;
+	}
+
+	@Override
+	public void pause() {
+		// Each step is completed before returning, so there is nothing in progress to suspend
+	}
+
+	@Override
+	public BitGrid snapshot() {
+		final BitGrid snapshot = new BitGrid(this.width, this.height);
+		final long[] words = snapshot.getWords();
+		final int nTasks = (words.length + WORDS_PER_PACKING_TASK - 1) / WORDS_PER_PACKING_TASK;
+		// Each task packs a disjoint range of words, so no synchronization is needed
+		this.pool.submit(() -> IntStream.range(0, nTasks).parallel().forEach(task -> {
+			final int lastWord = Math.min(words.length, (task + 1) * WORDS_PER_PACKING_TASK);
+			for (int word = task * WORDS_PER_PACKING_TASK; word < lastWord; word++) {
+				final int firstCell = word * Long.SIZE;
+				final int lastCell = Math.min(this.cells.length, firstCell + Long.SIZE);
+				long bits = 0L;
+				for (int index = firstCell; index < lastCell; index++) {
+					bits |= ((long) this.cells[index]) << (index - firstCell);
+				}
+				words[word] = bits;
+			}
+		})).join();
+		return snapshot;
+	}
+
+	@Override
+	public long getGeneration() {
+		return this.generation;
+	}
+
+	@Override
+	public void dispose() {
+		this.pool.shutdown();
+	}
+
+	/*
+	 * Computes the next state of the rows of a stripe.
+	 */
+	private void computeStripe(final int stripe) {
+		final byte[] current = this.cells;
+		final byte[] next = this.nextCells;
+		final int lastRow = Math.min(this.height, (stripe + 1) * this.rowsPerStripe);
+		for (int y = stripe * this.rowsPerStripe; y < lastRow; y++) {
+			// The grid is toroidal
+			final int up = ((y + this.height - 1) % this.height) * this.width;
+			final int middle = y * this.width;
+			final int down = ((y + 1) % this.height) * this.width;
+			for (int x = 0; x < this.width; x++) {
+				final int left = x == 0 ? this.width - 1 : x - 1;
+				final int right = x == this.width - 1 ? 0 : x + 1;
+				final int aliveNeighbours = current[up + left] + current[up + x] + current[up + right]
+						+ current[middle + left] + current[middle + right]
+						+ current[down + left] + current[down + x] + current[down + right];
+				next[middle + x] = (byte) (aliveNeighbours == 3 || (aliveNeighbours == 2 && current[middle + x] == 1) ? 1 : 0);
+			}
+		}
+	}
+
+}
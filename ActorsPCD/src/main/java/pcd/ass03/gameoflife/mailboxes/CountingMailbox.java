@@ -0,0 +1,42 @@
+package pcd.ass03.gameoflife.mailboxes;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedDequeBasedMailbox;
+import pcd.ass03.gameoflife.metrics.MessageCounter;
+import scala.Option;
+
+/**
+ * This mailbox is an unbounded deque (so it can be used also by actors with stash)
+ * that counts the enqueued messages in the {@link MessageCounter}.
+ * Unstashed messages are not counted again.
+ *
+ */
+public class CountingMailbox implements MailboxType, ProducesMessageQueue<CountingMailbox.CountingMessageQueue> {
+
+	public CountingMailbox(final ActorSystem.Settings settings, final Config config) { }
+
+	@Override
+	public MessageQueue create(final Option<ActorRef> owner, final Option<ActorSystem> system) {
+		return new CountingMessageQueue();
+	}
+
+	public static class CountingMessageQueue extends UnboundedDequeBasedMailbox.MessageQueue {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void enqueue(final ActorRef receiver, final Envelope handle) {
+			MessageCounter.increment(handle.message());
+			super.enqueue(receiver, handle);
+		}
+
+	}
+
+}
@@ -0,0 +1,107 @@
+package pcd.ass03.gameoflife.mailboxes;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorRefWithCell;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedDequeBasedMessageQueueSemantics;
+import pcd.ass03.gameoflife.metrics.MailboxMetrics;
+import pcd.ass03.gameoflife.metrics.MessageCounter;
+import pcd.ass03.gameoflife.metrics.QueueMetrics;
+import scala.Option;
+
+/**
+ * This mailbox is an unbounded deque (so it can be used also by actors with stash) that, besides counting
+ * the messages like the {@link CountingMailbox}, records in the {@link MailboxMetrics} of the class of its actor
+ * the depth of the queue and the time each message waits before being processed.
+ * Unstashed messages are not counted again and their wait restarts when they are put back in the queue.
+ *
+ */
+public class InstrumentedMailbox implements MailboxType, ProducesMessageQueue<InstrumentedMailbox.InstrumentedMessageQueue> {
+
+	public InstrumentedMailbox(final ActorSystem.Settings settings, final Config config) { }
+
+	@Override
+	public MessageQueue create(final Option<ActorRef> owner, final Option<ActorSystem> system) {
+		return new InstrumentedMessageQueue(getQueueMetrics(owner));
+	}
+
+	/**
+	 * @param owner
+	 * 		the actor of a mailbox, if any
+	 * @return the metrics of the mailboxes of the actors of the same class
+	 */
+	static QueueMetrics getQueueMetrics(final Option<ActorRef> owner) {
+		if (owner.isDefined() && owner.get() instanceof ActorRefWithCell) {
+			return MailboxMetrics.getQueueMetrics(((ActorRefWithCell) owner.get()).underlying().props().actorClass().getSimpleName());
+		}
+		return MailboxMetrics.getQueueMetrics(owner.isDefined() ? owner.get().path().name() : "unknown");
+	}
+
+	public static class InstrumentedMessageQueue implements MessageQueue, UnboundedDequeBasedMessageQueueSemantics {
+
+		private final ConcurrentLinkedDeque<TimedEnvelope> queue;
+		private final AtomicInteger depth;
+		private final QueueMetrics metrics;
+
+		public InstrumentedMessageQueue(final QueueMetrics metrics) {
+			this.queue = new ConcurrentLinkedDeque<>();
+			this.depth = new AtomicInteger();
+			this.metrics = metrics;
+		}
+
+		@Override
+		public void enqueue(final ActorRef receiver, final Envelope handle) {
+			MessageCounter.increment(handle.message());
+			this.queue.offerLast(new TimedEnvelope(handle));
+			this.metrics.enqueued(this.depth.incrementAndGet());
+		}
+
+		@Override
+		public void enqueueFirst(final ActorRef receiver, final Envelope handle) {
+			this.queue.offerFirst(new TimedEnvelope(handle));
+			this.depth.incrementAndGet();
+			this.metrics.requeued();
+		}
+
+		@Override
+		public Envelope dequeue() {
+			final TimedEnvelope timedEnvelope = this.queue.pollFirst();
+			if (timedEnvelope == null) {
+				return null;
+			}
+			this.depth.decrementAndGet();
+			this.metrics.dequeued(System.nanoTime() - timedEnvelope.getEnqueueTime());
+			return timedEnvelope.getEnvelope();
+		}
+
+		@Override
+		public int numberOfMessages() {
+			return this.depth.get();
+		}
+
+		@Override
+		public boolean hasMessages() {
+			return !this.queue.isEmpty();
+		}
+
+		@Override
+		public void cleanUp(final ActorRef owner, final MessageQueue deadLetters) {
+			Envelope envelope = dequeue();
+			while (envelope != null) {
+				deadLetters.enqueue(owner, envelope);
+				envelope = dequeue();
+			}
+		}
+
+	}
+
+}
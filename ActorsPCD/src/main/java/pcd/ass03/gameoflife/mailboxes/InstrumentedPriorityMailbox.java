@@ -0,0 +1,119 @@
+package pcd.ass03.gameoflife.mailboxes;
+
+import java.util.Comparator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import pcd.ass03.gameoflife.metrics.MailboxMetrics;
+import pcd.ass03.gameoflife.metrics.MessageCounter;
+import pcd.ass03.gameoflife.metrics.QueueMetrics;
+import scala.Option;
+
+/**
+ * This mailbox is an unbounded stable priority queue, instrumented like the {@link InstrumentedMailbox}.
+ * The order of the messages is given by a {@code Comparator<Envelope>}, whose class is the {@code comparator}
+ * setting of the mailbox configuration (e.g. the one of the {@link PrioritySchedulerMailbox}):
+ * messages with the same priority are processed in the order they are enqueued.
+ *
+ */
+public class InstrumentedPriorityMailbox implements MailboxType,
+		ProducesMessageQueue<InstrumentedPriorityMailbox.InstrumentedPriorityMessageQueue> {
+
+	private static final String COMPARATOR_SETTING = "comparator";
+
+	private final Comparator<Envelope> comparator;
+
+	@SuppressWarnings("unchecked")
+	public InstrumentedPriorityMailbox(final ActorSystem.Settings settings, final Config config) {
+		try {
+			this.comparator = (Comparator<Envelope>) Class.forName(config.getString(COMPARATOR_SETTING)).newInstance();
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Invalid comparator of the mailbox: " + config.getString(COMPARATOR_SETTING), e);
+		}
+	}
+
+	@Override
+	public MessageQueue create(final Option<ActorRef> owner, final Option<ActorSystem> system) {
+		return new InstrumentedPriorityMessageQueue(this.comparator, InstrumentedMailbox.getQueueMetrics(owner));
+	}
+
+	public static class InstrumentedPriorityMessageQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+
+		private final PriorityBlockingQueue<SequencedEnvelope> queue;
+		private final AtomicLong sequence;
+		private final QueueMetrics metrics;
+
+		public InstrumentedPriorityMessageQueue(final Comparator<Envelope> comparator, final QueueMetrics metrics) {
+			this.queue = new PriorityBlockingQueue<>(11, Comparator
+					.comparing(SequencedEnvelope::getEnvelope, comparator)
+					.thenComparingLong(SequencedEnvelope::getSequence));
+			this.sequence = new AtomicLong();
+			this.metrics = metrics;
+		}
+
+		@Override
+		public void enqueue(final ActorRef receiver, final Envelope handle) {
+			MessageCounter.increment(handle.message());
+			this.queue.offer(new SequencedEnvelope(handle, this.sequence.getAndIncrement()));
+			this.metrics.enqueued(this.queue.size());
+		}
+
+		@Override
+		public Envelope dequeue() {
+			final SequencedEnvelope sequencedEnvelope = this.queue.poll();
+			if (sequencedEnvelope == null) {
+				return null;
+			}
+			this.metrics.dequeued(System.nanoTime() - sequencedEnvelope.getEnqueueTime());
+			return sequencedEnvelope.getEnvelope();
+		}
+
+		@Override
+		public int numberOfMessages() {
+			return this.queue.size();
+		}
+
+		@Override
+		public boolean hasMessages() {
+			return !this.queue.isEmpty();
+		}
+
+		@Override
+		public void cleanUp(final ActorRef owner, final MessageQueue deadLetters) {
+			Envelope envelope = dequeue();
+			while (envelope != null) {
+				deadLetters.enqueue(owner, envelope);
+				envelope = dequeue();
+			}
+		}
+
+	}
+
+	/*
+	 * A timed envelope with its enqueueing order, which breaks the ties between messages with the same priority.
+	 */
+	private static final class SequencedEnvelope extends TimedEnvelope {
+
+		private final long sequence;
+
+		SequencedEnvelope(final Envelope envelope, final long sequence) {
+			super(envelope);
+			this.sequence = sequence;
+		}
+
+		long getSequence() {
+			return this.sequence;
+		}
+
+	}
+
+}
@@ -0,0 +1,26 @@
+package pcd.ass03.gameoflife.mailboxes;
+
+import akka.dispatch.Envelope;
+
+/*
+ * An envelope with the time it was put in the queue.
+ */
+class TimedEnvelope {
+
+	private final Envelope envelope;
+	private final long enqueueTime;
+
+	TimedEnvelope(final Envelope envelope) {
+		this.envelope = envelope;
+		this.enqueueTime = System.nanoTime();
+	}
+
+	Envelope getEnvelope() {
+		return this.envelope;
+	}
+
+	long getEnqueueTime() {
+		return this.enqueueTime;
+	}
+
+}
@@ -0,0 +1,266 @@
+package pcd.ass03.gameoflife.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class collects the metrics of the game, updated by the actors themselves
+ * with counters that do not slow them down, and exposes them through JMX once registered.
+ * The counts of the messages are taken from the {@link MessageCounter}, so they stay at 0
+ * unless the counting mailboxes are configured (as in metrics.conf and headless.conf).
+ * The rates are sampled periodically once registered, so every JMX client reads the same values.
+ *
+ */
+public final class GameMetrics implements GameMetricsMXBean {
+
+	/**
+	 * The name of the MBean.
+	 */
+	public static final String OBJECT_NAME = "pcd.ass03.gameoflife:type=GameMetrics";
+
+	private static final String DISPATCHER_THREAD = "dispatcher-";
+	private static final long SAMPLE_PERIOD_MS = 1000;
+
+	private static final LongAdder GENERATIONS = new LongAdder();
+	private static final LatencyHistogram LATENCIES = new LatencyHistogram();
+	private static final ConcurrentMap<String, StashCounter> STASH_COUNTERS = new ConcurrentHashMap<>();
+	private static volatile long viewBacklog;
+	private static volatile long viewDroppedGenerations;
+
+	private static final GameMetrics INSTANCE = new GameMetrics();
+
+	// Confined to the sampler thread
+	private long lastSampleTime;
+	private long lastSampleGenerations;
+	private Map<Long, Long> lastThreadsTimes;
+
+	private volatile double generationsPerSecond;
+	private volatile Map<String, Double> dispatcherUtilization;
+
+	private GameMetrics() {
+		this.lastThreadsTimes = new HashMap<>();
+		this.dispatcherUtilization = Collections.emptyMap();
+	}
+
+	/**
+	 * Registers the metrics of the game and those of the mailboxes in the platform MBean server, if not already done,
+	 * and starts sampling the rates.
+	 */
+	public static void register() {
+		if (register(INSTANCE, OBJECT_NAME)) {
+			INSTANCE.startSampling();
+		}
+		register(MailboxMetrics.INSTANCE, MailboxMetrics.OBJECT_NAME);
+	}
+
+	/**
+	 * Records a computed generation.
+	 *
+	 * @param latencyNanos
+	 * 		the time spent to compute the generation, in nanoseconds
+	 */
+	public static void recordGeneration(final long latencyNanos) {
+		GENERATIONS.increment();
+		LATENCIES.record(latencyNanos);
+	}
+
+	/**
+	 * @param actorClass
+	 * 		the class of the actors sharing the counter
+	 * @return the counter of the messages stashed by the actors of the class
+	 */
+	public static StashCounter getStashCounter(final Class<?> actorClass) {
+		return STASH_COUNTERS.computeIfAbsent(actorClass.getSimpleName(), name -> new StashCounter());
+	}
+
+	/**
+	 * Records the state of the buffer of the view actor.
+	 *
+	 * @param backlog
+	 * 		the number of generations waiting to be shown
+	 * @param droppedGenerations
+	 * 		the number of generations dropped without being shown
+	 */
+	public static void recordViewBuffer(final long backlog, final long droppedGenerations) {
+		viewBacklog = backlog;
+		viewDroppedGenerations = droppedGenerations;
+	}
+
+	@Override
+	public long getGenerations() {
+		return GENERATIONS.sum();
+	}
+
+	@Override
+	public double getGenerationsPerSecond() {
+		return this.generationsPerSecond;
+	}
+
+	@Override
+	public double getLatencyP50Millis() {
+		return toMillis(LATENCIES.getPercentile(50));
+	}
+
+	@Override
+	public double getLatencyP90Millis() {
+		return toMillis(LATENCIES.getPercentile(90));
+	}
+
+	@Override
+	public double getLatencyP99Millis() {
+		return toMillis(LATENCIES.getPercentile(99));
+	}
+
+	@Override
+	public double getLatencyMaxMillis() {
+		return toMillis(LATENCIES.getPercentile(100));
+	}
+
+	@Override
+	public long getDeliveredMessages() {
+		return MessageCounter.getDeliveredMessages();
+	}
+
+	@Override
+	public Map<String, Long> getMessagesByType() {
+		return MessageCounter.getDeliveredMessagesByType();
+	}
+
+	@Override
+	public Map<String, Double> getAverageMessagesPerGenerationByType() {
+		final long generations = Math.max(1, GENERATIONS.sum());
+		final Map<String, Double> messages = new TreeMap<>();
+		MessageCounter.getDeliveredMessagesByType().forEach((type, count) -> messages.put(type, (double) count / generations));
+		return messages;
+	}
+
+	@Override
+	public Map<String, Long> getStashedMessages() {
+		final Map<String, Long> messages = new TreeMap<>();
+		STASH_COUNTERS.forEach((actorClass, counter) -> messages.put(actorClass, counter.getStashedMessages()));
+		return messages;
+	}
+
+	@Override
+	public Map<String, Long> getPendingStashedMessages() {
+		final Map<String, Long> messages = new TreeMap<>();
+		STASH_COUNTERS.forEach((actorClass, counter) -> messages.put(actorClass, counter.getPendingMessages()));
+		return messages;
+	}
+
+	@Override
+	public long getViewBacklog() {
+		return viewBacklog;
+	}
+
+	@Override
+	public long getViewDroppedGenerations() {
+		return viewDroppedGenerations;
+	}
+
+	@Override
+	public Map<String, Double> getDispatcherUtilization() {
+		return this.dispatcherUtilization;
+	}
+
+	@Override
+	public void resetLatencies() {
+		LATENCIES.reset();
+	}
+
+	/*
+	 * Samples the rates at fixed intervals on a daemon thread, which does not keep the application alive.
+	 */
+	private void startSampling() {
+		this.lastSampleTime = System.nanoTime();
+		this.lastSampleGenerations = GENERATIONS.sum();
+		final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "game-metrics-sampler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sampler.scheduleAtFixedRate(this::sample, SAMPLE_PERIOD_MS, SAMPLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * Computes the generations per second and the utilization of the dispatchers since the previous sample.
+	 */
+	private void sample() {
+		final long now = System.nanoTime();
+		final long interval = Math.max(1, now - this.lastSampleTime);
+		final long generations = GENERATIONS.sum();
+		this.generationsPerSecond = (generations - this.lastSampleGenerations) * (double) TimeUnit.SECONDS.toNanos(1)
+				/ interval;
+		this.lastSampleGenerations = generations;
+		this.dispatcherUtilization = Collections.unmodifiableMap(sampleDispatcherUtilization(interval));
+		this.lastSampleTime = now;
+	}
+
+	/*
+	 * Fraction of the interval the threads of each dispatcher spent running, from their CPU time.
+	 */
+	private Map<String, Double> sampleDispatcherUtilization(final long interval) {
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		final Map<String, Double> utilization = new TreeMap<>();
+		if (!threads.isThreadCpuTimeSupported() || !threads.isThreadCpuTimeEnabled()) {
+			return utilization;
+		}
+		final Map<String, Integer> nThreads = new HashMap<>();
+		final Map<Long, Long> threadsTimes = new HashMap<>();
+		for (final ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+			final int suffix = info == null ? -1 : info.getThreadName().lastIndexOf(DISPATCHER_THREAD);
+			final long time = suffix < 0 ? -1 : threads.getThreadCpuTime(info.getThreadId());
+			if (time >= 0) {
+				// Threads are named <system>-<dispatcher>-<n>, e.g. GameOfLifeSystem-akka.actor.default-dispatcher-3
+				final String name = info.getThreadName();
+				final String dispatcher = name.substring(name.indexOf('-') + 1, suffix + DISPATCHER_THREAD.length() - 1);
+				final long busyTime = time - this.lastThreadsTimes.getOrDefault(info.getThreadId(), 0L);
+				threadsTimes.put(info.getThreadId(), time);
+				nThreads.merge(dispatcher, 1, Integer::sum);
+				utilization.merge(dispatcher, (double) busyTime / interval, Double::sum);
+			}
+		}
+		utilization.replaceAll((dispatcher, busyThreads) -> Math.min(1, busyThreads / nThreads.get(dispatcher)));
+		this.lastThreadsTimes = threadsTimes;
+		return utilization;
+	}
+
+	/*
+	 * Registers an MBean, unless another actor system of the same JVM already did it.
+	 * Returns false if it was already registered.
+	 */
+	private static boolean register(final Object mbean, final String name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(name));
+			return true;
+		} catch (final InstanceAlreadyExistsException e) {
+			// Already registered
+			return false;
+		} catch (final JMException e) {
+			throw new IllegalStateException("Cannot register the metrics " + name, e);
+		}
+	}
+
+	/*
+	 * Nanoseconds to milliseconds.
+	 */
+	private static double toMillis(final long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+}
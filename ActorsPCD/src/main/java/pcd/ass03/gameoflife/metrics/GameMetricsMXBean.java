@@ -0,0 +1,90 @@
+package pcd.ass03.gameoflife.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the metrics of the game, exposed through JMX
+ * with the name {@value GameMetrics#OBJECT_NAME}.
+ *
+ */
+public interface GameMetricsMXBean {
+
+	/**
+	 * @return the number of generations computed since the start of the application
+	 */
+	long getGenerations();
+
+	/**
+	 * @return the generations computed each second, over the last sampling period (a second)
+	 */
+	double getGenerationsPerSecond();
+
+	/**
+	 * @return the median time spent to compute a generation, in milliseconds
+	 */
+	double getLatencyP50Millis();
+
+	/**
+	 * @return the 90th percentile of the time spent to compute a generation, in milliseconds
+	 */
+	double getLatencyP90Millis();
+
+	/**
+	 * @return the 99th percentile of the time spent to compute a generation, in milliseconds
+	 */
+	double getLatencyP99Millis();
+
+	/**
+	 * @return the maximum time spent to compute a generation, in milliseconds
+	 */
+	double getLatencyMaxMillis();
+
+	/**
+	 * @return the number of messages delivered since the start of the application
+	 * 		(only counted by the counting mailboxes)
+	 */
+	long getDeliveredMessages();
+
+	/**
+	 * @return the number of messages delivered for each type
+	 */
+	Map<String, Long> getMessagesByType();
+
+	/**
+	 * @return the average number of messages delivered for each generation, for each type,
+	 * 		over the whole run (the lifetime count of the messages divided by the generations computed)
+	 */
+	Map<String, Double> getAverageMessagesPerGenerationByType();
+
+	/**
+	 * @return the number of messages stashed since the start of the application, for each class of actors
+	 */
+	Map<String, Long> getStashedMessages();
+
+	/**
+	 * @return the number of messages currently in the stashes, for each class of actors
+	 */
+	Map<String, Long> getPendingStashedMessages();
+
+	/**
+	 * @return the number of generations waiting to be shown by the view actor
+	 */
+	long getViewBacklog();
+
+	/**
+	 * @return the number of generations dropped by the view actor without being shown
+	 */
+	long getViewDroppedGenerations();
+
+	/**
+	 * @return the fraction (between 0 and 1) of the time the threads of each dispatcher spent running
+	 * 		over the last sampling period (a second), empty if the CPU time of the threads is not available
+	 */
+	Map<String, Double> getDispatcherUtilization();
+
+	/**
+	 * Removes the recorded latencies.
+	 */
+	void resetLatencies();
+
+}
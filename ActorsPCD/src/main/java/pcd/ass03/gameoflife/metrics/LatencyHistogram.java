@@ -0,0 +1,104 @@
+package pcd.ass03.gameoflife.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records durations in logarithmic buckets, each power of 2 being split in 8 linear sub-buckets,
+ * so any percentile is estimated with an error below 12.5% using a fixed amount of memory.
+ * The buckets are striped counters, so many threads can record at the same time without contention,
+ * and the histogram can be read by other threads (e.g. by JMX) while it is updated.
+ *
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final LongAdder[] buckets;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public LatencyHistogram() {
+		this.buckets = new LongAdder[(Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+		for (int i = 0; i < this.buckets.length; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos
+	 * 		the duration in nanoseconds
+	 */
+	public void record(final long nanos) {
+		this.buckets[getBucket(Math.max(0, nanos))].increment();
+	}
+
+	/**
+	 * @return the number of recorded durations
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < this.buckets.length; i++) {
+			count += this.buckets[i].sum();
+		}
+		return count;
+	}
+
+	/**
+	 * @param percentile
+	 * 		the percentile, between 0 and 100
+	 * @return the upper bound of the bucket containing the percentile of the durations in nanoseconds,
+	 * 		or 0 if no duration is recorded
+	 */
+	public long getPercentile(final double percentile) {
+		final long count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < this.buckets.length; i++) {
+			seen += this.buckets[i].sum();
+			if (seen >= rank) {
+				return getUpperBound(i);
+			}
+		}
+		return getUpperBound(this.buckets.length - 1);
+	}
+
+	/**
+	 * Removes all the recorded durations.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.buckets.length; i++) {
+			this.buckets[i].reset();
+		}
+	}
+
+	/*
+	 * Values below SUB_BUCKETS have a bucket each, the others are grouped by magnitude and first bits.
+	 */
+	private static int getBucket(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (magnitude + 1) * SUB_BUCKETS + (int) ((value >>> magnitude) - SUB_BUCKETS);
+	}
+
+	/*
+	 * Largest value of a bucket.
+	 */
+	private static long getUpperBound(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int magnitude = bucket / SUB_BUCKETS - 1;
+		final long first = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << magnitude;
+		return first + (1L << magnitude) - 1;
+	}
+
+}
@@ -0,0 +1,88 @@
+package pcd.ass03.gameoflife.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * This class collects the {@link QueueMetrics} of the instrumented mailboxes, one for each class of actors,
+ * and exposes them through JMX once registered with the {@link GameMetrics}.
+ *
+ */
+public final class MailboxMetrics implements MailboxMetricsMXBean {
+
+	/**
+	 * The name of the MBean.
+	 */
+	public static final String OBJECT_NAME = "pcd.ass03.gameoflife:type=MailboxMetrics";
+
+	private static final ConcurrentMap<String, QueueMetrics> QUEUES_METRICS = new ConcurrentHashMap<>();
+
+	static final MailboxMetrics INSTANCE = new MailboxMetrics();
+
+	private MailboxMetrics() { }
+
+	/**
+	 * @param actorClass
+	 * 		the name of the class of the actors sharing the metrics
+	 * @return the metrics of the mailboxes of the actors of the class
+	 */
+	public static QueueMetrics getQueueMetrics(final String actorClass) {
+		return QUEUES_METRICS.computeIfAbsent(actorClass, name -> new QueueMetrics());
+	}
+
+	@Override
+	public Map<String, Long> getEnqueuedMessages() {
+		return collect(QueueMetrics::getEnqueuedMessages);
+	}
+
+	@Override
+	public Map<String, Long> getQueuedMessages() {
+		return collect(QueueMetrics::getQueuedMessages);
+	}
+
+	@Override
+	public Map<String, Long> getMaxQueueDepth() {
+		return collect(QueueMetrics::getMaxDepth);
+	}
+
+	@Override
+	public Map<String, Double> getWaitP50Millis() {
+		return collect(metrics -> toMillis(metrics.getWaitTimes().getPercentile(50)));
+	}
+
+	@Override
+	public Map<String, Double> getWaitP99Millis() {
+		return collect(metrics -> toMillis(metrics.getWaitTimes().getPercentile(99)));
+	}
+
+	@Override
+	public Map<String, Double> getWaitMaxMillis() {
+		return collect(metrics -> toMillis(metrics.getWaitTimes().getPercentile(100)));
+	}
+
+	@Override
+	public void resetWaitTimes() {
+		QUEUES_METRICS.values().forEach(metrics -> metrics.getWaitTimes().reset());
+	}
+
+	/*
+	 * A value for each class of actors, sorted by class.
+	 */
+	private static <T> Map<String, T> collect(final Function<QueueMetrics, T> value) {
+		final Map<String, T> values = new TreeMap<>();
+		QUEUES_METRICS.forEach((actorClass, metrics) -> values.put(actorClass, value.apply(metrics)));
+		return values;
+	}
+
+	/*
+	 * Nanoseconds to milliseconds.
+	 */
+	private static double toMillis(final long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+}
@@ -0,0 +1,47 @@
+package pcd.ass03.gameoflife.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the metrics of the instrumented mailboxes, exposed through JMX
+ * with the name {@value MailboxMetrics#OBJECT_NAME}. All the values are given for each class of actors.
+ *
+ */
+public interface MailboxMetricsMXBean {
+
+	/**
+	 * @return the number of messages enqueued since the start of the application
+	 */
+	Map<String, Long> getEnqueuedMessages();
+
+	/**
+	 * @return the number of messages currently waiting in the mailboxes
+	 */
+	Map<String, Long> getQueuedMessages();
+
+	/**
+	 * @return the largest number of messages seen in a single mailbox
+	 */
+	Map<String, Long> getMaxQueueDepth();
+
+	/**
+	 * @return the median time spent by the messages in the mailboxes, in milliseconds
+	 */
+	Map<String, Double> getWaitP50Millis();
+
+	/**
+	 * @return the 99th percentile of the time spent by the messages in the mailboxes, in milliseconds
+	 */
+	Map<String, Double> getWaitP99Millis();
+
+	/**
+	 * @return the maximum time spent by the messages in the mailboxes, in milliseconds
+	 */
+	Map<String, Double> getWaitMaxMillis();
+
+	/**
+	 * Removes the recorded wait times.
+	 */
+	void resetWaitTimes();
+
+}
@@ -0,0 +1,64 @@
+package pcd.ass03.gameoflife.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts the messages delivered to the actors of the game, across all the threads,
+ * in total and for each type of message.
+ * The counter is incremented by the counting mailboxes, so it stays at 0 if they are not configured.
+ *
+ */
+public final class MessageCounter {
+
+	private static final LongAdder DELIVERED_MESSAGES = new LongAdder();
+	private static final ConcurrentMap<Class<?>, LongAdder> TYPES_COUNTERS = new ConcurrentHashMap<>();
+	// The counter of each type is found without hashing after the first message
+	private static final ClassValue<LongAdder> TYPE_COUNTER = new ClassValue<LongAdder>() {
+		@Override
+		protected LongAdder computeValue(final Class<?> type) {
+			return TYPES_COUNTERS.computeIfAbsent(type, t -> new LongAdder());
+		}
+	};
+
+	private MessageCounter() { }
+
+	/**
+	 * Records the delivery of a message.
+	 *
+	 * @param message
+	 * 		the delivered message
+	 */
+	public static void increment(final Object message) {
+		DELIVERED_MESSAGES.increment();
+		TYPE_COUNTER.get(message.getClass()).increment();
+	}
+
+	/**
+	 * @return the number of messages delivered since the start of the application
+	 */
+	public static long getDeliveredMessages() {
+		return DELIVERED_MESSAGES.sum();
+	}
+
+	/**
+	 * @return the number of messages delivered since the start of the application for each type,
+	 * 		named by its class without the package (e.g. CellActor.ComputeMsg)
+	 */
+	public static Map<String, Long> getDeliveredMessagesByType() {
+		final Map<String, Long> messages = new TreeMap<>();
+		TYPES_COUNTERS.forEach((type, counter) -> messages.merge(getTypeName(type), counter.sum(), Long::sum));
+		return messages;
+	}
+
+	/*
+	 * Name of a class without the package, with the enclosing classes separated by dots.
+	 */
+	private static String getTypeName(final Class<?> type) {
+		return type.getName().substring(type.getName().lastIndexOf('.') + 1).replace('$', '.');
+	}
+
+}
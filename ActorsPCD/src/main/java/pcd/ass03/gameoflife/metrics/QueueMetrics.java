@@ -0,0 +1,85 @@
+package pcd.ass03.gameoflife.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records the activity of the mailboxes of all the actors of a class:
+ * the messages waiting in them, the deepest queue seen and how long the messages wait
+ * from their enqueueing to their processing. It is updated by the instrumented mailboxes
+ * with striped counters, so the actors do not contend on it.
+ *
+ */
+public final class QueueMetrics {
+
+	private final LongAdder enqueuedMessages;
+	private final LongAdder queuedMessages;
+	private final LongAccumulator maxDepth;
+	private final LatencyHistogram waitTimes;
+
+	QueueMetrics() {
+		this.enqueuedMessages = new LongAdder();
+		this.queuedMessages = new LongAdder();
+		this.maxDepth = new LongAccumulator(Math::max, 0);
+		this.waitTimes = new LatencyHistogram();
+	}
+
+	/**
+	 * Records a message put in a queue.
+	 *
+	 * @param depth
+	 * 		the number of messages in the queue, including the new one
+	 */
+	public void enqueued(final int depth) {
+		this.enqueuedMessages.increment();
+		this.queuedMessages.increment();
+		this.maxDepth.accumulate(depth);
+	}
+
+	/**
+	 * Records a message taken from a queue to be processed.
+	 *
+	 * @param waitNanos
+	 * 		the time the message spent in the queue, in nanoseconds
+	 */
+	public void dequeued(final long waitNanos) {
+		this.queuedMessages.decrement();
+		this.waitTimes.record(waitNanos);
+	}
+
+	/**
+	 * Records a message put back in a queue (e.g. unstashed), which is not counted again as enqueued.
+	 */
+	public void requeued() {
+		this.queuedMessages.increment();
+	}
+
+	/**
+	 * @return the number of messages enqueued since the start of the application
+	 */
+	public long getEnqueuedMessages() {
+		return this.enqueuedMessages.sum();
+	}
+
+	/**
+	 * @return the number of messages currently waiting in the queues
+	 */
+	public long getQueuedMessages() {
+		return this.queuedMessages.sum();
+	}
+
+	/**
+	 * @return the largest number of messages seen in a single queue
+	 */
+	public long getMaxDepth() {
+		return this.maxDepth.get();
+	}
+
+	/**
+	 * @return the times spent by the messages in the queues
+	 */
+	public LatencyHistogram getWaitTimes() {
+		return this.waitTimes;
+	}
+
+}
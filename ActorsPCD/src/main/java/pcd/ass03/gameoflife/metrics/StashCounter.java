@@ -0,0 +1,53 @@
+package pcd.ass03.gameoflife.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts the messages stashed by all the actors of a class: the total number of stashed messages
+ * and the number of those still in the stashes. The counters are striped, so the actors update them
+ * without contention. Each actor must report the messages it stashes and the ones it unstashes.
+ *
+ */
+public final class StashCounter {
+
+	private final LongAdder stashedMessages;
+	private final LongAdder pendingMessages;
+
+	StashCounter() {
+		this.stashedMessages = new LongAdder();
+		this.pendingMessages = new LongAdder();
+	}
+
+	/**
+	 * Records a stashed message.
+	 */
+	public void stashed() {
+		this.stashedMessages.increment();
+		this.pendingMessages.increment();
+	}
+
+	/**
+	 * Records the messages taken back from a stash.
+	 *
+	 * @param nMessages
+	 * 		the number of unstashed messages
+	 */
+	public void unstashed(final int nMessages) {
+		this.pendingMessages.add(-nMessages);
+	}
+
+	/**
+	 * @return the number of messages stashed since the start of the application
+	 */
+	public long getStashedMessages() {
+		return this.stashedMessages.sum();
+	}
+
+	/**
+	 * @return the number of messages currently in the stashes
+	 */
+	public long getPendingMessages() {
+		return this.pendingMessages.sum();
+	}
+
+}
@@ -0,0 +1,192 @@
+package pcd.ass03.gameoflife.model;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a generation of the Conway's Game Of Life as a compact bitset,
+ * with one bit for each cell (1 = alive, 0 = dead).
+ * The cells are stored in row-major order inside a long array, so a 1000x1000 grid
+ * takes about 122 KB instead of the megabytes required by a map of boxed points.
+ *
+ */
+public class BitGrid {
+
+	private static final int ADDRESS_BITS_PER_WORD = 6;
+	private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+
+	private final int width;
+	private final int height;
+	private final long[] words;
+
+	/**
+	 * Creates a grid with all the cells dead.
+	 *
+	 * @param width
+	 * 		the number of columns
+	 * @param height
+	 * 		the number of rows
+	 */
+	public BitGrid(final int width, final int height) {
+		this(width, height, new long[getWordsCount(width, height)]);
+	}
+
+	private BitGrid(final int width, final int height, final long[] words) {
+		if (width < 0 || height < 0) {
+			throw new IllegalArgumentException("Negative grid dimension: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.words = words;
+	}
+
+	/**
+	 * @param width
+	 * 		the number of columns
+	 * @param height
+	 * 		the number of rows
+	 * @return the number of longs required to store a grid with the specified dimension
+	 */
+	public static int getWordsCount(final int width, final int height) {
+		return (int) (((long) width * height + BITS_PER_WORD - 1) >>> ADDRESS_BITS_PER_WORD);
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * @return the number of cells
+	 */
+	public int size() {
+		return this.width * this.height;
+	}
+
+	/**
+	 * @param x
+	 * 		the x coordinate of the cell
+	 * @param y
+	 * 		the y coordinate of the cell
+	 * @return true if the cell is alive, false otherwise
+	 */
+	public boolean get(final int x, final int y) {
+		return get(y * this.width + x);
+	}
+
+	/**
+	 * @param index
+	 * 		the row-major index of the cell
+	 * @return true if the cell is alive, false otherwise
+	 */
+	public boolean get(final int index) {
+		return (this.words[index >>> ADDRESS_BITS_PER_WORD] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets the state of a cell.
+	 *
+	 * @param x
+	 * 		the x coordinate of the cell
+	 * @param y
+	 * 		the y coordinate of the cell
+	 * @param alive
+	 * 		the state of the cell
+	 */
+	public void set(final int x, final int y, final boolean alive) {
+		set(y * this.width + x, alive);
+	}
+
+	/**
+	 * Sets the state of a cell.
+	 *
+	 * @param index
+	 * 		the row-major index of the cell
+	 * @param alive
+	 * 		the state of the cell
+	 */
+	public void set(final int index, final boolean alive) {
+		if (alive) {
+			this.words[index >>> ADDRESS_BITS_PER_WORD] |= 1L << index;
+		} else {
+			this.words[index >>> ADDRESS_BITS_PER_WORD] &= ~(1L << index);
+		}
+	}
+
+	/**
+	 * Inverts the state of a cell.
+	 *
+	 * @param index
+	 * 		the row-major index of the cell
+	 */
+	public void flip(final int index) {
+		this.words[index >>> ADDRESS_BITS_PER_WORD] ^= 1L << index;
+	}
+
+	/**
+	 * @return the number of alive cells
+	 */
+	public int countAlive() {
+		int count = 0;
+		for (final long word : this.words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Kills all the cells.
+	 */
+	public void clear() {
+		Arrays.fill(this.words, 0L);
+	}
+
+	/**
+	 * @return a copy of this grid
+	 */
+	public BitGrid copy() {
+		return new BitGrid(this.width, this.height, this.words.clone());
+	}
+
+	/**
+	 * Gives access to the underlying words, for bulk operations (e.g. comparisons or storage).
+	 * Bit i of word w is the cell with row-major index w * 64 + i; the unused bits of the last word are always 0.
+	 *
+	 * @return the backing array of the grid (not a copy)
+	 */
+	public long[] getWords() {
+		return this.words;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + this.width;
+		result = prime * result + this.height;
+		result = prime * result + Arrays.hashCode(this.words);
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		return obj instanceof BitGrid
+				&& this.width == ((BitGrid) obj).width
+				&& this.height == ((BitGrid) obj).height
+				&& Arrays.equals(this.words, ((BitGrid) obj).words);
+	}
+
+	@Override
+	public String toString() {
+		return "BitGrid [" + this.width + "x" + this.height + ", alive=" + countAlive() + "]";
+	}
+
+}
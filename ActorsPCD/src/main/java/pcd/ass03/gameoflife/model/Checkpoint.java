@@ -0,0 +1,111 @@
+package pcd.ass03.gameoflife.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class saves and loads a generation as a checkpoint file: a 16 bytes header
+ * (magic number, version, width and height) followed by the bit-packed words of the grid,
+ * in little-endian order. The file is memory-mapped, so the words are copied in bulk
+ * without any intermediate buffer.
+ *
+ */
+public final class Checkpoint {
+
+	/**
+	 * The extension of the checkpoint files.
+	 */
+	public static final String EXTENSION = ".golc";
+
+	private static final int MAGIC = 0x434C4F47; // "GOLC" in little-endian order
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+	private Checkpoint() { }
+
+	/**
+	 * Writes a generation to a checkpoint file, replacing it if it exists.
+	 *
+	 * @param file
+	 * 		the checkpoint file
+	 * @param grid
+	 * 		the generation to save
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	public static void write(final Path file, final BitGrid grid) throws IOException {
+		final long[] words = grid.getWords();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					HEADER_BYTES + (long) words.length * Long.BYTES);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(grid.getWidth()).putInt(grid.getHeight());
+			buffer.asLongBuffer().put(words);
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Reads a generation from a checkpoint file.
+	 *
+	 * @param file
+	 * 		the checkpoint file
+	 * @return the saved generation
+	 * @throws IOException
+	 * 		if the file cannot be read or it is not a valid checkpoint
+	 */
+	public static BitGrid read(final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES) {
+				throw new IOException(file + " is not a checkpoint");
+			}
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException(file + " is not a checkpoint");
+			}
+			final int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported checkpoint version: " + version);
+			}
+			final int width = buffer.getInt();
+			final int height = buffer.getInt();
+			if (width <= 0 || height <= 0
+					|| channel.size() != HEADER_BYTES + (long) BitGrid.getWordsCount(width, height) * Long.BYTES) {
+				throw new IOException("Corrupted checkpoint: " + file);
+			}
+
+			final BitGrid grid = new BitGrid(width, height);
+			final long[] words = grid.getWords();
+			buffer.asLongBuffer().get(words);
+			// The unused bits of the last word must be 0
+			final int usedBits = (int) ((long) width * height % Long.SIZE);
+			if (usedBits != 0) {
+				words[words.length - 1] &= (1L << usedBits) - 1;
+			}
+			return grid;
+		}
+	}
+
+	/**
+	 * @param file
+	 * 		a file
+	 * @return true if the file starts as a checkpoint
+	 * @throws IOException
+	 * 		if the file cannot be read
+	 */
+	public static boolean isCheckpoint(final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) >= 0) { }
+			return !header.hasRemaining() && header.getInt(0) == MAGIC;
+		}
+	}
+
+}
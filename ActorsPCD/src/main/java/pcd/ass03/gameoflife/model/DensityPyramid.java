@@ -0,0 +1,126 @@
+package pcd.ass03.gameoflife.model;
+
+/**
+ * This class keeps the number of alive cells of a grid for square blocks of growing size
+ * (4x4, 8x8, ... up to 128x128 cells), so that a zoomed-out view can read the density of an area
+ * with a single lookup instead of visiting all of its cells.
+ * The counts are built once from a grid and then updated incrementally for each changed cell.
+ *
+ */
+public class DensityPyramid {
+
+	private static final int MIN_BLOCK_SHIFT = 2;
+	private static final int MAX_BLOCK_SHIFT = 7;
+
+	private final int width;
+	private final int height;
+	private final int[] levelWidths;
+	private final char[][] counts; // Unsigned, a 128x128 block counts at most 16384 cells
+
+	/**
+	 * Creates the pyramid of a grid.
+	 *
+	 * @param grid
+	 * 		the grid, whose changes must then be notified with {@link #update(int, boolean)}
+	 */
+	public DensityPyramid(final BitGrid grid) {
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		final int nLevels = MAX_BLOCK_SHIFT - MIN_BLOCK_SHIFT + 1;
+		this.levelWidths = new int[nLevels];
+		this.counts = new char[nLevels][];
+		for (int level = 0; level < nLevels; level++) {
+			final int shift = MIN_BLOCK_SHIFT + level;
+			this.levelWidths[level] = (this.width + (1 << shift) - 1) >> shift;
+			this.counts[level] = new char[this.levelWidths[level] * ((this.height + (1 << shift) - 1) >> shift)];
+		}
+
+		// The first level is filled visiting only the alive cells, the others adding the blocks of the previous one
+		final long[] words = grid.getWords();
+		final char[] firstLevel = this.counts[0];
+		for (int w = 0; w < words.length; w++) {
+			long word = words[w];
+			while (word != 0) {
+				final int index = (w << 6) + Long.numberOfTrailingZeros(word);
+				firstLevel[this.getBlock(0, index % this.width, index / this.width)]++;
+				word &= word - 1;
+			}
+		}
+		for (int level = 1; level < nLevels; level++) {
+			final char[] previous = this.counts[level - 1];
+			final int previousWidth = this.levelWidths[level - 1];
+			for (int i = 0; i < previous.length; i++) {
+				this.counts[level][((i / previousWidth) >> 1) * this.levelWidths[level] + ((i % previousWidth) >> 1)] += previous[i];
+			}
+		}
+	}
+
+	/**
+	 * Updates the counts after a change of a cell.
+	 *
+	 * @param index
+	 * 		the row-major index of the cell
+	 * @param alive
+	 * 		the new state of the cell
+	 */
+	public void update(final int index, final boolean alive) {
+		final int x = index % this.width;
+		final int y = index / this.width;
+		for (int level = 0; level < this.counts.length; level++) {
+			if (alive) {
+				this.counts[level][this.getBlock(level, x, y)]++;
+			} else {
+				this.counts[level][this.getBlock(level, x, y)]--;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of levels
+	 */
+	public int getLevelsCount() {
+		return this.counts.length;
+	}
+
+	/**
+	 * @param level
+	 * 		a level of the pyramid
+	 * @return the side of the blocks of the level, in cells
+	 */
+	public int getBlockSize(final int level) {
+		return 1 << (MIN_BLOCK_SHIFT + level);
+	}
+
+	/**
+	 * @param blockSize
+	 * 		the wanted side of the blocks, in cells
+	 * @return the level with the biggest blocks not bigger than the wanted ones,
+	 * 		or -1 if the blocks of all the levels are bigger
+	 */
+	public int getLevel(final int blockSize) {
+		final int shift = 31 - Integer.numberOfLeadingZeros(blockSize);
+		return shift < MIN_BLOCK_SHIFT ? -1 : Math.min(shift, MAX_BLOCK_SHIFT) - MIN_BLOCK_SHIFT;
+	}
+
+	/**
+	 * @param level
+	 * 		a level of the pyramid
+	 * @param x
+	 * 		the x coordinate of a cell inside the grid
+	 * @param y
+	 * 		the y coordinate of a cell inside the grid
+	 * @return the number of alive cells of the block of the level which contains the cell
+	 */
+	public int getCount(final int level, final int x, final int y) {
+		return this.counts[level][this.getBlock(level, x, y)];
+	}
+
+	/*
+	 * Returns the index of the block of a level which contains a cell.
+	 */
+	private int getBlock(final int level, final int x, final int y) {
+		final int shift = MIN_BLOCK_SHIFT + level;
+		return (y >> shift) * this.levelWidths[level] + (x >> shift);
+	}
+
+}
@@ -0,0 +1,86 @@
+package pcd.ass03.gameoflife.model;
+
+/**
+ * This class summarizes the population of a whole grid with the number of alive cells
+ * of square blocks, sized so that there are only a few hundred blocks on each side:
+ * it is small enough to be sent often, e.g. to draw a preview of a huge grid.
+ *
+ */
+public class DensitySummary {
+
+	private final int width;
+	private final int height;
+	private final int blockShift;
+	private final int blocksPerRow;
+	private final int[] counts;
+
+	private DensitySummary(final int width, final int height, final int blockShift, final int[] counts) {
+		this.width = width;
+		this.height = height;
+		this.blockShift = blockShift;
+		this.blocksPerRow = (width + (1 << blockShift) - 1) >> blockShift;
+		this.counts = counts;
+	}
+
+	/**
+	 * Counts the alive cells of each block of a grid, visiting only the alive cells.
+	 *
+	 * @param grid
+	 * 		the grid
+	 * @param maxBlocks
+	 * 		the maximum number of blocks on each side
+	 * @return the summary of the grid, with the smallest blocks (of a power of 2 side) allowed
+	 */
+	public static DensitySummary of(final BitGrid grid, final int maxBlocks) {
+		int blockShift = 0;
+		while (((grid.getWidth() - 1) >> blockShift) + 1 > maxBlocks || ((grid.getHeight() - 1) >> blockShift) + 1 > maxBlocks) {
+			blockShift++;
+		}
+		final int blocksPerRow = (grid.getWidth() + (1 << blockShift) - 1) >> blockShift;
+		final int[] counts = new int[blocksPerRow * ((grid.getHeight() + (1 << blockShift) - 1) >> blockShift)];
+
+		final long[] words = grid.getWords();
+		for (int w = 0; w < words.length; w++) {
+			long word = words[w];
+			while (word != 0) {
+				final int index = (w << 6) + Long.numberOfTrailingZeros(word);
+				counts[((index / grid.getWidth()) >> blockShift) * blocksPerRow + ((index % grid.getWidth()) >> blockShift)]++;
+				word &= word - 1;
+			}
+		}
+		return new DensitySummary(grid.getWidth(), grid.getHeight(), blockShift, counts);
+	}
+
+	/**
+	 * @return the number of columns of the grid
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * @return the number of rows of the grid
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * @return the side of the blocks, in cells
+	 */
+	public int getBlockSize() {
+		return 1 << this.blockShift;
+	}
+
+	/**
+	 * @param x
+	 * 		the x coordinate of a cell inside the grid
+	 * @param y
+	 * 		the y coordinate of a cell inside the grid
+	 * @return the number of alive cells of the block which contains the cell
+	 */
+	public int getCount(final int x, final int y) {
+		return this.counts[(y >> this.blockShift) * this.blocksPerRow + (x >> this.blockShift)];
+	}
+
+}
@@ -0,0 +1,319 @@
+package pcd.ass03.gameoflife.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents a fixed-size history of generations, stored off-heap inside a direct buffer
+ * used as a ring: when the space is over, the oldest generations are overwritten.
+ * A generation is stored either as a keyframe (the bit-packed words of the whole grid) or as a delta,
+ * that is only the words that differ from the previous generation, XORed with it. A keyframe is
+ * stored every few generations, so rebuilding a generation requires only a few deltas.
+ * <p>
+ * Only the index of the stored generations and the last generation are kept on the heap.
+ *
+ */
+public class GenerationHistory {
+
+	private static final int DELTA_HEADER_BYTES = Integer.BYTES;
+	private static final int DELTA_ENTRY_BYTES = Integer.BYTES + Long.BYTES;
+
+	private final ByteBuffer buffer;
+	private final int keyframeInterval;
+	private int width;
+	private int height;
+	private int nWords;
+
+	// Index of the stored generations, as a ring from the oldest to the latest
+	private final long[] generations;
+	private final int[] offsets;
+	private final int[] lengths;
+	private final boolean[] keyframes;
+	private int oldest;
+	private int count;
+	private int writePosition;
+	private int nDeltasSinceKeyframe;
+	private long[] lastWords;
+
+	// Last rebuilt generation, so that moving forward requires only the next deltas
+	private int cursor;
+	private long[] cursorWords;
+
+	/**
+	 * Creates an empty history.
+	 *
+	 * @param capacity
+	 * 		the bytes of the off-heap buffer
+	 * @param maxGenerations
+	 * 		the maximum number of stored generations
+	 * @param keyframeInterval
+	 * 		the maximum number of deltas between two keyframes
+	 */
+	public GenerationHistory(final int capacity, final int maxGenerations, final int keyframeInterval) {
+		this.buffer = ByteBuffer.allocateDirect(capacity);
+		this.keyframeInterval = Math.max(1, keyframeInterval);
+		this.generations = new long[maxGenerations];
+		this.offsets = new int[maxGenerations];
+		this.lengths = new int[maxGenerations];
+		this.keyframes = new boolean[maxGenerations];
+		reset(0, 0);
+	}
+
+	/**
+	 * Discards all the generations, preparing the history for grids of the specified dimension.
+	 *
+	 * @param width
+	 * 		the number of columns of the grids
+	 * @param height
+	 * 		the number of rows of the grids
+	 */
+	public void reset(final int width, final int height) {
+		this.width = width;
+		this.height = height;
+		this.nWords = BitGrid.getWordsCount(width, height);
+		this.oldest = 0;
+		this.count = 0;
+		this.writePosition = 0;
+		this.nDeltasSinceKeyframe = 0;
+		this.lastWords = null;
+		this.cursor = -1;
+		this.cursorWords = null;
+	}
+
+	/**
+	 * @return true if a generation of the current dimension is small enough to be stored
+	 * 		(at least a few keyframes must fit in the buffer)
+	 */
+	public boolean isEnabled() {
+		return (long) this.nWords * Long.BYTES * 3 <= this.buffer.capacity();
+	}
+
+	/**
+	 * Stores a generation.
+	 *
+	 * @param generation
+	 * 		the generation number, greater than the ones already stored
+	 * @param grid
+	 * 		the cells of the generation
+	 */
+	public void append(final long generation, final BitGrid grid) {
+		if (!isEnabled()) {
+			return;
+		}
+		final long[] words = grid.getWords();
+		int nChangedWords = 0;
+		if (this.lastWords != null) {
+			for (int word = 0; word < this.nWords; word++) {
+				if (words[word] != this.lastWords[word]) {
+					nChangedWords++;
+				}
+			}
+		}
+
+		// A keyframe is stored periodically or when the delta would not be smaller
+		final int keyframeLength = this.nWords * Long.BYTES;
+		final int deltaLength = DELTA_HEADER_BYTES + nChangedWords * DELTA_ENTRY_BYTES;
+		boolean keyframe = this.lastWords == null || this.nDeltasSinceKeyframe + 1 >= this.keyframeInterval
+				|| deltaLength >= keyframeLength;
+		makeRoom(keyframe ? keyframeLength : deltaLength);
+		if (!keyframe && this.count == 0) {
+			// The previous generation has been overwritten, so a delta could not be rebuilt
+			keyframe = true;
+			makeRoom(keyframeLength);
+		}
+
+		final int offset = this.writePosition;
+		if (keyframe) {
+			for (int word = 0; word < this.nWords; word++) {
+				this.buffer.putLong(offset + word * Long.BYTES, words[word]);
+			}
+			this.nDeltasSinceKeyframe = 0;
+		} else {
+			this.buffer.putInt(offset, nChangedWords);
+			int position = offset + DELTA_HEADER_BYTES;
+			for (int word = 0; word < this.nWords; word++) {
+				if (words[word] != this.lastWords[word]) {
+					this.buffer.putInt(position, word);
+					this.buffer.putLong(position + Integer.BYTES, words[word] ^ this.lastWords[word]);
+					position += DELTA_ENTRY_BYTES;
+				}
+			}
+			this.nDeltasSinceKeyframe++;
+		}
+
+		final int index = (this.oldest + this.count) % this.generations.length;
+		this.generations[index] = generation;
+		this.offsets[index] = offset;
+		this.lengths[index] = keyframe ? keyframeLength : deltaLength;
+		this.keyframes[index] = keyframe;
+		this.count++;
+		this.writePosition = offset + this.lengths[index];
+
+		if (this.lastWords == null) {
+			this.lastWords = new long[this.nWords];
+		}
+		System.arraycopy(words, 0, this.lastWords, 0, this.nWords);
+	}
+
+	/**
+	 * @return the number of stored generations
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * @return the oldest stored generation number, or -1 if the history is empty
+	 */
+	public long getOldestGeneration() {
+		return this.count == 0 ? -1 : this.generations[this.oldest];
+	}
+
+	/**
+	 * @return the latest stored generation number, or -1 if the history is empty
+	 */
+	public long getLatestGeneration() {
+		return this.count == 0 ? -1 : this.generations[(this.oldest + this.count - 1) % this.generations.length];
+	}
+
+	/**
+	 * @param generation
+	 * 		a generation number
+	 * @return the latest stored generation number lower than the specified one, or -1 if there is none
+	 */
+	public long getGenerationBefore(final long generation) {
+		final int position = findPosition(generation);
+		return position > 0 ? getGenerationAt(position - 1) : -1;
+	}
+
+	/**
+	 * @param generation
+	 * 		a generation number
+	 * @return the oldest stored generation number greater than the specified one, or -1 if there is none
+	 */
+	public long getGenerationAfter(final long generation) {
+		int position = findPosition(generation);
+		if (position < this.count && getGenerationAt(position) == generation) {
+			position++;
+		}
+		return position < this.count ? getGenerationAt(position) : -1;
+	}
+
+	/**
+	 * Rebuilds a stored generation.
+	 *
+	 * @param generation
+	 * 		the generation number
+	 * @return a new grid with the cells of the generation, or null if it is not stored
+	 */
+	public BitGrid get(final long generation) {
+		final int position = findPosition(generation);
+		if (position == this.count || getGenerationAt(position) != generation) {
+			return null;
+		}
+
+		// Starts from the last rebuilt generation if possible, otherwise from the nearest keyframe
+		int keyframePosition = position;
+		while (!this.keyframes[toIndex(keyframePosition)]) {
+			keyframePosition--;
+		}
+		final int cursorPosition = this.cursor < 0 ? -1 : (this.cursor - this.oldest + this.generations.length) % this.generations.length;
+		int current;
+		if (this.cursorWords != null && cursorPosition < this.count && cursorPosition >= keyframePosition
+				&& cursorPosition <= position) {
+			current = cursorPosition;
+		} else {
+			current = keyframePosition;
+			readKeyframe(this.offsets[toIndex(current)]);
+		}
+		while (current < position) {
+			current++;
+			final int index = toIndex(current);
+			if (this.keyframes[index]) {
+				readKeyframe(this.offsets[index]);
+			} else {
+				applyDelta(this.offsets[index]);
+			}
+		}
+		this.cursor = toIndex(position);
+
+		final BitGrid grid = new BitGrid(this.width, this.height);
+		System.arraycopy(this.cursorWords, 0, grid.getWords(), 0, this.nWords);
+		return grid;
+	}
+
+	/*
+	 * Frees the space for a new record at the write position, overwriting the oldest generations.
+	 */
+	private void makeRoom(final int length) {
+		if (this.writePosition + length > this.buffer.capacity()) {
+			// Records never wrap around the end of the buffer
+			this.writePosition = 0;
+		}
+		while (this.count > 0 && (this.count == this.generations.length || overlapsOldest(length))) {
+			removeOldest();
+		}
+		// A delta without its keyframe is useless
+		while (this.count > 0 && !this.keyframes[this.oldest]) {
+			removeOldest();
+		}
+	}
+
+	private boolean overlapsOldest(final int length) {
+		final int start = this.offsets[this.oldest];
+		final int end = start + this.lengths[this.oldest];
+		return start < this.writePosition + length && this.writePosition < end;
+	}
+
+	private void removeOldest() {
+		if (this.cursor == this.oldest) {
+			this.cursor = -1;
+			this.cursorWords = null;
+		}
+		this.oldest = (this.oldest + 1) % this.generations.length;
+		this.count--;
+	}
+
+	/*
+	 * Returns the position (from the oldest) of the first stored generation not lower than the specified one.
+	 */
+	private int findPosition(final long generation) {
+		int low = 0;
+		int high = this.count;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (getGenerationAt(middle) < generation) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private long getGenerationAt(final int position) {
+		return this.generations[toIndex(position)];
+	}
+
+	private int toIndex(final int position) {
+		return (this.oldest + position) % this.generations.length;
+	}
+
+	private void readKeyframe(final int offset) {
+		if (this.cursorWords == null) {
+			this.cursorWords = new long[this.nWords];
+		}
+		for (int word = 0; word < this.nWords; word++) {
+			this.cursorWords[word] = this.buffer.getLong(offset + word * Long.BYTES);
+		}
+	}
+
+	private void applyDelta(final int offset) {
+		final int nChangedWords = this.buffer.getInt(offset);
+		int position = offset + DELTA_HEADER_BYTES;
+		for (int i = 0; i < nChangedWords; i++) {
+			this.cursorWords[this.buffer.getInt(position)] ^= this.buffer.getLong(position + Integer.BYTES);
+			position += DELTA_ENTRY_BYTES;
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+package pcd.ass03.gameoflife.model;
+
+import java.awt.Rectangle;
+
+/**
+ * This class represents the cells of a rectangular area of a grid, copied from it,
+ * together with the position of the area and the size of the whole grid.
+ *
+ */
+public class GridRegion {
+
+	private final BitGrid cells;
+	private final int x;
+	private final int y;
+	private final int gridWidth;
+	private final int gridHeight;
+
+	/**
+	 * Creates a region.
+	 *
+	 * @param cells
+	 * 		the cells of the area
+	 * @param x
+	 * 		the x coordinate of the top left cell of the area inside the grid
+	 * @param y
+	 * 		the y coordinate of the top left cell of the area inside the grid
+	 * @param gridWidth
+	 * 		the number of columns of the whole grid
+	 * @param gridHeight
+	 * 		the number of rows of the whole grid
+	 */
+	public GridRegion(final BitGrid cells, final int x, final int y, final int gridWidth, final int gridHeight) {
+		this.cells = cells;
+		this.x = x;
+		this.y = y;
+		this.gridWidth = gridWidth;
+		this.gridHeight = gridHeight;
+	}
+
+	/**
+	 * Copies the cells of an area of a grid.
+	 *
+	 * @param grid
+	 * 		the grid
+	 * @param area
+	 * 		the area to copy, which must be inside the grid
+	 * @return the region with the cells of the area
+	 */
+	public static GridRegion extract(final BitGrid grid, final Rectangle area) {
+		final BitGrid cells;
+		if (area.x == 0 && area.y == 0 && area.width == grid.getWidth() && area.height == grid.getHeight()) {
+			cells = grid.copy();
+		} else {
+			cells = new BitGrid(area.width, area.height);
+			for (int j = 0; j < area.height; j++) {
+				final int rowStart = (area.y + j) * grid.getWidth() + area.x;
+				for (int i = 0; i < area.width; i++) {
+					if (grid.get(rowStart + i)) {
+						cells.set(i, j, true);
+					}
+				}
+			}
+		}
+		return new GridRegion(cells, area.x, area.y, grid.getWidth(), grid.getHeight());
+	}
+
+	/**
+	 * @return the cells of the area
+	 */
+	public BitGrid getCells() {
+		return this.cells;
+	}
+
+	/**
+	 * @return the x coordinate of the top left cell of the area inside the grid
+	 */
+	public int getX() {
+		return this.x;
+	}
+
+	/**
+	 * @return the y coordinate of the top left cell of the area inside the grid
+	 */
+	public int getY() {
+		return this.y;
+	}
+
+	/**
+	 * @return the number of columns of the whole grid
+	 */
+	public int getGridWidth() {
+		return this.gridWidth;
+	}
+
+	/**
+	 * @return the number of rows of the whole grid
+	 */
+	public int getGridHeight() {
+		return this.gridHeight;
+	}
+
+	/**
+	 * @return the area covered by the region, in grid coordinates
+	 */
+	public Rectangle getBounds() {
+		return new Rectangle(this.x, this.y, this.cells.getWidth(), this.cells.getHeight());
+	}
+
+	/**
+	 * @return true if the region covers the whole grid
+	 */
+	public boolean isWholeGrid() {
+		return this.x == 0 && this.y == 0 && this.cells.getWidth() == this.gridWidth && this.cells.getHeight() == this.gridHeight;
+	}
+
+	/**
+	 * @param gridIndex
+	 * 		the row-major index of a cell of the area inside the whole grid
+	 * @return the row-major index of the cell inside the region
+	 */
+	public int toRegionIndex(final int gridIndex) {
+		return (gridIndex / this.gridWidth - this.y) * this.cells.getWidth() + gridIndex % this.gridWidth - this.x;
+	}
+
+	/**
+	 * @return a copy of this region, whose cells can be modified independently
+	 */
+	public GridRegion copy() {
+		return new GridRegion(this.cells.copy(), this.x, this.y, this.gridWidth, this.gridHeight);
+	}
+
+}
@@ -0,0 +1,300 @@
+package pcd.ass03.gameoflife.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class reads a first generation from a pattern file: a checkpoint, a Life 1.06 file
+ * (one "x y" pair for each alive cell) or a run length encoded (RLE) file.
+ * The files are parsed as streams and the cells are written directly into the grid,
+ * so even patterns of several megabytes need no memory other than the grid itself.
+ *
+ */
+public final class PatternReader {
+
+	private static final String LIFE_106_HEADER = "#Life 1.06";
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private PatternReader() { }
+
+	/**
+	 * Reads the pattern of a file, recognizing its format, and places it at the center of a grid.
+	 *
+	 * @param file
+	 * 		the pattern file
+	 * @param width
+	 * 		the number of columns of the grid (0 for the width of the pattern)
+	 * @param height
+	 * 		the number of rows of the grid (0 for the height of the pattern)
+	 * @return the first generation
+	 * @throws IOException
+	 * 		if the file cannot be read or it is malformed
+	 * @throws IllegalArgumentException
+	 * 		if the pattern does not fit in the grid
+	 */
+	public static BitGrid read(final Path file, final int width, final int height) throws IOException {
+		if (Checkpoint.isCheckpoint(file)) {
+			return center(Checkpoint.read(file), width, height);
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+			reader.mark(LIFE_106_HEADER.length());
+			final char[] header = new char[LIFE_106_HEADER.length()];
+			final int nRead = reader.read(header);
+			reader.reset();
+			if (nRead == header.length && LIFE_106_HEADER.equals(new String(header))) {
+				return readLife106(file, width, height);
+			}
+			return readRle(reader, width, height);
+		}
+	}
+
+	/**
+	 * Reads a run length encoded pattern and places it at the center of a grid.
+	 *
+	 * @param reader
+	 * 		the reader of the pattern, not closed
+	 * @param width
+	 * 		the number of columns of the grid (0 for the width of the pattern)
+	 * @param height
+	 * 		the number of rows of the grid (0 for the height of the pattern)
+	 * @return the first generation
+	 * @throws IOException
+	 * 		if the pattern cannot be read or it is malformed
+	 * @throws IllegalArgumentException
+	 * 		if the pattern does not fit in the grid
+	 */
+	public static BitGrid readRle(final Reader reader, final int width, final int height) throws IOException {
+		final char[] buffer = new char[BUFFER_SIZE];
+		int nChars = 0;
+		int position = 0;
+		boolean atLineStart = true;
+		boolean inComment = false;
+		final StringBuilder headerLine = new StringBuilder();
+		BitGrid grid = null;
+		int originX = 0;
+		int originY = 0;
+		int patternWidth = 0;
+		int patternHeight = 0;
+		int x = 0;
+		int y = 0;
+		int runCount = 0;
+
+		while (true) {
+			if (position == nChars) {
+				nChars = reader.read(buffer);
+				position = 0;
+				if (nChars < 0) {
+					break;
+				}
+				continue;
+			}
+			final char c = buffer[position++];
+
+			// Comments and header line, which precede the cells
+			if (grid == null || inComment) {
+				if (c == '\n' || c == '\r') {
+					if (!inComment && headerLine.length() > 0) {
+						final int[] dimension = parseRleHeader(headerLine.toString());
+						patternWidth = dimension[0];
+						patternHeight = dimension[1];
+						grid = new BitGrid(width > 0 ? width : patternWidth, height > 0 ? height : patternHeight);
+						checkFits(patternWidth, patternHeight, grid);
+						originX = (grid.getWidth() - patternWidth) / 2;
+						originY = (grid.getHeight() - patternHeight) / 2;
+					}
+					inComment = false;
+					atLineStart = true;
+				} else if (atLineStart && c == '#') {
+					inComment = true;
+					atLineStart = false;
+				} else if (!inComment) {
+					headerLine.append(c);
+					atLineStart = false;
+				}
+				continue;
+			}
+
+			// Cells: [count]tag, where b is a dead cell, o (or any other letter) an alive one, $ the end of a row
+			if (c >= '0' && c <= '9') {
+				runCount = runCount * 10 + (c - '0');
+			} else if (c == '!') {
+				return grid;
+			} else if (c == '$') {
+				y += runCount == 0 ? 1 : runCount;
+				x = 0;
+				runCount = 0;
+			} else if (c == 'b' || c == '.') {
+				x += runCount == 0 ? 1 : runCount;
+				runCount = 0;
+			} else if (Character.isLetter(c)) {
+				final int count = runCount == 0 ? 1 : runCount;
+				if (x + count > patternWidth || y >= patternHeight) {
+					throw new IOException("The cells exceed the size declared by the RLE header");
+				}
+				for (int i = 0; i < count; i++) {
+					grid.set(originX + x + i, originY + y, true);
+				}
+				x += count;
+				runCount = 0;
+			} else if (c == '#' && atLineStart) {
+				inComment = true;
+			} else if (!Character.isWhitespace(c)) {
+				throw new IOException("Unexpected character in RLE pattern: " + c);
+			}
+			atLineStart = c == '\n' || c == '\r';
+		}
+
+		// A pattern without its final ! is truncated, so its cells cannot be trusted
+		throw new IOException(grid == null ? "Missing RLE header" : "Missing end of RLE pattern (!)");
+	}
+
+	/**
+	 * Reads a Life 1.06 pattern and places it at the center of a grid.
+	 * The file is read twice, first to find the bounds of the pattern and then to set the cells.
+	 *
+	 * @param file
+	 * 		the pattern file
+	 * @param width
+	 * 		the number of columns of the grid (0 for the width of the pattern)
+	 * @param height
+	 * 		the number of rows of the grid (0 for the height of the pattern)
+	 * @return the first generation
+	 * @throws IOException
+	 * 		if the file cannot be read or it is malformed
+	 * @throws IllegalArgumentException
+	 * 		if the pattern does not fit in the grid
+	 */
+	public static BitGrid readLife106(final Path file, final int width, final int height) throws IOException {
+		final long[] cell = new long[2];
+		long minX = Long.MAX_VALUE;
+		long minY = Long.MAX_VALUE;
+		long maxX = Long.MIN_VALUE;
+		long maxY = Long.MIN_VALUE;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (parseLife106Line(line, cell)) {
+					minX = Math.min(minX, cell[0]);
+					minY = Math.min(minY, cell[1]);
+					maxX = Math.max(maxX, cell[0]);
+					maxY = Math.max(maxY, cell[1]);
+				}
+			}
+		}
+
+		final boolean isEmpty = minX > maxX;
+		final long patternWidth = isEmpty ? 0 : maxX - minX + 1;
+		final long patternHeight = isEmpty ? 0 : maxY - minY + 1;
+		if (patternWidth > Integer.MAX_VALUE || patternHeight > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The pattern is too big: " + patternWidth + "x" + patternHeight);
+		}
+		final BitGrid grid = new BitGrid(width > 0 ? width : (int) patternWidth, height > 0 ? height : (int) patternHeight);
+		checkFits((int) patternWidth, (int) patternHeight, grid);
+		if (isEmpty) {
+			return grid;
+		}
+		final long originX = (grid.getWidth() - patternWidth) / 2 - minX;
+		final long originY = (grid.getHeight() - patternHeight) / 2 - minY;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (parseLife106Line(line, cell)) {
+					grid.set((int) (originX + cell[0]), (int) (originY + cell[1]), true);
+				}
+			}
+		}
+		return grid;
+	}
+
+	/*
+	 * Parses the "x = width, y = height[, rule = ...]" header of a RLE pattern.
+	 */
+	private static int[] parseRleHeader(final String header) throws IOException {
+		final int[] dimension = { -1, -1 };
+		for (final String field : header.split(",")) {
+			final String[] parts = field.split("=");
+			if (parts.length == 2) {
+				final String name = parts[0].trim();
+				try {
+					if (name.equals("x")) {
+						dimension[0] = Integer.parseInt(parts[1].trim());
+					} else if (name.equals("y")) {
+						dimension[1] = Integer.parseInt(parts[1].trim());
+					}
+				} catch (final NumberFormatException e) {
+					throw new IOException("Invalid RLE header: " + header);
+				}
+			}
+		}
+		if (dimension[0] < 0 || dimension[1] < 0) {
+			throw new IOException("Invalid RLE header: " + header);
+		}
+		return dimension;
+	}
+
+	/*
+	 * Parses a line of a Life 1.06 pattern into the coordinates of a cell,
+	 * returning false if the line is empty or a comment.
+	 */
+	private static boolean parseLife106Line(final String line, final long[] cell) throws IOException {
+		int position = 0;
+		for (int coordinate = 0; coordinate < 2; coordinate++) {
+			while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+				position++;
+			}
+			if (coordinate == 0 && (position == line.length() || line.charAt(position) == '#')) {
+				return false;
+			}
+			final boolean isNegative = position < line.length() && line.charAt(position) == '-';
+			if (isNegative || (position < line.length() && line.charAt(position) == '+')) {
+				position++;
+			}
+			final int start = position;
+			long value = 0;
+			while (position < line.length() && line.charAt(position) >= '0' && line.charAt(position) <= '9') {
+				value = value * 10 + (line.charAt(position++) - '0');
+			}
+			if (position == start || value > Integer.MAX_VALUE) {
+				throw new IOException("Invalid Life 1.06 line: " + line);
+			}
+			cell[coordinate] = isNegative ? -value : value;
+		}
+		return true;
+	}
+
+	/*
+	 * Checks that a pattern fits in a grid.
+	 */
+	private static void checkFits(final int patternWidth, final int patternHeight, final BitGrid grid) {
+		if (patternWidth > grid.getWidth() || patternHeight > grid.getHeight()) {
+			throw new IllegalArgumentException("A " + patternWidth + "x" + patternHeight + " pattern does not fit in a "
+					+ grid.getWidth() + "x" + grid.getHeight() + " grid");
+		}
+	}
+
+	/*
+	 * Places a grid at the center of a grid of another dimension.
+	 */
+	private static BitGrid center(final BitGrid pattern, final int width, final int height) {
+		if ((width <= 0 || width == pattern.getWidth()) && (height <= 0 || height == pattern.getHeight())) {
+			return pattern;
+		}
+		final BitGrid grid = new BitGrid(width > 0 ? width : pattern.getWidth(), height > 0 ? height : pattern.getHeight());
+		checkFits(pattern.getWidth(), pattern.getHeight(), grid);
+		final int originX = (grid.getWidth() - pattern.getWidth()) / 2;
+		final int originY = (grid.getHeight() - pattern.getHeight()) / 2;
+		for (int y = 0; y < pattern.getHeight(); y++) {
+			for (int x = 0; x < pattern.getWidth(); x++) {
+				if (pattern.get(x, y)) {
+					grid.set(originX + x, originY + y, true);
+				}
+			}
+		}
+		return grid;
+	}
+
+}
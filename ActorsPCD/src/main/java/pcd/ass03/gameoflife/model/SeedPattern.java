@@ -0,0 +1,83 @@
+package pcd.ass03.gameoflife.model;
+
+import java.util.Random;
+
+/**
+ * This enumeration represents the standard patterns that can be used as first generation
+ * of the Conway's Game Of Life, so that runs can be reproduced (e.g. by benchmarks).
+ *
+ */
+public enum SeedPattern {
+
+	/**
+	 * Methuselah of 5 cells that stabilizes after 1103 generations.
+	 */
+	R_PENTOMINO(new int[][] { { 1, 0 }, { 2, 0 }, { 0, 1 }, { 1, 1 }, { 1, 2 } }),
+
+	/**
+	 * Methuselah of 7 cells that stabilizes after 5206 generations.
+	 */
+	ACORN(new int[][] { { 1, 0 }, { 3, 1 }, { 0, 2 }, { 1, 2 }, { 4, 2 }, { 5, 2 }, { 6, 2 } }),
+
+	/**
+	 * Gosper glider gun, emitting a glider every 30 generations.
+	 */
+	GOSPER_GUN(new int[][] {
+		{ 24, 0 }, { 22, 1 }, { 24, 1 }, { 12, 2 }, { 13, 2 }, { 20, 2 }, { 21, 2 }, { 34, 2 }, { 35, 2 },
+		{ 11, 3 }, { 15, 3 }, { 20, 3 }, { 21, 3 }, { 34, 3 }, { 35, 3 }, { 0, 4 }, { 1, 4 }, { 10, 4 },
+		{ 16, 4 }, { 20, 4 }, { 21, 4 }, { 0, 5 }, { 1, 5 }, { 10, 5 }, { 14, 5 }, { 16, 5 }, { 17, 5 },
+		{ 22, 5 }, { 24, 5 }, { 10, 6 }, { 16, 6 }, { 24, 6 }, { 11, 7 }, { 15, 7 }, { 12, 8 }, { 13, 8 } }),
+
+	/**
+	 * Cells alive at random with a given density.
+	 */
+	RANDOM(null);
+
+	private final int[][] cells;
+
+	private SeedPattern(final int[][] cells) {
+		this.cells = cells;
+	}
+
+	/**
+	 * Creates a first generation containing the pattern, centered in the grid.
+	 *
+	 * @param width
+	 * 		the number of columns of the grid
+	 * @param height
+	 * 		the number of rows of the grid
+	 * @param density
+	 * 		the probability of a cell to be alive (only for {@link #RANDOM})
+	 * @param seed
+	 * 		the seed of the random generator (only for {@link #RANDOM})
+	 * @return the first generation
+	 * @throws IllegalArgumentException
+	 * 		if the pattern does not fit in the grid
+	 */
+	public BitGrid createGrid(final int width, final int height, final double density, final long seed) {
+		final BitGrid grid = new BitGrid(width, height);
+		if (this.cells == null) {
+			final Random random = new Random(seed);
+			for (int index = 0; index < grid.size(); index++) {
+				grid.set(index, random.nextDouble() < density);
+			}
+		} else {
+			int patternWidth = 0;
+			int patternHeight = 0;
+			for (final int[] cell : this.cells) {
+				patternWidth = Math.max(patternWidth, cell[0] + 1);
+				patternHeight = Math.max(patternHeight, cell[1] + 1);
+			}
+			if (patternWidth > width || patternHeight > height) {
+				throw new IllegalArgumentException(this + " does not fit in a " + width + "x" + height + " grid");
+			}
+			final int originX = (width - patternWidth) / 2;
+			final int originY = (height - patternHeight) / 2;
+			for (final int[] cell : this.cells) {
+				grid.set(originX + cell[0], originY + cell[1], true);
+			}
+		}
+		return grid;
+	}
+
+}
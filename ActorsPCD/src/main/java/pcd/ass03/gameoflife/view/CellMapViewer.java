@@ -1,47 +1,53 @@
 package pcd.ass03.gameoflife.view;
 
 import java.awt.Dimension;
-import java.awt.Point;
-import java.util.Map;
+import java.awt.Rectangle;
 import java.util.Optional;
 
-import javafx.application.Platform;
+import akka.actor.ActorRef;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Button;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.paint.Color;
+import pcd.ass03.gameoflife.actors.GridActor;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.DensitySummary;
+import pcd.ass03.gameoflife.model.GridRegion;
 
 public class CellMapViewer extends BorderPane {
 	
-	private static final int CELL_SIZE = 9;
-	private static final int CELL_OFFSET = CELL_SIZE + 1;
-	private static final Color ALIVE_CELL_COLOR = Color.AQUA;
+	private static final double DEFAULT_SCALE = 10;
+	private static final double MAX_SCALE = 40;
+	private static final double MIN_SCALE = 1.0 / 128;
+	private static final double ZOOM_FACTOR = 1.1;
+	private static final double SCROLL_STEP = 40;
+	private static final double REGION_MARGIN = 0.5; // Fraction of the visible area added to each side of the region
+	private static final int ALIVE_CELL_COLOR = 0xFF00FFFF; // Aqua, in ARGB format
 	
-	private int xPos, yPos;
-	private int maxXMapNeeded, maxYMapNeeded;
-	private int actualXMap, actualYMap;
-	private int drawableXCells, drawableYCells;
+	private Viewport viewport;
+	private int gridWidth, gridHeight;
+	private double dragX, dragY;
+	private Rectangle subscribedRegion;
 	
-	private Map<Point, Boolean> cells;
+	private final GridRasterizer rasterizer;
 	
 	@FXML Canvas cellMap;
 	@FXML Button left, top, right, bottom;
 	
 	private MenuPanel menuPanel;
+	private ActorRef gridActor;
 	
 	public CellMapViewer() {
 		Optional<String> result = ViewUtils.loadFXML(this, "CellMapViewer.fxml");
 		
 		if (!result.isPresent()) {
-			this.xPos = 0;
-			this.yPos = 0;
-			this.maxXMapNeeded = 0;
-			this.maxYMapNeeded = 0;		
+			this.viewport = new Viewport(0, 0, DEFAULT_SCALE, 0, 0);
+			this.rasterizer = new GridRasterizer(this.cellMap, ALIVE_CELL_COLOR);
 			
-			this.setActionListeners();		
+			this.setActionListeners();
+			this.setMouseListeners();
 		} else {
+			this.rasterizer = null;
 			MessageUtils.showFXMLException(getClass().getSimpleName(), result.get());
 		}
 	}
@@ -59,9 +65,46 @@ public class CellMapViewer extends BorderPane {
 	 * @param cells
 	 * 		Cells to draw
 	 */
-	public void drawCells(final Map<Point, Boolean> cells) {	
-		this.cells = cells;
-		this.draw();
+	public void drawCells(final BitGrid cells) {
+		this.rasterizer.setCells(cells);
+	}
+	
+	/**
+	 * Apply the changes of a generation to the last drawn cells
+	 * @param changedCells
+	 * 		Row-major indices of the cells whose state is changed
+	 */
+	public void updateCells(final int[] changedCells) {
+		this.rasterizer.applyChanges(changedCells);
+	}
+	
+	/**
+	 * Draw the cells of a region of the map
+	 * @param region
+	 * 		Cells of the region
+	 * @param unchangedArea
+	 * 		Area whose cells must not be drawn, since they are already up to date (null to draw all the region)
+	 */
+	public void drawRegion(final GridRegion region, final Rectangle unchangedArea) {
+		this.rasterizer.setRegion(region, unchangedArea);
+	}
+	
+	/**
+	 * Draw the population summary of the whole map on the minimap
+	 * @param summary
+	 * 		Summary of the map
+	 */
+	public void drawSummary(final DensitySummary summary) {
+		this.rasterizer.setSummary(summary);
+	}
+	
+	/**
+	 * Set the reference to the grid actor, which sends only the region of the map around the visible area
+	 * @param gridActor
+	 * 		Reference to the grid actor
+	 */
+	public void setGridActorRef(final ActorRef gridActor) {
+		this.gridActor = gridActor;
 	}
 	
 	/**
@@ -74,41 +117,58 @@ public class CellMapViewer extends BorderPane {
 	}
 	
 	/**
-	 * Calculate the map limit dimension when get the official width and height 
+	 * Set the minimap where the population heatmap is drawn, after its size is known
+	 * @param miniMap
+	 * 		The minimap
+	 */
+	public void setMiniMap(final MiniMap miniMap) {
+		this.rasterizer.setMiniMap(miniMap, (int) miniMap.getWidth(), (int) miniMap.getHeight());
+	}
+	
+	/**
+	 * Set the dimension of the map, showing its top left corner at the default zoom
 	 * @param mapDimension
 	 * 		Dimension of the map
 	 */
 	public void setDimension(final Dimension mapDimension) {
-		//How many cells i want to draw
-		this.actualXMap = mapDimension.width;
-		this.actualYMap = mapDimension.height;
+		this.gridWidth = mapDimension.width;
+		this.gridHeight = mapDimension.height;
+		this.menuPanel.setMiniMapGrid(this.gridWidth, this.gridHeight);
+		this.subscribedRegion = null;
 		
-		//How many maps I need to draw them
-		this.maxXMapNeeded = (int) (this.actualXMap / this.drawableXCells);
-		this.maxYMapNeeded = (int) (this.actualYMap / this.drawableYCells);
-		
-		//Ok, I know everything, I update the minimap
-		this.menuPanel.setMiniMapLimits(maxXMapNeeded, maxYMapNeeded);
+		this.viewport = new Viewport(0, 0, DEFAULT_SCALE, this.viewport.getWidth(), this.viewport.getHeight());
+		this.updateState();
+	}
+	
+	/**
+	 * Center the map on a cell
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 */
+	public void centerOn(final double x, final double y) {
+		if (this.rasterizer.hasCells()) {
+			this.viewport = this.viewport.moveTo(x - this.viewport.getVisibleWidth() / 2, y - this.viewport.getVisibleHeight() / 2);
+			this.updateState();
+		}
 	}
 	
 	/**
 	 * Reset the CellMapViewer
 	 */
 	public void reset() {
-		this.cells.clear();
-		this.xPos = 0;
-		this.yPos = 0;
-		this.maxXMapNeeded = 0;
-		this.maxYMapNeeded = 0;
+		this.gridWidth = 0;
+		this.gridHeight = 0;
+		this.subscribedRegion = null;
+		this.viewport = new Viewport(0, 0, DEFAULT_SCALE, this.viewport.getWidth(), this.viewport.getHeight());
 		
-		Platform.runLater(() -> {
-			final GraphicsContext gc = cellMap.getGraphicsContext2D();
-			gc.clearRect(0, 0, cellMap.getWidth(), cellMap.getHeight());
-		});;
+		this.rasterizer.clear();
+		this.rasterizer.setViewport(this.viewport);
 	}
 	
 	/**
-	 * Get the dimention of the central area, set it to the main canvas and get how many cells it can draw <br/>
+	 * Get the dimention of the central area, set it to the main canvas and to the viewport <br/>
 	 * Then update the menuPanel to tell it how many cells it can draw
 	 */
 	private void setCanvasDimension() {
@@ -120,108 +180,115 @@ public class CellMapViewer extends BorderPane {
 		this.cellMap.setWidth(centralPanelWidth);
 		this.cellMap.setHeight(centralPanelHeight);
 		
-		//Getting how many cells I can draw horizontally and vertically
-		this.drawableXCells = (int) (cellMap.getWidth() / CELL_OFFSET);
-		this.drawableYCells = (int) (cellMap.getHeight() / CELL_OFFSET);
-		
-		//Ok, I Know how many, I update the menu panel
-		this.menuPanel.updatePreviewValues(drawableXCells, drawableYCells);
-	}
-	
-	/**
-	 * Draw the map in current offset
-	 */
-	private void draw() {
-		if (cells != null) {	
-			if (!cells.isEmpty()) {
-				//Starting position = offset * drawable cells
-				final int xStartPos = xPos * drawableXCells;
-				final int yStartPos = yPos * drawableYCells;		
-				
-				//Stop position = drawable cells OR the cells remaining to draw
-				final int xStopPos = Math.min(drawableXCells, (actualXMap - (drawableXCells * xPos)));
-				final int yStopPos = Math.min(drawableYCells, (actualYMap - (drawableYCells * yPos)));
-				
-				
-				Platform.runLater(() -> {
-					final GraphicsContext gc = cellMap.getGraphicsContext2D();
-					gc.clearRect(0, 0, cellMap.getWidth(), cellMap.getHeight());
-					gc.setFill(ALIVE_CELL_COLOR);
-					
-					for (int y = 0; y < yStopPos; y++) {
-						for (int x = 0; x < xStopPos; x++) {
-							//Get the point in right place (i + offset) (j + offset)
-							final Boolean value = cells.get(new Point(x + (xStartPos), y + (yStartPos)));
-							
-							//Check if it's null and it's alive
-							if (value != null) {
-								if (value) {
-			        				gc.fillRect(x * CELL_OFFSET, y * CELL_OFFSET, CELL_SIZE, CELL_SIZE);		   
-								}	
-							} else {
-								System.out.println("[" + x + ", " + y + "] - [" + (x+xStartPos) + ", " + (y+yStartPos) + "] is not present in the set. This shouldn't happen.");
-							}
-						}
-					}
-				});
-			}
-		}
+		//Ok, I Know the size, I update the viewport and the menu panel
+		this.viewport = new Viewport(this.viewport.getOriginX(), this.viewport.getOriginY(), this.viewport.getScale(),
+				(int) centralPanelWidth, (int) centralPanelHeight);
+		this.updateState();
 	}
 	
 	/**
-	 * Set action listeners for arrow buttons
+	 * Set action listeners for arrow buttons, which move the map by a page
 	 */
 	private void setActionListeners() {
 		this.left.setOnMouseClicked(e -> {
-			if (cells != null) {
-				if (!cells.isEmpty()) {
-					if (this.xPos > 0) {
-						this.xPos -= 1;
-						updateState();
-					}
-				}
+			if (this.rasterizer.hasCells()) {
+				this.viewport = this.viewport.pan(this.viewport.getWidth(), 0);
+				updateState();
 			}
 		});
 		
 		this.top.setOnMouseClicked(e -> {
-			if (cells != null) {
-				if (!cells.isEmpty()) {
-					if (this.yPos > 0) {
-						this.yPos -= 1;
-						updateState();
-					}
-				}
+			if (this.rasterizer.hasCells()) {
+				this.viewport = this.viewport.pan(0, this.viewport.getHeight());
+				updateState();
 			}
 		});
 		
 		this.right.setOnMouseClicked(e -> {
-			if (cells != null) {
-				if (!cells.isEmpty()) {
-					if (this.xPos < this.maxXMapNeeded) {
-						this.xPos += 1;
-						updateState();
-					}
-				}
+			if (this.rasterizer.hasCells()) {
+				this.viewport = this.viewport.pan(-this.viewport.getWidth(), 0);
+				updateState();
 			}
 		});
 		
 		this.bottom.setOnMouseClicked(e -> {
-			if (cells != null) {
-				if (!cells.isEmpty()) {
-					if (this.yPos < this.maxYMapNeeded) {
-						this.yPos += 1;
-						updateState();
-					}
-				}
+			if (this.rasterizer.hasCells()) {
+				this.viewport = this.viewport.pan(0, -this.viewport.getHeight());
+				updateState();
 			}
 		});
 	}
 	
 	/**
-	 * Update the state of the minimap (re-draw) and tell it to the menu panel
+	 * Set mouse listeners for the map: the wheel zooms around the pointer and dragging moves the map
+	 */
+	private void setMouseListeners() {
+		this.cellMap.setOnScroll(e -> {
+			if (this.rasterizer.hasCells() && e.getDeltaY() != 0) {
+				//Zoom out up to see all the grid, or MIN_SCALE for huge grids
+				final double fitScale = Math.min(this.viewport.getWidth() / (double) this.gridWidth,
+						this.viewport.getHeight() / (double) this.gridHeight);
+				final double minScale = Math.max(MIN_SCALE, Math.min(DEFAULT_SCALE, fitScale));
+				this.viewport = this.viewport.zoom(Math.pow(ZOOM_FACTOR, e.getDeltaY() / SCROLL_STEP), e.getX(), e.getY(), minScale, MAX_SCALE);
+				updateState();
+			}
+		});
+		
+		this.cellMap.setOnMousePressed(e -> {
+			this.dragX = e.getX();
+			this.dragY = e.getY();
+		});
+		
+		this.cellMap.setOnMouseDragged(e -> {
+			if (this.rasterizer.hasCells()) {
+				this.viewport = this.viewport.pan(e.getX() - this.dragX, e.getY() - this.dragY);
+				this.dragX = e.getX();
+				this.dragY = e.getY();
+				updateState();
+			}
+		});
+	}
+	
+	/**
+	 * Keep the viewport inside the map, re-draw it and tell the new viewport to the menu panel
 	 */
 	private void updateState() {
-		draw();
-		this.menuPanel.updateMiniMap(xPos, yPos);
+		if (this.gridWidth > 0 && this.gridHeight > 0) {
+			this.viewport = this.viewport.clamp(this.gridWidth, this.gridHeight);
+			this.updateRegion();
+		}
+		this.rasterizer.setViewport(this.viewport);
+		if (this.menuPanel != null) {
+			this.menuPanel.updateViewport(this.viewport);
+		}
+	}
+	
+	/**
+	 * If the visible area goes out of the region received from the grid, subscribe a new region:
+	 * the visible area with a margin around it, so that small moves do not require a new one
+	 */
+	private void updateRegion() {
+		final Rectangle gridArea = new Rectangle(0, 0, this.gridWidth, this.gridHeight);
+		final Rectangle visibleArea = gridArea.intersection(this.toArea(0));
+		if (this.gridActor != null && (this.subscribedRegion == null || !this.subscribedRegion.contains(visibleArea))) {
+			this.subscribedRegion = gridArea.intersection(this.toArea(REGION_MARGIN));
+			this.gridActor.tell(new GridActor.SubscribeRegionMsg(this.subscribedRegion), ActorRef.noSender());
+		}
+	}
+	
+	/**
+	 * Get the cells covered by the viewport, with a margin
+	 * @param margin
+	 * 		Fraction of the visible area to add to each side
+	 * @return the area of the cells
+	 */
+	private Rectangle toArea(final double margin) {
+		final double marginX = this.viewport.getVisibleWidth() * margin;
+		final double marginY = this.viewport.getVisibleHeight() * margin;
+		final int x = (int) Math.floor(this.viewport.getOriginX() - marginX);
+		final int y = (int) Math.floor(this.viewport.getOriginY() - marginY);
+		return new Rectangle(x, y,
+				(int) Math.ceil(this.viewport.getOriginX() + this.viewport.getVisibleWidth() + marginX) - x,
+				(int) Math.ceil(this.viewport.getOriginY() + this.viewport.getVisibleHeight() + marginY) - y);
 	}
 }
@@ -0,0 +1,109 @@
+package pcd.ass03.gameoflife.view;
+
+/**
+ * This class contains all the values shown by the view for a frame.
+ * It is immutable, so a whole frame can be published at once to the JavaFX thread
+ * through {@link ViewDataManager#publish(FrameState)}.
+ *
+ */
+public final class FrameState {
+
+	/**
+	 * The state shown before any generation.
+	 */
+	public static final FrameState EMPTY = new FrameState(0, 0, 0, 0, 0, 0);
+
+	private final long generation;
+	private final long aliveCells;
+	private final long elapsedTime;
+	private final long avgElapsedTime;
+	private final long bufferedGenerations;
+	private final long droppedGenerations;
+
+	/**
+	 * @param generation
+	 * 		the generation number
+	 * @param aliveCells
+	 * 		the number of alive cells
+	 * @param elapsedTime
+	 * 		the time spent to compute the generation
+	 * @param avgElapsedTime
+	 * 		the average time spent to compute a generation
+	 * @param bufferedGenerations
+	 * 		the number of generations waiting to be shown
+	 * @param droppedGenerations
+	 * 		the number of generations dropped without being shown
+	 */
+	public FrameState(final long generation, final long aliveCells, final long elapsedTime, final long avgElapsedTime,
+			final long bufferedGenerations, final long droppedGenerations) {
+		this.generation = generation;
+		this.aliveCells = aliveCells;
+		this.elapsedTime = elapsedTime;
+		this.avgElapsedTime = avgElapsedTime;
+		this.bufferedGenerations = bufferedGenerations;
+		this.droppedGenerations = droppedGenerations;
+	}
+
+	public long getGeneration() {
+		return this.generation;
+	}
+
+	public long getAliveCells() {
+		return this.aliveCells;
+	}
+
+	public long getElapsedTime() {
+		return this.elapsedTime;
+	}
+
+	public long getAvgElapsedTime() {
+		return this.avgElapsedTime;
+	}
+
+	public long getBufferedGenerations() {
+		return this.bufferedGenerations;
+	}
+
+	public long getDroppedGenerations() {
+		return this.droppedGenerations;
+	}
+
+	/**
+	 * @param generation
+	 * 		the generation number
+	 * @param aliveCells
+	 * 		the number of alive cells
+	 * @param elapsedTime
+	 * 		the time spent to compute the generation
+	 * @param avgElapsedTime
+	 * 		the average time spent to compute a generation
+	 * @return a copy of this state showing a computed generation
+	 */
+	public FrameState withResults(final long generation, final long aliveCells, final long elapsedTime, final long avgElapsedTime) {
+		return new FrameState(generation, aliveCells, elapsedTime, avgElapsedTime, this.bufferedGenerations, this.droppedGenerations);
+	}
+
+	/**
+	 * @param generation
+	 * 		the generation number
+	 * @param aliveCells
+	 * 		the number of alive cells
+	 * @return a copy of this state showing a generation without timings (e.g. one taken from the history)
+	 */
+	public FrameState withGeneration(final long generation, final long aliveCells) {
+		return this.withResults(generation, aliveCells, this.elapsedTime, this.avgElapsedTime);
+	}
+
+	/**
+	 * @param bufferedGenerations
+	 * 		the number of generations waiting to be shown
+	 * @param droppedGenerations
+	 * 		the number of generations dropped without being shown
+	 * @return a copy of this state with a new state of the buffer
+	 */
+	public FrameState withBuffer(final long bufferedGenerations, final long droppedGenerations) {
+		return new FrameState(this.generation, this.aliveCells, this.elapsedTime, this.avgElapsedTime,
+				bufferedGenerations, droppedGenerations);
+	}
+
+}
@@ -0,0 +1,442 @@
+package pcd.ass03.gameoflife.view;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.DensityPyramid;
+import pcd.ass03.gameoflife.model.DensitySummary;
+import pcd.ass03.gameoflife.model.GridRegion;
+
+/**
+ * This class rasterizes the visible area of a grid into an ARGB pixel buffer on a background thread,
+ * reading the cells straight from the bit-packed grid. The JavaFX thread only copies the last
+ * rasterized frame into the canvas, with a single {@code PixelWriter.setPixels} call at each pulse.
+ * <br/>
+ * When a pixel covers more than one cell, its color is the density of the block of cells under it,
+ * read from a {@link DensityPyramid}; the same pyramid is used to draw the population heatmap
+ * of the whole grid on the {@link MiniMap}, a few times per second, unless a {@link DensitySummary}
+ * of the grid is received (the view receives only a region of the grid).
+ * <br/>
+ * The grid is owned by the render thread: the changes of each generation are applied there too,
+ * and a render is scheduled only if there is not one already waiting, so when generations arrive
+ * faster than they can be drawn the intermediate frames are never rasterized.
+ *
+ */
+public class GridRasterizer {
+
+	private static final int FRAME_BUFFERS = 3;
+	private static final int MAX_DENSITY = 255;
+	private static final double MIN_GAP_SCALE = 4;
+	private static final long MINIMAP_PERIOD_MS = 250;
+	private static final int[] HEATMAP_PALETTE = createHeatmapPalette(0xFF3B3B3B);
+
+	private final Canvas canvas;
+	private final int[] palette;
+
+	private final ScheduledExecutorService renderer;
+	private final AtomicBoolean isRenderScheduled = new AtomicBoolean(false);
+	private final AtomicReference<Frame> pendingFrame = new AtomicReference<>();
+	private final BlockingQueue<Frame> freeFrames = new ArrayBlockingQueue<>(FRAME_BUFFERS);
+	private final AnimationTimer blitTimer;
+
+	// Confined to the render thread
+	private BitGrid cells;
+	private DensityPyramid densities;
+	private DensitySummary summary;
+	private boolean isMiniMapScheduled;
+
+	private volatile Viewport viewport;
+	private volatile MiniMap miniMap;
+	private volatile int miniMapWidth, miniMapHeight;
+	private volatile boolean hasCells;
+
+
+	/*
+	 * A rasterized frame and its size.
+	 */
+	private static final class Frame {
+		private final int[] pixels;
+		private final int width, height;
+
+		private Frame(final int width, final int height) {
+			this.pixels = new int[width * height];
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	/**
+	 * @param canvas
+	 * 		the canvas where the frames are copied
+	 * @param aliveColor
+	 * 		the color of the alive cells, in ARGB format
+	 */
+	public GridRasterizer(final Canvas canvas, final int aliveColor) {
+		this.canvas = canvas;
+		this.palette = createDensityPalette(aliveColor);
+		this.renderer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "grid-rasterizer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.blitTimer = new AnimationTimer() {
+			@Override
+			public void handle(final long now) {
+				blit();
+			}
+		};
+		Platform.runLater(this.blitTimer::start);
+	}
+
+	/**
+	 * Set the area of the grid to draw and render it
+	 * @param viewport
+	 * 		Visible area of the grid
+	 */
+	public void setViewport(final Viewport viewport) {
+		this.viewport = viewport;
+		this.requestRender();
+	}
+
+	/**
+	 * Set the minimap where the heatmap of the grid is drawn
+	 * @param miniMap
+	 * 		The minimap
+	 * @param width
+	 * 		Width of the minimap, in pixels
+	 * @param height
+	 * 		Height of the minimap, in pixels
+	 */
+	public void setMiniMap(final MiniMap miniMap, final int width, final int height) {
+		this.miniMapWidth = width;
+		this.miniMapHeight = height;
+		this.miniMap = miniMap;
+	}
+
+	/**
+	 * Replace the cells to draw and render them
+	 * @param cells
+	 * 		Cells to draw, which are then modified by {@link #applyChanges(int[])}
+	 */
+	public void setCells(final BitGrid cells) {
+		this.hasCells = cells != null && cells.size() > 0;
+		this.renderer.execute(() -> this.replaceCells(cells));
+		this.requestRender();
+	}
+
+	/**
+	 * Update the cells of a region of the grid and render them
+	 * @param region
+	 * 		Cells of the region, which are then modified by {@link #applyChanges(int[])} if the region is the whole grid
+	 * @param unchangedArea
+	 * 		Area whose cells must not be updated (null to update all the region)
+	 */
+	public void setRegion(final GridRegion region, final Rectangle unchangedArea) {
+		this.hasCells = true;
+		this.renderer.execute(() -> {
+			if (region.isWholeGrid() && unchangedArea == null) {
+				this.replaceCells(region.getCells());
+				return;
+			}
+			if (this.cells == null || this.cells.getWidth() != region.getGridWidth() || this.cells.getHeight() != region.getGridHeight()) {
+				this.cells = new BitGrid(region.getGridWidth(), region.getGridHeight());
+				this.densities = new DensityPyramid(this.cells);
+			}
+			// Only the cells whose state differs are changed, keeping the densities up to date
+			final BitGrid regionCells = region.getCells();
+			for (int j = 0; j < regionCells.getHeight(); j++) {
+				for (int i = 0; i < regionCells.getWidth(); i++) {
+					final int x = region.getX() + i;
+					final int y = region.getY() + j;
+					final int index = y * this.cells.getWidth() + x;
+					if (this.cells.get(index) != regionCells.get(i, j) && (unchangedArea == null || !unchangedArea.contains(x, y))) {
+						this.cells.flip(index);
+						this.densities.update(index, this.cells.get(index));
+					}
+				}
+			}
+			this.scheduleMiniMap(MINIMAP_PERIOD_MS);
+		});
+		this.requestRender();
+	}
+
+	/**
+	 * Set the population summary of the whole grid, drawn on the minimap instead of the cells
+	 * @param summary
+	 * 		Summary of the grid
+	 */
+	public void setSummary(final DensitySummary summary) {
+		this.renderer.execute(() -> {
+			this.summary = summary;
+			this.scheduleMiniMap(0);
+		});
+	}
+
+	/**
+	 * Apply the changes of a generation to the last cells and render them
+	 * @param changedCells
+	 * 		Row-major indices of the cells whose state is changed
+	 */
+	public void applyChanges(final int[] changedCells) {
+		this.renderer.execute(() -> {
+			if (this.cells != null) {
+				for (final int index : changedCells) {
+					this.cells.flip(index);
+					this.densities.update(index, this.cells.get(index));
+				}
+				this.scheduleMiniMap(MINIMAP_PERIOD_MS);
+			}
+		});
+		this.requestRender();
+	}
+
+	/**
+	 * @return true if there are cells to draw
+	 */
+	public boolean hasCells() {
+		return this.hasCells;
+	}
+
+	/**
+	 * Forget the cells and clear the canvas
+	 */
+	public void clear() {
+		this.setCells(null);
+	}
+
+	/**
+	 * Schedule a render of the current viewport, unless one is already waiting to start
+	 */
+	public void requestRender() {
+		if (this.isRenderScheduled.compareAndSet(false, true)) {
+			this.renderer.execute(this::render);
+		}
+	}
+
+	/*
+	 * Rasterize the viewport into a free frame buffer and hand it over to the JavaFX thread.
+	 */
+	private void render() {
+		this.isRenderScheduled.set(false);
+		final Viewport viewport = this.viewport;
+		if (viewport == null || viewport.getWidth() <= 0 || viewport.getHeight() <= 0) {
+			return;
+		}
+
+		Frame frame = this.freeFrames.poll();
+		if (frame == null || frame.width != viewport.getWidth() || frame.height != viewport.getHeight()) {
+			frame = new Frame(viewport.getWidth(), viewport.getHeight());
+		}
+		if (this.cells != null) {
+			this.rasterize(frame.pixels, viewport, this.palette, viewport.getScale() >= MIN_GAP_SCALE);
+		} else {
+			Arrays.fill(frame.pixels, this.palette[0]);
+		}
+
+		final Frame skippedFrame = this.pendingFrame.getAndSet(frame);
+		if (skippedFrame != null) {
+			// The previous frame has not been copied yet, so only this one is copied at the next pulse
+			this.freeFrames.offer(skippedFrame);
+		}
+	}
+
+	/*
+	 * Replace all the cells, computing their densities.
+	 * A whole grid is always up to date, so the summary is not needed anymore.
+	 */
+	private void replaceCells(final BitGrid cells) {
+		this.cells = cells;
+		this.densities = cells == null ? null : new DensityPyramid(cells);
+		this.summary = null;
+		this.scheduleMiniMap(0);
+	}
+
+	/*
+	 * Schedule a render of the minimap, unless one is already scheduled.
+	 */
+	private void scheduleMiniMap(final long delay) {
+		if (!this.isMiniMapScheduled) {
+			this.isMiniMapScheduled = true;
+			this.renderer.schedule(this::renderMiniMap, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/*
+	 * Rasterize the whole grid as a heatmap and hand it over to the minimap.
+	 */
+	private void renderMiniMap() {
+		this.isMiniMapScheduled = false;
+		final MiniMap miniMap = this.miniMap;
+		final int width = this.miniMapWidth;
+		final int height = this.miniMapHeight;
+		if (miniMap != null && this.cells != null && width > 0 && height > 0 && this.cells.size() > 0) {
+			// A new buffer each time, since the minimap is drawn rarely and it keeps the pixels until it copies them
+			final int[] pixels = new int[width * height];
+			final double scale = Math.min((double) width / this.cells.getWidth(), (double) height / this.cells.getHeight());
+			if (this.summary != null) {
+				this.rasterizeSummary(pixels, width, height, scale);
+			} else {
+				this.rasterize(pixels, new Viewport(0, 0, scale, width, height), HEATMAP_PALETTE, false);
+			}
+			miniMap.drawHeatmap(pixels, width, height);
+		}
+	}
+
+	/*
+	 * Draw the cells of a viewport. When zoomed in, each row of cells is drawn once and then copied
+	 * to the other rows of pixels of the same cells; when zoomed out, the density of the block of cells
+	 * under each pixel is drawn.
+	 */
+	private void rasterize(final int[] frame, final Viewport viewport, final int[] palette, final boolean hasGaps) {
+		final BitGrid cells = this.cells;
+		final int width = viewport.getWidth();
+		final int height = viewport.getHeight();
+		final double scale = viewport.getScale();
+		final int[] columns = mapPixels(width, viewport.getOriginX(), scale, cells.getWidth(), hasGaps);
+		final int[] rows = mapPixels(height, viewport.getOriginY(), scale, cells.getHeight(), hasGaps);
+
+		if (scale >= 1) {
+			for (int y = 0; y < height; y++) {
+				final int offset = y * width;
+				if (rows[y] < 0) {
+					Arrays.fill(frame, offset, offset + width, palette[0]);
+				} else if (y > 0 && rows[y] == rows[y - 1]) {
+					System.arraycopy(frame, offset - width, frame, offset, width);
+				} else {
+					final int rowStart = rows[y] * cells.getWidth();
+					for (int x = 0; x < width; x++) {
+						frame[offset + x] = columns[x] >= 0 && cells.get(rowStart + columns[x]) ? palette[MAX_DENSITY] : palette[0];
+					}
+				}
+			}
+		} else {
+			final int blockSize = Integer.highestOneBit((int) (1 / scale));
+			final int level = this.densities.getLevel(blockSize);
+			final int area = level < 0 ? blockSize * blockSize : this.densities.getBlockSize(level) * this.densities.getBlockSize(level);
+			for (int y = 0; y < height; y++) {
+				final int offset = y * width;
+				for (int x = 0; x < width; x++) {
+					if (columns[x] < 0 || rows[y] < 0) {
+						frame[offset + x] = palette[0];
+					} else {
+						final int count = level < 0
+								? countBlock(cells, columns[x], rows[y], blockSize)
+								: this.densities.getCount(level, columns[x], rows[y]);
+						frame[offset + x] = palette[count == 0 ? 0 : Math.max(1, count * MAX_DENSITY / area)];
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Draw the heatmap of the summary: the density of the block of the cell at the center of each pixel.
+	 */
+	private void rasterizeSummary(final int[] pixels, final int width, final int height, final double scale) {
+		final DensitySummary summary = this.summary;
+		final int[] columns = mapPixels(width, 0, scale, summary.getWidth(), false);
+		final int[] rows = mapPixels(height, 0, scale, summary.getHeight(), false);
+		final int area = summary.getBlockSize() * summary.getBlockSize();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (columns[x] < 0 || rows[y] < 0) {
+					pixels[y * width + x] = HEATMAP_PALETTE[0];
+				} else {
+					final int count = summary.getCount(columns[x], rows[y]);
+					pixels[y * width + x] = HEATMAP_PALETTE[count == 0 ? 0 : Math.max(1, count * MAX_DENSITY / area)];
+				}
+			}
+		}
+	}
+
+	/*
+	 * Find the column (or row) of cells drawn in each pixel along an axis: -1 for the pixels outside the grid
+	 * and for the gaps between cells; when zoomed out, the cell at the center of the pixel.
+	 */
+	private static int[] mapPixels(final int nPixels, final double origin, final double scale, final int nCells, final boolean hasGaps) {
+		final int[] cells = new int[nPixels];
+		final double center = scale >= 1 ? 0 : 0.5;
+		for (int pixel = 0; pixel < nPixels; pixel++) {
+			final int cell = (int) Math.floor(origin + (pixel + center) / scale);
+			final boolean isGap = hasGaps && (int) Math.floor(origin + (pixel + 1) / scale) != cell;
+			cells[pixel] = cell < 0 || cell >= nCells || isGap ? -1 : cell;
+		}
+		return cells;
+	}
+
+	/*
+	 * Count the alive cells of a small block, aligned to its size, which contains a cell.
+	 */
+	private static int countBlock(final BitGrid cells, final int x, final int y, final int blockSize) {
+		final int xStart = x - x % blockSize;
+		final int yStart = y - y % blockSize;
+		int count = 0;
+		for (int j = yStart; j < Math.min(yStart + blockSize, cells.getHeight()); j++) {
+			for (int i = xStart; i < Math.min(xStart + blockSize, cells.getWidth()); i++) {
+				if (cells.get(i, j)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Create the palette of the cell map: transparent for the empty areas, then the color of the alive cells
+	 * with an opacity growing with the density (square root, to make the sparse areas visible).
+	 */
+	private static int[] createDensityPalette(final int aliveColor) {
+		final int[] palette = new int[MAX_DENSITY + 1];
+		for (int density = 1; density <= MAX_DENSITY; density++) {
+			final int alpha = (int) Math.round(64 + 191 * Math.sqrt((double) density / MAX_DENSITY));
+			palette[density] = (alpha << 24) | (aliveColor & 0x00FFFFFF);
+		}
+		return palette;
+	}
+
+	/*
+	 * Create the palette of the heatmap: the background color for the empty areas, then from dark red to white.
+	 */
+	private static int[] createHeatmapPalette(final int backgroundColor) {
+		final int[] palette = new int[MAX_DENSITY + 1];
+		palette[0] = backgroundColor;
+		for (int density = 1; density <= MAX_DENSITY; density++) {
+			final double heat = 0.15 + 0.85 * Math.sqrt((double) density / MAX_DENSITY);
+			palette[density] = 0xFF000000 | (toChannel(3 * heat) << 16) | (toChannel(3 * heat - 1) << 8) | toChannel(3 * heat - 2);
+		}
+		return palette;
+	}
+
+	/*
+	 * Convert a value between 0 and 1 (clamped) to a color channel.
+	 */
+	private static int toChannel(final double value) {
+		return (int) Math.round(255 * Math.max(0, Math.min(1, value)));
+	}
+
+	/*
+	 * Copy the pending frame into the canvas, if any, at a pulse of the JavaFX thread.
+	 */
+	private void blit() {
+		final Frame frame = this.pendingFrame.getAndSet(null);
+		if (frame != null) {
+			this.canvas.getGraphicsContext2D().getPixelWriter().setPixels(0, 0,
+					Math.min(frame.width, (int) this.canvas.getWidth()), Math.min(frame.height, (int) this.canvas.getHeight()),
+					PixelFormat.getIntArgbInstance(), frame.pixels, 0, frame.width);
+			this.freeFrames.offer(frame);
+		}
+	}
+
+}
@@ -1,29 +1,41 @@
 package pcd.ass03.gameoflife.view;
 
 import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Optional;
 
 import akka.actor.ActorRef;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import pcd.ass03.gameoflife.actors.GridActor;
 import pcd.ass03.gameoflife.actors.ViewActor;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.Checkpoint;
+import pcd.ass03.gameoflife.model.PatternReader;
+import pcd.ass03.gameoflife.view.MessageUtils.ExceptionType;
 
 public class MenuPanel extends VBox {
 	
 	private static final double DEFAULT_REFRESH_RATE = 1000;
 	
 	@FXML private TextField mapWidth, mapHeight;
+	@FXML private ComboBox<EngineType> engine;
 	@FXML private MiniMap miniMap;
 	@FXML private Pane miniMapContainer;
-	@FXML private Label currentPosition, viewableCells, generation, elapsedTime, aliveCells, errorLabel, sliderValue, avgElapsedTime;
-	@FXML private Button start, stop, reset;
+	@FXML private Label currentPosition, viewableCells, generation, elapsedTime, aliveCells, errorLabel, sliderValue, avgElapsedTime,
+		bufferedGenerations, droppedGenerations, framesPerSecond, skippedFrames;
+	@FXML private Button start, stop, reset, rewind, stepBack, replay, load, save;
 	@FXML private VBox loadingStatus;
 	@FXML private Slider slider;
 	
@@ -37,6 +49,8 @@ public class MenuPanel extends VBox {
 
 		if (!result.isPresent()) {
 			this.errorLabel.setVisible(false);
+			this.engine.getItems().setAll(EngineType.values());
+			this.engine.setValue(EngineType.CELL_ACTORS);
 			this.slider.setValue(DEFAULT_REFRESH_RATE);
 			this.sliderValue.setText("" + (int) DEFAULT_REFRESH_RATE);
 			this.setActionListeners();
@@ -52,6 +66,7 @@ public class MenuPanel extends VBox {
 	public void init() {
 		this.miniMap.setWidth(this.miniMapContainer.getWidth());
 		this.miniMap.setHeight(this.miniMapContainer.getHeight());	
+		this.cellMapViewer.setMiniMap(this.miniMap);
 	}
 	
 	/**
@@ -82,40 +97,27 @@ public class MenuPanel extends VBox {
 	}
 	
 	/**
-	 * Set the limits of the minimap, when the map dimension is known
-	 * @param x
-	 * 		X limit of the minimap (width)
-	 * @param y
-	 * 		Y limit of the minimap (height)
+	 * Set the size of the grid shown by the minimap, when the map dimension is known
+	 * @param width
+	 * 		Number of columns of the map
+	 * @param height
+	 * 		Number of rows of the map
 	 */
-	public void setMiniMapLimits(final int x, final int y) {
-		this.miniMap.setLimits(x, y);
+	public void setMiniMapGrid(final int width, final int height) {
+		this.miniMap.setGridSize(width, height);
 	}
 	
 	/**
-	 * Updates the minimap, changing the preview position
-	 * @param xPos
-	 * 		X position of the preview
-	 * @param yPos
-	 * 		Y position of the preview
+	 * Updates the minimap and the preview values, when the visible area of the map changes
+	 * @param viewport
+	 * 		Visible area of the map
 	 */
-	public void updateMiniMap(final int xPos, final int yPos) {
-		this.miniMap.drawCurrentPosition(xPos, yPos);
+	public void updateViewport(final Viewport viewport) {
+		this.miniMap.drawViewport(viewport);
 		Platform.runLater(() -> {
-			this.currentPosition.setText(xPos + ", " + yPos);
-		});	
-	}
-	
-	/**
-	 * Updates the viewable cells values, when they're known
-	 * @param drawableXCells
-	 * 		Cells drawable in width on the cell map viewer
-	 * @param drawableYCells
-	 * 		Cells drawable in height on the cell map viewer
-	 */
-	public void updatePreviewValues(final int drawableXCells, final int drawableYCells) {
-		Platform.runLater(() ->{
-			this.viewableCells.setText("W: " + drawableXCells + ", H: " + drawableYCells);
+			this.currentPosition.setText((int) Math.max(0, viewport.getOriginX()) + ", " + (int) Math.max(0, viewport.getOriginY())
+					+ " (" + Math.round(viewport.getScale() * 100) + "%)");
+			this.viewableCells.setText("W: " + (int) viewport.getVisibleWidth() + ", H: " + (int) viewport.getVisibleHeight());
 		});
 	}
 	
@@ -162,12 +164,57 @@ public class MenuPanel extends VBox {
 				this.reset.setDisable(true);
 				this.start.setDisable(false);
 				this.stop.setDisable(true);
+				this.rewind.setDisable(true);
+				this.stepBack.setDisable(true);
+				this.replay.setDisable(true);
+				this.load.setDisable(false);
+				this.save.setDisable(true);
 				
 				this.mapWidth.setDisable(false);
 				this.mapHeight.setDisable(false);
+				this.engine.setDisable(false);
 			});
 		});
 		
+		this.load.setOnMouseClicked(e -> {
+			final FileChooser fileChooser = new FileChooser();
+			fileChooser.setTitle("Load pattern");
+			fileChooser.getExtensionFilters().addAll(
+					new FileChooser.ExtensionFilter("Patterns", "*.rle", "*.lif", "*.life", "*" + Checkpoint.EXTENSION),
+					new FileChooser.ExtensionFilter("All files", "*.*"));
+			final File file = fileChooser.showOpenDialog(this.getScene().getWindow());
+			if (file != null) {
+				this.loadPattern(file.toPath());
+			}
+		});
+		
+		this.save.setOnMouseClicked(e -> {
+			final FileChooser fileChooser = new FileChooser();
+			fileChooser.setTitle("Save checkpoint");
+			fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Checkpoints", "*" + Checkpoint.EXTENSION));
+			final File file = fileChooser.showSaveDialog(this.getScene().getWindow());
+			if (file != null) {
+				final String fileName = file.getName().endsWith(Checkpoint.EXTENSION) ? file.getPath() : file.getPath() + Checkpoint.EXTENSION;
+				this.gridActor.tell(new GridActor.SaveCheckpointMsg(new File(fileName).toPath()), ActorRef.noSender());
+			}
+		});
+		
+		this.rewind.setOnMouseClicked(e -> {
+			this.viewActor.tell(new ViewActor.RewindHistoryMsg(), ActorRef.noSender());
+		});
+		
+		this.stepBack.setOnMouseClicked(e -> {
+			this.viewActor.tell(new ViewActor.StepBackHistoryMsg(), ActorRef.noSender());
+		});
+		
+		this.replay.setOnMouseClicked(e -> {
+			this.viewActor.tell(new ViewActor.ReplayHistoryMsg(), ActorRef.noSender());
+		});
+		
+		this.miniMap.setOnMouseClicked(e -> {
+			this.cellMapViewer.centerOn(this.miniMap.toCellX(e.getX()), this.miniMap.toCellY(e.getY()));
+		});
+		
 		this.slider.setOnMouseReleased(e -> {
 			this.viewActor.tell(new ViewActor.ChangeRefreshRateMsg((long)this.slider.getValue()), ActorRef.noSender());
 		});
@@ -181,6 +228,10 @@ public class MenuPanel extends VBox {
 		this.elapsedTime.textProperty().bind(ViewDataManager.getInstance().getElapsedTime().asString("%d ms"));
 		this.aliveCells.textProperty().bind(ViewDataManager.getInstance().getAliveCells().asString());
 		this.avgElapsedTime.textProperty().bind(ViewDataManager.getInstance().getAvgElapsedTime().asString("%d ms"));
+		this.bufferedGenerations.textProperty().bind(ViewDataManager.getInstance().getBufferedGenerations().asString());
+		this.droppedGenerations.textProperty().bind(ViewDataManager.getInstance().getDroppedGenerations().asString());
+		this.framesPerSecond.textProperty().bind(ViewDataManager.getInstance().getFramesPerSecond().asString());
+		this.skippedFrames.textProperty().bind(ViewDataManager.getInstance().getSkippedFrames().asString());
 		
 		this.slider.valueProperty().addListener(listener -> {	
 			final int subdivision = (int) (this.slider.getValue() / 100);
@@ -197,28 +248,77 @@ public class MenuPanel extends VBox {
 		
 		//If it's valid and present
 		if (dimension.isPresent()) {
-			//Set the map dimensions
-			this.cellMapViewer.setDimension(dimension.get());
-			
-			//Sending message, you can start now!
-			gridActor.tell(new GridActor.InitGridMsg(dimension.get().width, dimension.get().height, viewActor), ActorRef.noSender());
-			viewActor.tell(new ViewActor.StartVisualizationMsg(), ActorRef.noSender());
-			gridActor.tell(new GridActor.StartGameMsg(), ActorRef.noSender());
-			this.isStarted = true;
-			
-			//Getting started
-			Platform.runLater(() -> {
-				this.start.setDisable(true);
-				this.stop.setDisable(false);
-				this.reset.setDisable(true);
-				
-				this.mapWidth.setDisable(true);
-				this.mapHeight.setDisable(true);
-			});
-
+			this.startGame(dimension.get(), null);
 		}
 	}
 	
+	/**
+	 * Read a pattern file in background and start with it, using the desired dimension if present
+	 * @param file
+	 * 		The pattern file
+	 */
+	private void loadPattern(final Path file) {
+		final Optional<Dimension> dimension = this.getMapDimension();
+		this.errorLabel.setVisible(false);
+		this.load.setDisable(true);
+		this.start.setDisable(true);
+		
+		//Big patterns take a while to parse, so neither the UI nor the grid actor must wait for them
+		new Thread(() -> {
+			try {
+				final BitGrid pattern = PatternReader.read(file, dimension.map(d -> d.width).orElse(0),
+						dimension.map(d -> d.height).orElse(0));
+				Platform.runLater(() -> {
+					this.mapWidth.setText("" + pattern.getWidth());
+					this.mapHeight.setText("" + pattern.getHeight());
+					this.startGame(new Dimension(pattern.getWidth(), pattern.getHeight()), pattern);
+				});
+			} catch (final IOException | IllegalArgumentException e) {
+				MessageUtils.showExcpetion(ExceptionType.IO_EXCEPTION, "The pattern could not be loaded", e);
+				Platform.runLater(() -> {
+					this.load.setDisable(false);
+					this.start.setDisable(false);
+				});
+			}
+		}, "pattern-loader").start();
+	}
+	
+	/**
+	 * Initialize the grid and start the game
+	 * @param dimension
+	 * 		The map dimension
+	 * @param pattern
+	 * 		The first generation, or null for a random one
+	 */
+	private void startGame(final Dimension dimension, final BitGrid pattern) {
+		//Set the map dimensions
+		this.cellMapViewer.setDimension(dimension);
+		
+		//Sending message, you can start now!
+		gridActor.tell(pattern != null
+				? new GridActor.InitGridMsg(pattern, this.engine.getValue(), viewActor)
+				: new GridActor.InitGridMsg(dimension.width, dimension.height, this.engine.getValue(), viewActor), ActorRef.noSender());
+		viewActor.tell(new ViewActor.StartVisualizationMsg(), ActorRef.noSender());
+		gridActor.tell(new GridActor.StartGameMsg(), ActorRef.noSender());
+		this.isStarted = true;
+		
+		//Getting started
+		Platform.runLater(() -> {
+			this.start.setDisable(true);
+			this.stop.setDisable(false);
+			this.reset.setDisable(true);
+			this.rewind.setDisable(false);
+			this.stepBack.setDisable(false);
+			this.replay.setDisable(false);
+			this.load.setDisable(true);
+			this.save.setDisable(false);
+			
+			this.mapWidth.setDisable(true);
+			this.mapHeight.setDisable(true);
+			this.engine.setDisable(true);
+		});
+	}
+	
 	/**
 	 * Read from the menu the desired width and height of the map
 	 * @return
@@ -3,56 +3,125 @@ package pcd.ass03.gameoflife.view;
 import javafx.application.Platform;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 
 public class MiniMap extends Canvas {
 
-	private static final Color BACKGROUND_COLOR = new Color(0.23, 0.23, 0.23, 1);
-	private int cellSizeX, cellSizeY;
-	
-	
+	private static final Color VIEWPORT_COLOR = Color.ORANGE;
+	private static final double VIEWPORT_LINE_WIDTH = 2;
+
+	private int gridWidth, gridHeight;
+	private WritableImage heatmap;
+	private Viewport viewport;
+
+
 	public MiniMap() { }
-	
-	
+
+
 	/**
-	 * Set the limits of the small map preview
-	 * @param x
-	 * 		max x reachable (in width)
-	 * @param y
-	 * 		max y reachable (in height)
+	 * Set the size of the grid shown by the small map preview
+	 * @param width
+	 * 		Number of columns of the grid
+	 * @param height
+	 * 		Number of rows of the grid
+	 */
+	public void setGridSize(final int width, final int height) {
+		Platform.runLater(() -> {
+			this.gridWidth = width;
+			this.gridHeight = height;
+			this.redraw();
+		});
+	}
+
+	/**
+	 * Draw the population heatmap of the grid
+	 * @param pixels
+	 * 		Pixels of the heatmap, in ARGB format, which are not modified anymore by the caller
+	 * @param width
+	 * 		Width of the heatmap
+	 * @param height
+	 * 		Height of the heatmap
+	 */
+	public void drawHeatmap(final int[] pixels, final int width, final int height) {
+		Platform.runLater(() -> {
+			if (this.heatmap == null || (int) this.heatmap.getWidth() != width || (int) this.heatmap.getHeight() != height) {
+				this.heatmap = new WritableImage(width, height);
+			}
+			this.heatmap.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+			this.redraw();
+		});
+	}
+
+	/**
+	 * Draw a rectangle corresponding to the area shown by the cell map
+	 * @param viewport
+	 * 		Area shown by the cell map
 	 */
-	public void setLimits(final int x, final int y) {
-		this.cellSizeX = (int) (this.getWidth() / (x+1));
-		this.cellSizeY = (int) (this.getHeight() / (y+1));
-		drawCurrentPosition(0, 0);
+	public void drawViewport(final Viewport viewport) {
+		Platform.runLater(() -> {
+			this.viewport = viewport;
+			this.redraw();
+		});
 	}
 
 	/**
-	 * Draw a rectangle corresponding at current position on the map
 	 * @param x
-	 * 		x coordinate of the rectangle
+	 * 		x coordinate of a point of the small map preview
+	 * @return the x coordinate of the cell at the point
+	 */
+	public double toCellX(final double x) {
+		return x / this.getScale();
+	}
+
+	/**
 	 * @param y
-	 * 		y coordinate of the rectangle
+	 * 		y coordinate of a point of the small map preview
+	 * @return the y coordinate of the cell at the point
 	 */
-	public void drawCurrentPosition(final int x, final int y) {	
-		final GraphicsContext gc = getGraphicsContext2D();
-		gc.setFill(Color.ORANGE);
-		
-		Platform.runLater(() -> {	
-			gc.clearRect(0, 0, getWidth(), getHeight());				
-			gc.fillRect((x * cellSizeX), (y * cellSizeY), cellSizeX , cellSizeY);
-		});	
-	}
-	
+	public double toCellY(final double y) {
+		return y / this.getScale();
+	}
+
 	/**
 	 * Clear the small map preview
 	 */
 	public void reset() {
-		final GraphicsContext gc = getGraphicsContext2D();
-		gc.setFill(BACKGROUND_COLOR);
-		
 		Platform.runLater(() -> {
-			gc.clearRect(0, 0, getWidth(), getHeight());
+			this.gridWidth = 0;
+			this.gridHeight = 0;
+			this.heatmap = null;
+			this.viewport = null;
+			this.redraw();
 		});
 	}
+
+	/*
+	 * Pixels for each cell, the same used to draw the heatmap.
+	 */
+	private double getScale() {
+		return Math.min(this.getWidth() / this.gridWidth, this.getHeight() / this.gridHeight);
+	}
+
+	/*
+	 * Draw the heatmap and the viewport rectangle over it.
+	 */
+	private void redraw() {
+		final GraphicsContext gc = getGraphicsContext2D();
+		gc.clearRect(0, 0, getWidth(), getHeight());
+		if (this.heatmap != null) {
+			gc.drawImage(this.heatmap, 0, 0);
+		}
+		if (this.viewport != null && this.gridWidth > 0 && this.gridHeight > 0) {
+			final double scale = this.getScale();
+			final double x = Math.max(0, this.viewport.getOriginX());
+			final double y = Math.max(0, this.viewport.getOriginY());
+			final double width = Math.min(this.gridWidth, this.viewport.getOriginX() + this.viewport.getVisibleWidth()) - x;
+			final double height = Math.min(this.gridHeight, this.viewport.getOriginY() + this.viewport.getVisibleHeight()) - y;
+			gc.setStroke(VIEWPORT_COLOR);
+			gc.setLineWidth(VIEWPORT_LINE_WIDTH);
+			gc.strokeRect(x * scale, y * scale, Math.max(1, width * scale), Math.max(1, height * scale));
+		}
+	}
 }
@@ -1,9 +1,11 @@
 package pcd.ass03.gameoflife.view;
 
-import java.awt.Point;
-import java.util.Map;
+import java.awt.Rectangle;
 
 import akka.actor.ActorRef;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.DensitySummary;
+import pcd.ass03.gameoflife.model.GridRegion;
 
 public interface View {
 	void show();
@@ -12,6 +14,9 @@ public interface View {
 	void setGridActor(ActorRef gridActor);
 	void setViewActor(ActorRef  viewActor);
 	
-	void drawCells(Map<Point, Boolean> cells);
+	void drawCells(BitGrid cells);
+	void updateCells(int[] changedCells);
+	void drawRegion(GridRegion region, Rectangle unchangedArea);
+	void drawSummary(DensitySummary summary);
 	void reset();
 }
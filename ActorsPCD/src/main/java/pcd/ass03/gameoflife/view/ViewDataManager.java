@@ -1,22 +1,57 @@
 package pcd.ass03.gameoflife.view;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleLongProperty;
 
+/**
+ * This class keeps the values shown by the view. The actors publish a whole {@link FrameState} at once,
+ * which is applied to the properties by an {@link AnimationTimer} at the next JavaFX pulse:
+ * if more states are published between two pulses only the last one is shown and the others are counted as skipped.
+ *
+ */
 public class ViewDataManager {
 	
+	private static final long FPS_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
+	
 	private static volatile ViewDataManager singleton;
 	
+	private final AtomicReference<FrameState> pendingFrame = new AtomicReference<>();
+	private final AtomicLong nSkippedFrames = new AtomicLong();
+	private final AnimationTimer frameTimer;
+	private long nShownFrames;
+	private long fpsPeriodStart;
+	
 	private final SimpleLongProperty generation = new SimpleLongProperty();
 	private final SimpleLongProperty aliveCells = new SimpleLongProperty();
 	private final SimpleLongProperty elapsedTime = new SimpleLongProperty();
 	private final SimpleLongProperty avgElapsedTime = new SimpleLongProperty();
+	private final SimpleLongProperty bufferedGenerations = new SimpleLongProperty();
+	private final SimpleLongProperty droppedGenerations = new SimpleLongProperty();
+	private final SimpleLongProperty framesPerSecond = new SimpleLongProperty();
+	private final SimpleLongProperty skippedFrames = new SimpleLongProperty();
 	
 	private ViewDataManager() {
 		this.generation.set(0);
 		this.aliveCells.set(0);
 		this.elapsedTime.set(0);
 		this.avgElapsedTime.set(0);
+		this.bufferedGenerations.set(0);
+		this.droppedGenerations.set(0);
+		this.framesPerSecond.set(0);
+		this.skippedFrames.set(0);
+		
+		this.frameTimer = new AnimationTimer() {
+			@Override
+			public void handle(final long now) {
+				showPendingFrame(now);
+			}
+		};
+		Platform.runLater(this.frameTimer::start);
 	}
 	
 	/**
@@ -74,46 +109,74 @@ public class ViewDataManager {
 	}
 
 	/**
-	 * Set the current generation number
-	 * @param generation
-	 * 		generation number to set
+	 * Get the property of generations waiting to be shown, ready to bind
+	 * @return
+	 * 		Property representing the generations waiting to be shown
 	 */
-	public void setGeneration(final long generation) {
-		Platform.runLater(() -> {
-			this.generation.set(generation);
-		});
+	public SimpleLongProperty getBufferedGenerations() {
+		return bufferedGenerations;
 	}
-	
+
 	/**
-	 * Set the number of alive cells
-	 * @param aliveCells
-	 * 		number of alive cells to set
+	 * Get the property of generations dropped without being shown, ready to bind
+	 * @return
+	 * 		Property representing the generations dropped without being shown
 	 */
-	public void setAliveCells(final long aliveCells) {
-		Platform.runLater(() -> {
-			this.aliveCells.set(aliveCells);
-		});
+	public SimpleLongProperty getDroppedGenerations() {
+		return droppedGenerations;
 	}
-	
+
 	/**
-	 * Set the elapsed time
-	 * @param elapsedTime
-	 * 		elapsed time to set
+	 * Get the property of frames shown in the last second, ready to bind
+	 * @return
+	 * 		Property representing the frames shown in the last second
 	 */
-	public void setElapsedTime(final long elapsedTime) {
-		Platform.runLater(() -> {
-			this.elapsedTime.set(elapsedTime);
-		});
+	public SimpleLongProperty getFramesPerSecond() {
+		return framesPerSecond;
 	}
-	
+
 	/**
-	 * Set the average elapsed time
-	 * @param avgElapsedTime
-	 * 		average elapsed time to set
+	 * Get the property of frames replaced by newer ones before being shown, ready to bind
+	 * @return
+	 * 		Property representing the frames replaced by newer ones before being shown
 	 */
-	public void setAvgElapsedTime(final long avgElapsedTime) {
-		Platform.runLater(() -> {
-			this.avgElapsedTime.set(avgElapsedTime);
-		});
+	public SimpleLongProperty getSkippedFrames() {
+		return skippedFrames;
+	}
+
+	/**
+	 * Publish the values to show at the next pulse, from any thread
+	 * @param frame
+	 * 		values to show
+	 */
+	public void publish(final FrameState frame) {
+		if (this.pendingFrame.getAndSet(frame) != null) {
+			this.nSkippedFrames.incrementAndGet();
+		}
+	}
+	
+	/*
+	 * Apply the last published frame to the properties, once for each pulse, and measure the frame rate.
+	 */
+	private void showPendingFrame(final long now) {
+		final FrameState frame = this.pendingFrame.getAndSet(null);
+		if (frame != null) {
+			this.generation.set(frame.getGeneration());
+			this.aliveCells.set(frame.getAliveCells());
+			this.elapsedTime.set(frame.getElapsedTime());
+			this.avgElapsedTime.set(frame.getAvgElapsedTime());
+			this.bufferedGenerations.set(frame.getBufferedGenerations());
+			this.droppedGenerations.set(frame.getDroppedGenerations());
+			this.nShownFrames++;
+		}
+		
+		if (this.fpsPeriodStart == 0) {
+			this.fpsPeriodStart = now;
+		} else if (now - this.fpsPeriodStart >= FPS_PERIOD_NANOS) {
+			this.framesPerSecond.set(this.nShownFrames * FPS_PERIOD_NANOS / (now - this.fpsPeriodStart));
+			this.skippedFrames.set(this.nSkippedFrames.get());
+			this.nShownFrames = 0;
+			this.fpsPeriodStart = now;
+		}
 	}
 }
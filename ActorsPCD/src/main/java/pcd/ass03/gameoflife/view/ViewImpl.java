@@ -2,8 +2,7 @@ package pcd.ass03.gameoflife.view;
 
 import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
-import java.awt.Point;
-import java.util.Map;
+import java.awt.Rectangle;
 import java.util.Optional;
 
 import akka.actor.ActorRef;
@@ -13,6 +12,9 @@ import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.DensitySummary;
+import pcd.ass03.gameoflife.model.GridRegion;
 
 
 public class ViewImpl extends BorderPane implements View {
@@ -66,6 +68,7 @@ public class ViewImpl extends BorderPane implements View {
 	public void setGridActor(final ActorRef gridActor) {
 		this.gridActor = gridActor;
 		this.menuPanel.setGridActorRef(this.gridActor);
+		this.cellMapViewer.setGridActorRef(this.gridActor);
 	}
 
 	@Override
@@ -75,10 +78,25 @@ public class ViewImpl extends BorderPane implements View {
 	}
 
 	@Override
-	public void drawCells(final Map<Point, Boolean> cells) {
+	public void drawCells(final BitGrid cells) {
 		this.cellMapViewer.drawCells(cells);
 	}
 
+	@Override
+	public void updateCells(final int[] changedCells) {
+		this.cellMapViewer.updateCells(changedCells);
+	}
+
+	@Override
+	public void drawRegion(final GridRegion region, final Rectangle unchangedArea) {
+		this.cellMapViewer.drawRegion(region, unchangedArea);
+	}
+
+	@Override
+	public void drawSummary(final DensitySummary summary) {
+		this.cellMapViewer.drawSummary(summary);
+	}
+
 	@Override
 	public void reset() {
 		this.cellMapViewer.reset();
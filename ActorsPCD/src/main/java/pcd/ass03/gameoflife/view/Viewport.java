@@ -0,0 +1,150 @@
+package pcd.ass03.gameoflife.view;
+
+/**
+ * This class represents the area of the grid shown by the cell map: the cell at the top left corner,
+ * which can have fractional coordinates, the scale (pixels for each cell, less than 1 when zoomed out)
+ * and the size of the canvas.
+ * It is immutable, so it can be handed over to the render thread as it is.
+ *
+ */
+public final class Viewport {
+
+	private final double originX, originY;
+	private final double scale;
+	private final int width, height;
+
+	/**
+	 * @param originX
+	 * 		x coordinate of the cell at the top left corner
+	 * @param originY
+	 * 		y coordinate of the cell at the top left corner
+	 * @param scale
+	 * 		Pixels for each cell
+	 * @param width
+	 * 		Width of the canvas, in pixels
+	 * @param height
+	 * 		Height of the canvas, in pixels
+	 */
+	public Viewport(final double originX, final double originY, final double scale, final int width, final int height) {
+		this.originX = originX;
+		this.originY = originY;
+		this.scale = scale;
+		this.width = width;
+		this.height = height;
+	}
+
+	public double getOriginX() {
+		return this.originX;
+	}
+
+	public double getOriginY() {
+		return this.originY;
+	}
+
+	public double getScale() {
+		return this.scale;
+	}
+
+	public int getWidth() {
+		return this.width;
+	}
+
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * @return the number of visible columns, including the partially visible ones
+	 */
+	public double getVisibleWidth() {
+		return this.width / this.scale;
+	}
+
+	/**
+	 * @return the number of visible rows, including the partially visible ones
+	 */
+	public double getVisibleHeight() {
+		return this.height / this.scale;
+	}
+
+	/**
+	 * @param x
+	 * 		x coordinate of a pixel of the canvas
+	 * @return the x coordinate of the cell drawn in the pixel
+	 */
+	public double toCellX(final double x) {
+		return this.originX + x / this.scale;
+	}
+
+	/**
+	 * @param y
+	 * 		y coordinate of a pixel of the canvas
+	 * @return the y coordinate of the cell drawn in the pixel
+	 */
+	public double toCellY(final double y) {
+		return this.originY + y / this.scale;
+	}
+
+	/**
+	 * Move the viewport to a new position
+	 * @param originX
+	 * 		x coordinate of the new cell at the top left corner
+	 * @param originY
+	 * 		y coordinate of the new cell at the top left corner
+	 * @return the moved viewport
+	 */
+	public Viewport moveTo(final double originX, final double originY) {
+		return new Viewport(originX, originY, this.scale, this.width, this.height);
+	}
+
+	/**
+	 * Move the viewport by some pixels, as when the map is dragged
+	 * @param dx
+	 * 		Pixels to move the map to the right
+	 * @param dy
+	 * 		Pixels to move the map down
+	 * @return the moved viewport
+	 */
+	public Viewport pan(final double dx, final double dy) {
+		return this.moveTo(this.originX - dx / this.scale, this.originY - dy / this.scale);
+	}
+
+	/**
+	 * Change the scale keeping still the cell under a pixel
+	 * @param factor
+	 * 		Factor to multiply the scale by
+	 * @param pivotX
+	 * 		x coordinate of the pixel
+	 * @param pivotY
+	 * 		y coordinate of the pixel
+	 * @param minScale
+	 * 		Minimum scale allowed
+	 * @param maxScale
+	 * 		Maximum scale allowed
+	 * @return the zoomed viewport
+	 */
+	public Viewport zoom(final double factor, final double pivotX, final double pivotY, final double minScale, final double maxScale) {
+		final double scale = Math.max(minScale, Math.min(maxScale, this.scale * factor));
+		return new Viewport(this.toCellX(pivotX) - pivotX / scale, this.toCellY(pivotY) - pivotY / scale, scale, this.width, this.height);
+	}
+
+	/**
+	 * Keep the viewport inside a grid, or center the grid if it is smaller than the viewport
+	 * @param gridWidth
+	 * 		Number of columns of the grid
+	 * @param gridHeight
+	 * 		Number of rows of the grid
+	 * @return the viewport inside the grid
+	 */
+	public Viewport clamp(final int gridWidth, final int gridHeight) {
+		return this.moveTo(clamp(this.originX, this.getVisibleWidth(), gridWidth), clamp(this.originY, this.getVisibleHeight(), gridHeight));
+	}
+
+	/*
+	 * Clamp a coordinate of the origin along an axis.
+	 */
+	private static double clamp(final double origin, final double visible, final int size) {
+		return visible >= size ? (size - visible) / 2 : Math.max(0, Math.min(size - visible, origin));
+	}
+
+}
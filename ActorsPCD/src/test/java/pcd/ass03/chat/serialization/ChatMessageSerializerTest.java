@@ -0,0 +1,210 @@
+package pcd.ass03.chat.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import pcd.ass03.chat.messages.ClientMsg;
+import pcd.ass03.chat.messages.SequenceNumberClientMsg;
+import pcd.ass03.chat.messages.TimestampClientMsg;
+import pcd.ass03.chat.messages.client.BroadcastSendingRequestMsg;
+import pcd.ass03.chat.messages.client.ChatMsg;
+import pcd.ass03.chat.messages.client.ExistingClientStateMsg;
+import pcd.ass03.chat.messages.client.GotMutualExclusionAckMsg;
+import pcd.ass03.chat.messages.client.GotMutualExclusionMsg;
+import pcd.ass03.chat.messages.client.LoggedInClientsMsg;
+import pcd.ass03.chat.messages.client.LoggedOutClientMsg;
+import pcd.ass03.chat.messages.client.LostMutualExclusionAfterLogoutMsg;
+import pcd.ass03.chat.messages.client.LostMutualExclusionMsg;
+import pcd.ass03.chat.messages.client.MutualExclusionConsentMsg;
+import pcd.ass03.chat.messages.client.MutualExclusionRequestMsg;
+import pcd.ass03.chat.messages.client.NewLoggedInClientMsg;
+import pcd.ass03.chat.messages.register.ClientLoginMsg;
+import pcd.ass03.chat.messages.register.ClientLogoutMsg;
+import pcd.ass03.chat.messages.register.LoggedOutWithMutualExclusionMsg;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Round-trip tests of {@link ChatMessageSerializer} through the serialization of an actor system
+ * with the settings of a chat client, so each message also checks its binding in client.conf
+ * (the system is local, the paths of the references are resolved in the same way).
+ *
+ */
+public class ChatMessageSerializerTest {
+
+	private static final String CLIENT_CONFIG = "src/main/java/pcd/ass03/chat/client.conf";
+
+	private static ActorSystem system;
+	private static Serialization serialization;
+	private static ActorRef alice;
+	private static ActorRef bob;
+
+	/**
+	 * Actor whose reference is written in the messages.
+	 */
+	public static final class ClientActor extends AbstractActor {
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder().build();
+		}
+	}
+
+	@BeforeClass
+	public static void startSystem() {
+		final Config config = ConfigFactory.parseString("akka.actor.provider = local")
+				.withFallback(ConfigFactory.parseFile(new File(CLIENT_CONFIG)))
+				.withFallback(ConfigFactory.load());
+		system = ActorSystem.create("ChatSerializerTest", config);
+		serialization = (Serialization) SerializationExtension.apply(system);
+		alice = system.actorOf(Props.create(ClientActor.class), "alice");
+		bob = system.actorOf(Props.create(ClientActor.class), "bob");
+	}
+
+	@AfterClass
+	public static void stopSystem() throws Exception {
+		Await.result(system.terminate(), Duration.create(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void everyBoundMessageRoundTrips() {
+		final Map<ActorRef, String> clients = new HashMap<>();
+		clients.put(alice, "alice");
+		clients.put(bob, "bòb");
+		final ClientMsg clientMsg = new ClientMsg(alice, -3, new ChatMsg("hello, 世界"));
+		final List<Object> messages = Arrays.asList(
+				clientMsg,
+				new TimestampClientMsg(clientMsg, 42),
+				new SequenceNumberClientMsg(new ClientMsg(bob, Integer.MAX_VALUE, new GotMutualExclusionMsg(bob)),
+						Integer.MIN_VALUE),
+				new BroadcastSendingRequestMsg(new LostMutualExclusionAfterLogoutMsg("alice")),
+				new ChatMsg(""),
+				new ExistingClientStateMsg(bob, true),
+				new GotMutualExclusionAckMsg(),
+				new GotMutualExclusionMsg(alice),
+				new LoggedInClientsMsg(clients),
+				new LoggedOutClientMsg(bob),
+				new LostMutualExclusionAfterLogoutMsg("bob"),
+				new LostMutualExclusionMsg(),
+				new MutualExclusionConsentMsg(),
+				new MutualExclusionRequestMsg(alice, 1000000),
+				new NewLoggedInClientMsg(bob, "bob"),
+				new ClientLoginMsg(alice, "alice"),
+				new ClientLogoutMsg(alice),
+				new LoggedOutWithMutualExclusionMsg("alice"));
+
+		final Set<Class<?>> types = new HashSet<>();
+		for (final Object message : messages) {
+			assertRoundTrip(message);
+			types.add(message.getClass());
+		}
+		assertEquals(18, types.size());
+		assertEquals(types.size(), getBoundTypes().size());
+		for (final String boundType : getBoundTypes()) {
+			assertTrue(boundType, types.stream().anyMatch(type -> type.getName().equals(boundType)));
+		}
+	}
+
+	@Test
+	public void nullStringsAndReferencesRoundTrip() {
+		final Map<ActorRef, String> clients = new HashMap<>();
+		clients.put(alice, null);
+		for (final Object message : Arrays.asList(
+				new ChatMsg(null),
+				new ClientMsg(null, 1, new ChatMsg(null)),
+				new LoggedInClientsMsg(clients),
+				new LostMutualExclusionAfterLogoutMsg(null),
+				new NewLoggedInClientMsg(null, null),
+				new ClientLoginMsg(alice, null),
+				new LoggedOutWithMutualExclusionMsg(null))) {
+			assertRoundTrip(message);
+		}
+	}
+
+	@Test
+	public void emptyLoginListRoundTrips() {
+		assertRoundTrip(new LoggedInClientsMsg(Collections.emptyMap()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownTypeIsRejected() {
+		serializer().fromBinary(new byte[] { 99 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void truncatedMessageIsRejected() {
+		final byte[] bytes = serializer().toBinary(new ClientLoginMsg(alice, "alice"));
+		serializer().fromBinary(Arrays.copyOf(bytes, bytes.length - 1));
+	}
+
+	private static Serializer serializer() {
+		final Serializer serializer = serialization.findSerializerFor(new ChatMsg(""));
+		assertSame(ChatMessageSerializer.class, serializer.getClass());
+		return serializer;
+	}
+
+	private static void assertRoundTrip(final Object message) {
+		final Serializer serializer = serialization.findSerializerFor(message);
+		assertSame(message.getClass().getName(), ChatMessageSerializer.class, serializer.getClass());
+		final byte[] bytes = serialization.serialize(message).get();
+		assertSameFields(message, serialization.deserialize(bytes, message.getClass()).get());
+	}
+
+	/*
+	 * Compares the fields of two messages, and of the messages inside them.
+	 */
+	private static void assertSameFields(final Object expected, final Object actual) {
+		if (expected == null || !expected.getClass().getName().startsWith("pcd.ass03.chat.messages.")) {
+			assertEquals(expected, actual);
+			return;
+		}
+		assertSame(expected.getClass(), actual.getClass());
+		for (final Field field : expected.getClass().getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				field.setAccessible(true);
+				try {
+					assertSameFields(field.get(expected), field.get(actual));
+				} catch (final IllegalAccessException e) {
+					throw new AssertionError(e);
+				}
+			}
+		}
+	}
+
+	private static Set<String> getBoundTypes() {
+		final Set<String> boundTypes = new HashSet<>();
+		system.settings().config().getConfig("akka.actor.serialization-bindings").entrySet().forEach(entry -> {
+			if ("chat".equals(entry.getValue().unwrapped())) {
+				boundTypes.add(entry.getKey().replace("\"", ""));
+			}
+		});
+		return boundTypes;
+	}
+
+}
@@ -0,0 +1,163 @@
+package pcd.ass03.gameoflife.actors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigFactory;
+
+import pcd.ass03.gameoflife.actors.GenerationBuffer.Policy;
+import pcd.ass03.gameoflife.actors.ViewActor.GenerationResultsMsg;
+import pcd.ass03.gameoflife.actors.ViewActor.RegionFillMsg;
+import pcd.ass03.gameoflife.model.BitGrid;
+import pcd.ass03.gameoflife.model.GridRegion;
+
+/**
+ * Tests of {@link GenerationBuffer}: for each policy, the results merged when the buffer is full
+ * must describe the same generation as the results applied one after the other.
+ *
+ */
+public class GenerationBufferTest {
+
+	@Test
+	public void latestKeepsOnlyTheMergedLastGeneration() {
+		final GenerationBuffer buffer = new GenerationBuffer(Policy.LATEST, 32);
+		buffer.add(delta(1, 3, 8));
+		buffer.add(delta(2, 4));
+		buffer.add(delta(3, 0, 8));
+
+		assertEquals(1, buffer.size());
+		assertEquals(2, buffer.getDroppedGenerations());
+		final GenerationResultsMsg results = buffer.poll();
+		assertEquals(3, results.getGenerationNumber());
+		assertFalse(results.isKeyframe());
+		assertArrayEquals(new int[] { 0, 3, 4 }, results.getChangedCells());
+		assertNull(buffer.poll());
+	}
+
+	@Test
+	public void dropOldestMergesTheOldestOnOverflow() {
+		final GenerationBuffer buffer = new GenerationBuffer(Policy.DROP_OLDEST, 2);
+		buffer.add(delta(1, 1));
+		buffer.add(delta(2, 2));
+		assertEquals(0, buffer.getDroppedGenerations());
+		buffer.add(delta(3, 3));
+		buffer.add(delta(4, 4));
+
+		assertEquals(2, buffer.size());
+		assertEquals(2, buffer.getDroppedGenerations());
+		final GenerationResultsMsg merged = buffer.poll();
+		assertEquals(3, merged.getGenerationNumber());
+		assertArrayEquals(new int[] { 1, 2, 3 }, merged.getChangedCells());
+		final GenerationResultsMsg last = buffer.poll();
+		assertEquals(4, last.getGenerationNumber());
+		assertArrayEquals(new int[] { 4 }, last.getChangedCells());
+
+		buffer.clear();
+		assertEquals(0, buffer.size());
+		assertEquals(0, buffer.getDroppedGenerations());
+	}
+
+	@Test
+	public void creditKeepsEveryGenerationWithinTheCapacity() {
+		final GenerationBuffer buffer = new GenerationBuffer(
+				GenerationBuffer.getPolicy(ConfigFactory.parseString("gameoflife.view-buffer.policy = CREDIT")), 3);
+		assertEquals(Policy.CREDIT, buffer.getPolicy());
+		for (int generation = 1; generation <= 3; generation++) {
+			buffer.add(delta(generation, generation));
+		}
+		assertEquals(3, buffer.size());
+		assertEquals(0, buffer.getDroppedGenerations());
+		for (int generation = 1; generation <= 3; generation++) {
+			assertEquals(generation, buffer.poll().getGenerationNumber());
+		}
+
+		// The grid should not exceed its credits, but if it does no change is lost
+		for (int generation = 4; generation <= 7; generation++) {
+			buffer.add(delta(generation, generation));
+		}
+		assertEquals(3, buffer.size());
+		assertEquals(1, buffer.getDroppedGenerations());
+		assertArrayEquals(new int[] { 4, 5 }, buffer.poll().getChangedCells());
+	}
+
+	@Test
+	public void deltaMergedOntoARegionKeyframe() {
+		// A 3x2 region at (2, 1) of a 6x4 grid, with its top left cell alive
+		final BitGrid cells = new BitGrid(3, 2);
+		cells.set(0, 0, true);
+		final GridRegion region = new GridRegion(cells, 2, 1, 6, 4);
+		final GenerationBuffer buffer = new GenerationBuffer(Policy.DROP_OLDEST, 1);
+		buffer.add(new GenerationResultsMsg(5, region, 0, 0, 1, 0));
+		// Kills the cell (2, 1) and gives birth to (4, 2), as indices of the whole grid
+		buffer.add(delta(6, 1 * 6 + 2, 2 * 6 + 4));
+
+		final GenerationResultsMsg merged = buffer.poll();
+		assertEquals(6, merged.getGenerationNumber());
+		assertTrue(merged.isKeyframe());
+		assertEquals(2, merged.getRegion().getX());
+		assertEquals(1, merged.getRegion().getY());
+		final BitGrid mergedCells = merged.getRegion().getCells();
+		assertFalse(mergedCells.get(0, 0));
+		assertTrue(mergedCells.get(2, 1));
+		assertEquals(1, mergedCells.countAlive());
+		// The keyframe that was queued is not modified
+		assertTrue(cells.get(0, 0));
+		assertFalse(cells.get(2, 1));
+	}
+
+	@Test
+	public void cellFlippedTwiceIsUnchanged() {
+		final GenerationBuffer deltas = new GenerationBuffer(Policy.LATEST, 1);
+		deltas.add(delta(1, 5, 7));
+		deltas.add(delta(2, 5, 9));
+		assertArrayEquals(new int[] { 7, 9 }, deltas.poll().getChangedCells());
+
+		final BitGrid grid = new BitGrid(4, 4);
+		grid.set(5, true);
+		final GenerationBuffer keyframes = new GenerationBuffer(Policy.LATEST, 1);
+		keyframes.add(new GenerationResultsMsg(1, grid, 0, 0, 1, 0));
+		keyframes.add(delta(2, 5));
+		keyframes.add(delta(3, 5));
+		final GenerationResultsMsg merged = keyframes.poll();
+		assertEquals(3, merged.getGenerationNumber());
+		assertEquals(grid, merged.getGenerationComputed());
+		assertTrue(grid.get(5));
+	}
+
+	@Test
+	public void newerKeyframeReplacesTheOlderResults() {
+		final GenerationBuffer buffer = new GenerationBuffer(Policy.LATEST, 1);
+		buffer.add(delta(1, 1, 2));
+		final GenerationResultsMsg keyframe = new GenerationResultsMsg(2, new BitGrid(4, 4), 0, 0, 0, 0);
+		buffer.add(keyframe);
+		assertSame(keyframe, buffer.poll());
+	}
+
+	@Test
+	public void fillWaitsForItsGeneration() {
+		final GenerationBuffer buffer = new GenerationBuffer(Policy.DROP_OLDEST, 4);
+		buffer.add(delta(1, 1));
+		buffer.add(delta(2, 2));
+		final RegionFillMsg fill = new RegionFillMsg(2, new GridRegion(new BitGrid(2, 2), 0, 0, 4, 4), null);
+		buffer.addFill(fill);
+
+		assertNull(buffer.pollFill(buffer.poll().getGenerationNumber()));
+		assertSame(fill, buffer.pollFill(buffer.poll().getGenerationNumber()));
+		assertNull(buffer.pollFill(2));
+
+		buffer.addFill(fill);
+		buffer.clear();
+		assertNull(buffer.pollFill(Long.MAX_VALUE));
+	}
+
+	private static GenerationResultsMsg delta(final long generation, final int... changedCells) {
+		return new GenerationResultsMsg(generation, changedCells, 0, 0, 0, 0);
+	}
+
+}
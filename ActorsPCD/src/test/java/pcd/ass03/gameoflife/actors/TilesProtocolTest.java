@@ -0,0 +1,140 @@
+package pcd.ass03.gameoflife.actors;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import pcd.ass03.gameoflife.engine.EngineType;
+import pcd.ass03.gameoflife.engine.ParallelEngine;
+import pcd.ass03.gameoflife.model.BitGrid;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Tests of {@link TilesProtocol}: the pipelined tiles, which can be some generations ahead of each other,
+ * must compute the same generations as the tiles synchronized by the barrier.
+ * The grid is not a multiple of the tiles, so the last row and column of tiles are smaller.
+ *
+ */
+public class TilesProtocolTest {
+
+	private static final String APPLICATION_CONFIG = "src/main/java/pcd/ass03/gameoflife/application.conf";
+	private static final int GENERATIONS = 60;
+
+	/**
+	 * View that records the number of alive cells of each generation, and gives back a credit to the grid
+	 * until it has received all the generations expected.
+	 */
+	public static final class ProbeViewActor extends AbstractActor {
+		private final int nGenerations;
+		private final CompletableFuture<List<Integer>> aliveCells;
+		private final List<Integer> received = new ArrayList<>();
+
+		public ProbeViewActor(final int nGenerations, final CompletableFuture<List<Integer>> aliveCells) {
+			this.nGenerations = nGenerations;
+			this.aliveCells = aliveCells;
+		}
+
+		public static Props props(final int nGenerations, final CompletableFuture<List<Integer>> aliveCells) {
+			return Props.create(ProbeViewActor.class, nGenerations, aliveCells);
+		}
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.match(ViewActor.GenerationResultsMsg.class, msg -> {
+						if (this.aliveCells.isDone()) {
+							return;
+						}
+						// Every generation must be sent in order, from the first one (a failure in the actor would only restart it)
+						if (msg.getGenerationNumber() != this.received.size()) {
+							this.aliveCells.completeExceptionally(new AssertionError("Generation "
+									+ msg.getGenerationNumber() + " received after " + this.received.size()));
+							return;
+						}
+						this.received.add(msg.getNumberOfAliveCells());
+						if (this.received.size() < this.nGenerations) {
+							getSender().tell(new GridActor.GenerationCreditMsg(1), getSelf());
+						} else {
+							this.aliveCells.complete(this.received);
+						}
+					})
+					.matchAny(msg -> { })
+					.build();
+		}
+	}
+
+	@Test
+	public void pipelinedTilesMatchTheBarrier() throws Exception {
+		final BitGrid grid = randomGrid(45, 30, 7);
+		final List<Integer> barrier = runTiles(grid, "barrier", 1);
+		assertEquals(referenceAliveCells(grid), barrier);
+		assertEquals(barrier, runTiles(grid, "pipelined", 1));
+		assertEquals(barrier, runTiles(grid, "pipelined", 4));
+	}
+
+	/*
+	 * Runs a grid of tile actors with the specified protocol and returns the alive cells of its first generations.
+	 */
+	private static List<Integer> runTiles(final BitGrid grid, final String protocol, final int maxLead)
+			throws Exception {
+		final Config config = ConfigFactory.parseString(
+				"akka.actor.provider = local\n"
+				+ "gameoflife.tile-size = 8\n"
+				+ "gameoflife.tile-protocol = " + protocol + "\n"
+				+ "gameoflife.tile-max-lead = " + maxLead + "\n"
+				+ "gameoflife.keyframe-interval = 1000\n"
+				+ "gameoflife.view-buffer.policy = CREDIT\n"
+				+ "gameoflife.view-buffer.capacity = 4")
+				.withFallback(ConfigFactory.parseFile(new File(APPLICATION_CONFIG)))
+				.withFallback(ConfigFactory.load());
+		final ActorSystem system = ActorSystem.create("TilesProtocolTest", config);
+		try {
+			final CompletableFuture<List<Integer>> aliveCells = new CompletableFuture<>();
+			final ActorRef view = system.actorOf(ProbeViewActor.props(GENERATIONS, aliveCells), "view");
+			final ActorRef gridActor = system.actorOf(GridActor.props(), "grid");
+			gridActor.tell(new GridActor.InitGridMsg(grid, EngineType.TILE_ACTORS, view), ActorRef.noSender());
+			gridActor.tell(new GridActor.StartGameMsg(), ActorRef.noSender());
+			return aliveCells.get(30, TimeUnit.SECONDS);
+		} finally {
+			Await.result(system.terminate(), Duration.create(10, TimeUnit.SECONDS));
+		}
+	}
+
+	private static List<Integer> referenceAliveCells(final BitGrid grid) {
+		final ParallelEngine engine = new ParallelEngine(1);
+		engine.init(grid);
+		final List<Integer> aliveCells = new ArrayList<>();
+		aliveCells.add(grid.countAlive());
+		for (int generation = 1; generation < GENERATIONS; generation++) {
+			engine.step();
+			aliveCells.add(engine.snapshot().countAlive());
+		}
+		engine.dispose();
+		return aliveCells;
+	}
+
+	private static BitGrid randomGrid(final int width, final int height, final long seed) {
+		final Random random = new Random(seed);
+		final BitGrid grid = new BitGrid(width, height);
+		for (int index = 0; index < grid.size(); index++) {
+			grid.set(index, random.nextInt(3) == 0);
+		}
+		return grid;
+	}
+
+}
@@ -0,0 +1,93 @@
+package pcd.ass03.gameoflife.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import pcd.ass03.gameoflife.engine.HashlifeEngine.EvictionPolicy;
+import pcd.ass03.gameoflife.model.BitGrid;
+
+/**
+ * Tests of {@link HashlifeEngine} against the parallel engine, on tori whose sides are not powers of two
+ * and with steps longer than the sides, so the patterns wrap around (even more than once) while jumping.
+ *
+ */
+public class HashlifeEngineTest {
+
+	@Test
+	public void singleGenerationsMatchTheParallelEngine() {
+		assertSameGenerations(randomGrid(37, 21, 1), 0, 100, 1000000, EvictionPolicy.DROP_RESULTS);
+	}
+
+	@Test
+	public void longStepsMatchTheParallelEngine() {
+		assertSameGenerations(randomGrid(13, 9, 2), 5, 10, 1000000, EvictionPolicy.DROP_RESULTS);
+		assertSameGenerations(randomGrid(50, 3, 3), 2, 30, 1000000, EvictionPolicy.DROP_RESULTS);
+	}
+
+	@Test
+	public void evictionDoesNotChangeTheGenerations() {
+		assertSameGenerations(randomGrid(40, 40, 4), 1, 50, 2000, EvictionPolicy.DROP_RESULTS);
+		assertSameGenerations(randomGrid(40, 40, 4), 1, 50, 2000, EvictionPolicy.RETAIN_RESULTS);
+	}
+
+	@Test
+	public void gliderWrapsAroundTheTorus() {
+		// A glider moves by one cell diagonally every 4 generations, so it is back after 4 * side generations
+		final int side = 10;
+		final BitGrid grid = new BitGrid(side, side);
+		grid.set(side - 2, side - 3, true);
+		grid.set(side - 1, side - 2, true);
+		grid.set(side - 3, side - 1, true);
+		grid.set(side - 2, side - 1, true);
+		grid.set(side - 1, side - 1, true);
+
+		final HashlifeEngine engine = new HashlifeEngine(3, 1000000, EvictionPolicy.DROP_RESULTS);
+		engine.init(grid);
+		for (int step = 0; step < side / 2; step++) {
+			engine.step();
+			assertEquals(5, engine.snapshot().countAlive());
+		}
+		assertEquals(4 * side, engine.getGeneration());
+		assertEquals(grid, engine.snapshot());
+	}
+
+	@Test
+	public void emptyTorusStaysEmpty() {
+		final HashlifeEngine engine = new HashlifeEngine(4, 1000000, EvictionPolicy.DROP_RESULTS);
+		engine.init(new BitGrid(17, 5));
+		engine.step();
+		assertEquals(16, engine.getGeneration());
+		assertEquals(new BitGrid(17, 5), engine.snapshot());
+	}
+
+	private static void assertSameGenerations(final BitGrid grid, final int stepExponent, final int nSteps,
+			final int maxNodes, final EvictionPolicy evictionPolicy) {
+		final HashlifeEngine hashlife = new HashlifeEngine(stepExponent, maxNodes, evictionPolicy);
+		final ParallelEngine reference = new ParallelEngine(1);
+		hashlife.init(grid);
+		reference.init(grid);
+		for (int step = 0; step < nSteps; step++) {
+			hashlife.step();
+			for (int generation = 0; generation < 1 << stepExponent; generation++) {
+				reference.step();
+			}
+			assertEquals(reference.getGeneration(), hashlife.getGeneration());
+			assertEquals("generation " + hashlife.getGeneration(), reference.snapshot(), hashlife.snapshot());
+		}
+		hashlife.dispose();
+		reference.dispose();
+	}
+
+	private static BitGrid randomGrid(final int width, final int height, final long seed) {
+		final Random random = new Random(seed);
+		final BitGrid grid = new BitGrid(width, height);
+		for (int index = 0; index < grid.size(); index++) {
+			grid.set(index, random.nextInt(3) == 0);
+		}
+		return grid;
+	}
+
+}
@@ -0,0 +1,188 @@
+package pcd.ass03.gameoflife.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link BitGrid}, mostly on the cells at the edges of the 64-bit words
+ * and on grids whose rows do not start at the beginning of a word.
+ *
+ */
+public class BitGridTest {
+
+	private static final int[] WORD_EDGES = { 0, 1, 62, 63, 64, 65, 127, 128, 191, 192 };
+
+	@Test
+	public void setAndGetAtWordEdges() {
+		final BitGrid grid = new BitGrid(20, 10);
+		for (final int index : WORD_EDGES) {
+			grid.set(index, true);
+		}
+		for (int index = 0; index < grid.size(); index++) {
+			assertEquals("cell " + index, contains(WORD_EDGES, index), grid.get(index));
+		}
+		assertEquals(WORD_EDGES.length, grid.countAlive());
+
+		for (final int index : WORD_EDGES) {
+			grid.set(index, false);
+		}
+		assertEquals(0, grid.countAlive());
+	}
+
+	@Test
+	public void setDoesNotTouchTheOtherBitsOfTheWord() {
+		final BitGrid grid = new BitGrid(64, 3);
+		grid.set(63, true);
+		grid.set(63, true);
+		grid.set(64, false);
+		assertTrue(grid.get(63));
+		assertFalse(grid.get(62));
+		assertFalse(grid.get(64));
+		assertEquals(1, grid.countAlive());
+	}
+
+	@Test
+	public void flipAtWordEdges() {
+		final BitGrid grid = new BitGrid(20, 10);
+		for (final int index : WORD_EDGES) {
+			grid.flip(index);
+		}
+		for (final int index : WORD_EDGES) {
+			assertTrue("cell " + index, grid.get(index));
+		}
+		for (final int index : WORD_EDGES) {
+			grid.flip(index);
+		}
+		assertEquals(0, grid.countAlive());
+	}
+
+	@Test
+	public void coordinatesWithWidthNotMultipleOf64() {
+		for (final int width : new int[] { 1, 7, 63, 65, 100 }) {
+			final int height = 5;
+			final BitGrid grid = new BitGrid(width, height);
+			// The last cell of each row and the first of the next one are adjacent bits
+			for (int y = 0; y < height; y++) {
+				grid.set(width - 1, y, true);
+			}
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					assertEquals(width + "x" + height + " (" + x + ", " + y + ")", x == width - 1, grid.get(x, y));
+					assertEquals(grid.get(x, y), grid.get(y * width + x));
+				}
+			}
+			assertEquals(height, grid.countAlive());
+		}
+	}
+
+	@Test
+	public void wordsCount() {
+		assertEquals(0, BitGrid.getWordsCount(0, 0));
+		assertEquals(1, BitGrid.getWordsCount(1, 1));
+		assertEquals(1, BitGrid.getWordsCount(8, 8));
+		assertEquals(2, BitGrid.getWordsCount(65, 1));
+		assertEquals(157, BitGrid.getWordsCount(100, 100));
+		assertEquals(157, new BitGrid(100, 100).getWords().length);
+	}
+
+	@Test
+	public void unusedBitsOfTheLastWordStayClear() {
+		final BitGrid grid = new BitGrid(10, 7);
+		for (int index = 0; index < grid.size(); index++) {
+			grid.set(index, true);
+		}
+		final long[] words = grid.getWords();
+		assertEquals(2, words.length);
+		assertEquals(-1L, words[0]);
+		assertEquals((1L << (70 - 64)) - 1, words[1]);
+		assertEquals(70, grid.countAlive());
+	}
+
+	@Test
+	public void copyIsIndependent() {
+		final BitGrid grid = new BitGrid(65, 2);
+		grid.set(64, true);
+		final BitGrid copy = grid.copy();
+		assertEquals(grid, copy);
+		assertEquals(grid.hashCode(), copy.hashCode());
+
+		copy.flip(64);
+		copy.flip(0);
+		assertTrue(grid.get(64));
+		assertFalse(grid.get(0));
+		assertNotEquals(grid, copy);
+	}
+
+	@Test
+	public void equalityDependsOnTheDimension() {
+		// Same words, different shape
+		assertNotEquals(new BitGrid(4, 2), new BitGrid(2, 4));
+		assertNotEquals(new BitGrid(4, 2), new BitGrid(8, 1));
+	}
+
+	@Test
+	public void clearKillsEveryCell() {
+		final BitGrid grid = new BitGrid(70, 3);
+		grid.set(0, true);
+		grid.set(69, 2, true);
+		grid.clear();
+		assertEquals(0, grid.countAlive());
+		assertEquals(new BitGrid(70, 3), grid);
+	}
+
+	@Test
+	public void wordDiffFindsTheChangedCells() {
+		// The same scan of the xor of the words used to turn a snapshot into changes
+		final Random random = new Random(7);
+		final BitGrid previous = new BitGrid(67, 13);
+		for (int index = 0; index < previous.size(); index++) {
+			previous.set(index, random.nextBoolean());
+		}
+		final BitGrid next = previous.copy();
+		final int[] flipped = { 0, 63, 64, 66, 67, 127, 128, previous.size() - 1 };
+		for (final int index : flipped) {
+			next.flip(index);
+		}
+
+		final List<Integer> changes = new ArrayList<>();
+		final long[] previousWords = previous.getWords();
+		final long[] nextWords = next.getWords();
+		for (int word = 0; word < nextWords.length; word++) {
+			long diff = previousWords[word] ^ nextWords[word];
+			while (diff != 0) {
+				changes.add(word * Long.SIZE + Long.numberOfTrailingZeros(diff));
+				diff &= diff - 1;
+			}
+		}
+		assertArrayEquals(flipped, changes.stream().mapToInt(Integer::intValue).toArray());
+
+		for (final int index : changes) {
+			previous.flip(index);
+		}
+		assertEquals(next, previous);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeDimension() {
+		new BitGrid(-1, 5);
+	}
+
+	private static boolean contains(final int[] values, final int value) {
+		for (final int v : values) {
+			if (v == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
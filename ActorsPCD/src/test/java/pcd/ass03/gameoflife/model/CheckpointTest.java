@@ -0,0 +1,118 @@
+package pcd.ass03.gameoflife.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link Checkpoint}: the saved generations must be read back unchanged,
+ * while truncated or foreign files must be rejected.
+ *
+ */
+public class CheckpointTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTrip() throws IOException {
+		// Sizes with and without unused bits in the last word
+		for (final int[] dimension : new int[][] { { 1, 1 }, { 8, 8 }, { 65, 3 }, { 100, 37 } }) {
+			final BitGrid grid = new BitGrid(dimension[0], dimension[1]);
+			final Random random = new Random(dimension[0]);
+			for (int index = 0; index < grid.size(); index++) {
+				grid.set(index, random.nextBoolean());
+			}
+			final Path file = checkpointFile();
+			Checkpoint.write(file, grid);
+			assertTrue(Checkpoint.isCheckpoint(file));
+			assertEquals(grid, Checkpoint.read(file));
+		}
+	}
+
+	@Test
+	public void writeReplacesALongerFile() throws IOException {
+		final Path file = checkpointFile();
+		Checkpoint.write(file, new BitGrid(200, 200));
+		final BitGrid grid = new BitGrid(3, 3);
+		grid.set(4, true);
+		Checkpoint.write(file, grid);
+		assertEquals(grid, Checkpoint.read(file));
+	}
+
+	@Test
+	public void unusedBitsAreCleared() throws IOException {
+		// 10x7 cells use 6 bits of the second word: the others are set in the file, but not in the grid
+		final Path file = checkpointFile();
+		Checkpoint.write(file, new BitGrid(10, 7));
+		final byte[] bytes = Files.readAllBytes(file);
+		Arrays.fill(bytes, 16, bytes.length, (byte) 0xFF);
+		Files.write(file, bytes);
+		assertEquals(70, Checkpoint.read(file).countAlive());
+	}
+
+	@Test
+	public void truncatedFileIsRejected() throws IOException {
+		final Path file = checkpointFile();
+		Checkpoint.write(file, new BitGrid(100, 37));
+		final byte[] bytes = Files.readAllBytes(file);
+		assertRejected(Arrays.copyOf(bytes, bytes.length - 1), "Corrupted checkpoint");
+		assertRejected(Arrays.copyOf(bytes, 16), "Corrupted checkpoint");
+		assertRejected(Arrays.copyOf(bytes, 10), "is not a checkpoint");
+	}
+
+	@Test
+	public void invalidHeaderIsRejected() throws IOException {
+		assertRejected(header(0x434C4F47, 2, 8, 8), "Unsupported checkpoint version");
+		assertRejected(header(0x434C4F47, 1, 0, 8), "Corrupted checkpoint");
+		assertRejected(header(0x434C4F47, 1, -8, -8), "Corrupted checkpoint");
+		assertRejected(header(0x12345678, 1, 8, 8), "is not a checkpoint");
+	}
+
+	@Test
+	public void otherFilesAreNotCheckpoints() throws IOException {
+		final Path file = checkpointFile();
+		Files.write(file, "x = 3, y = 3\nbob$2bo$3o!\n".getBytes("ISO-8859-1"));
+		assertFalse(Checkpoint.isCheckpoint(file));
+		Files.write(file, new byte[] { 0x47, 0x4F });
+		assertFalse(Checkpoint.isCheckpoint(file));
+	}
+
+	private Path checkpointFile() throws IOException {
+		return this.folder.newFile().toPath();
+	}
+
+	private void assertRejected(final byte[] content, final String message) throws IOException {
+		final Path file = this.folder.newFile().toPath();
+		Files.write(file, content);
+		try {
+			Checkpoint.read(file);
+			fail("Accepted a file of " + content.length + " bytes");
+		} catch (final IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(message));
+		}
+	}
+
+	/*
+	 * Returns a header followed by the words of the declared grid, all 0.
+	 */
+	private static byte[] header(final int magic, final int version, final int width, final int height) {
+		final int nWords = width > 0 && height > 0 ? BitGrid.getWordsCount(width, height) : 0;
+		return ByteBuffer.allocate(16 + nWords * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+				.putInt(magic).putInt(version).putInt(width).putInt(height).array();
+	}
+
+}
@@ -0,0 +1,203 @@
+package pcd.ass03.gameoflife.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link PatternReader}: the RLE and Life 1.06 encodings of random grids must be read back
+ * as the same grids, while truncated or malformed patterns must be rejected.
+ *
+ */
+public class PatternReaderTest {
+
+	private static final String GLIDER_RLE = "#N Glider\n#C A comment\nx = 3, y = 3, rule = B3/S23\nbob$2bo$3o!\n";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readsAGliderAtTheCenter() throws IOException {
+		final BitGrid grid = PatternReader.readRle(new StringReader(GLIDER_RLE), 7, 5);
+		assertEquals(7, grid.getWidth());
+		assertEquals(5, grid.getHeight());
+		// The 3x3 pattern starts at (2, 1)
+		final BitGrid expected = new BitGrid(7, 5);
+		expected.set(3, 1, true);
+		expected.set(4, 2, true);
+		expected.set(2, 3, true);
+		expected.set(3, 3, true);
+		expected.set(4, 3, true);
+		assertEquals(expected, grid);
+	}
+
+	@Test
+	public void rleRoundTrip() throws IOException {
+		for (final long seed : new long[] { 1, 2, 3 }) {
+			final BitGrid grid = randomGrid(71, 23, seed);
+			assertEquals(grid, PatternReader.readRle(new StringReader(toRle(grid)), 0, 0));
+			assertEquals(grid, PatternReader.read(writeFile("pattern.rle", toRle(grid)), 0, 0));
+		}
+	}
+
+	@Test
+	public void life106RoundTrip() throws IOException {
+		final BitGrid grid = randomGrid(40, 30, 4);
+		// The pattern must touch the four sides of the grid, so its bounds are the same as the grid
+		grid.set(0, 0, true);
+		grid.set(39, 29, true);
+		final StringBuilder life106 = new StringBuilder("#Life 1.06\n");
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				if (grid.get(x, y)) {
+					// Coordinates relative to an origin inside the pattern, as usual in these files
+					life106.append(x - 20).append(' ').append(y - 15).append('\n');
+				}
+			}
+		}
+		assertEquals(grid, PatternReader.read(writeFile("pattern.lif", life106.toString()), 0, 0));
+	}
+
+	@Test
+	public void life106IsCenteredInALargerGrid() throws IOException {
+		final BitGrid grid = PatternReader.read(writeFile("blinker.lif", "#Life 1.06\n-1 0\n0 0\n1 0\n"), 5, 5);
+		final BitGrid expected = new BitGrid(5, 5);
+		expected.set(1, 2, true);
+		expected.set(2, 2, true);
+		expected.set(3, 2, true);
+		assertEquals(expected, grid);
+	}
+
+	@Test
+	public void truncatedRleIsRejected() {
+		final String truncated = GLIDER_RLE.substring(0, GLIDER_RLE.indexOf("$3o"));
+		assertMalformedRle(truncated, "Missing end of RLE pattern");
+	}
+
+	@Test
+	public void rleWithoutEndIsRejected() {
+		assertMalformedRle(GLIDER_RLE.replace("!", ""), "Missing end of RLE pattern");
+	}
+
+	@Test
+	public void rleWithoutHeaderIsRejected() {
+		assertMalformedRle("#C Only a comment\n", "Missing RLE header");
+		assertMalformedRle("x = 3\nbob$2bo$3o!\n", "Invalid RLE header");
+		assertMalformedRle("x = three, y = 3\nbob$2bo$3o!\n", "Invalid RLE header");
+	}
+
+	@Test
+	public void rleCellsOutsideTheHeaderAreRejected() {
+		// A row longer than x and a row after the last one declared by y
+		assertMalformedRle("x = 3, y = 3\nbob$2bo$4o!\n", "exceed the size");
+		assertMalformedRle("x = 3, y = 3\nbob$2bo$3o$o!\n", "exceed the size");
+	}
+
+	@Test
+	public void rleWithUnexpectedCharacterIsRejected() {
+		assertMalformedRle("x = 3, y = 3\nbob$2bo$3o*!\n", "Unexpected character");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rleLargerThanTheGridIsRejected() throws IOException {
+		PatternReader.readRle(new StringReader(GLIDER_RLE), 2, 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void life106OutsideTheGridIsRejected() throws IOException {
+		PatternReader.read(writeFile("far.lif", "#Life 1.06\n0 0\n100 0\n"), 50, 50);
+	}
+
+	@Test
+	public void malformedLife106IsRejected() throws IOException {
+		for (final String line : new String[] { "1", "1 y", "x 1", "1 99999999999" }) {
+			try {
+				PatternReader.read(writeFile("bad.lif", "#Life 1.06\n0 0\n" + line + "\n"), 0, 0);
+				fail("Accepted the line: " + line);
+			} catch (final IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid Life 1.06 line"));
+			}
+		}
+	}
+
+	@Test
+	public void readsACheckpointAtTheCenter() throws IOException {
+		final BitGrid pattern = randomGrid(10, 6, 5);
+		final Path file = this.folder.getRoot().toPath().resolve("pattern" + Checkpoint.EXTENSION);
+		Checkpoint.write(file, pattern);
+		assertEquals(pattern, PatternReader.read(file, 0, 0));
+
+		final BitGrid grid = PatternReader.read(file, 14, 8);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				final boolean inside = x >= 2 && x < 12 && y >= 1 && y < 7;
+				assertEquals(inside && pattern.get(x - 2, y - 1), grid.get(x, y));
+			}
+		}
+	}
+
+	private Path writeFile(final String name, final String content) throws IOException {
+		final Path file = this.folder.getRoot().toPath().resolve(name);
+		Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+		return file;
+	}
+
+	private static void assertMalformedRle(final String rle, final String message) {
+		try {
+			PatternReader.readRle(new StringReader(rle), 0, 0);
+			fail("Accepted the pattern: " + rle);
+		} catch (final IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(message));
+		}
+	}
+
+	/*
+	 * Encodes a grid with runs of dead and alive cells, split in lines as the usual RLE files.
+	 */
+	private static String toRle(final BitGrid grid) {
+		final StringBuilder rle = new StringBuilder("x = " + grid.getWidth() + ", y = " + grid.getHeight() + "\n");
+		int lineLength = 0;
+		for (int y = 0; y < grid.getHeight(); y++) {
+			int x = 0;
+			while (x < grid.getWidth()) {
+				final boolean alive = grid.get(x, y);
+				int run = 0;
+				while (x < grid.getWidth() && grid.get(x, y) == alive) {
+					run++;
+					x++;
+				}
+				final String token = (run > 1 ? String.valueOf(run) : "") + (alive ? 'o' : 'b');
+				if (lineLength + token.length() > 70) {
+					rle.append('\n');
+					lineLength = 0;
+				}
+				rle.append(token);
+				lineLength += token.length();
+			}
+			rle.append(y < grid.getHeight() - 1 ? '$' : '!');
+			lineLength++;
+		}
+		return rle.append('\n').toString();
+	}
+
+	private static BitGrid randomGrid(final int width, final int height, final long seed) {
+		final Random random = new Random(seed);
+		final BitGrid grid = new BitGrid(width, height);
+		for (int index = 0; index < grid.size(); index++) {
+			grid.set(index, random.nextInt(3) == 0);
+		}
+		return grid;
+	}
+
+}